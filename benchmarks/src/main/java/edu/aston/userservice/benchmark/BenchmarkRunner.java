@@ -0,0 +1,24 @@
+package edu.aston.userservice.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException {
+        final String include = args.length > 0 ? args[0] : "edu.aston.userservice.benchmark.*";
+        final String output = System.getProperty("bench.output", "target");
+
+        for(final String threads : System.getProperty("bench.threads", "1,4,16").split(",")) {
+            final int count = Integer.parseInt(threads.trim());
+
+            new Runner(new OptionsBuilder()
+                    .include(include)
+                    .threads(count)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(output + "/jmh-" + count + "t.json")
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package edu.aston.userservice.benchmark;
+
+import edu.aston.userservice.dao.OffHeapUserDAO;
+import edu.aston.userservice.server.UserHttpServer;
+import edu.aston.userservice.service.UserServiceImpl;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Closed-loop load generator: each virtual-thread client sends its next request as soon as the previous one returns.
+// Without a URL argument it serves an in-memory UserService on an ephemeral port, which measures the HTTP layer alone.
+public class HttpLoadTest {
+    private static final int WRITE_PERCENT = 10;
+
+    public static void main(String[] args) throws Exception {
+        final int clients = Integer.getInteger("load.clients", 64);
+        final int seconds = Integer.getInteger("load.seconds", 10);
+
+        UserHttpServer embedded = null;
+        String baseUrl = args.length > 0 ? args[0] : null;
+
+        if(baseUrl == null) {
+            embedded = new UserHttpServer(new UserServiceImpl(new OffHeapUserDAO()), 0, clients * 2);
+            embedded.start();
+
+            baseUrl = "http://localhost:" + embedded.getPort();
+        }
+
+        final URI users = URI.create(baseUrl + "/users");
+
+        final HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        final AtomicLong sequence = new AtomicLong();
+
+        for(int i = 0; i < 100; i++) {
+            client.send(create(users, sequence.incrementAndGet()), HttpResponse.BodyHandlers.discarding());
+        }
+
+        final Recorder recorder = new Recorder(TimeUnit.SECONDS.toNanos(10), 3);
+        final LongAdder errors = new LongAdder();
+
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+
+        try(ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for(int i = 0; i < clients; i++) {
+                executor.submit(() -> {
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                    while(System.nanoTime() < deadline) {
+                        final HttpRequest request = random.nextInt(100) < WRITE_PERCENT
+                                ? create(users, sequence.incrementAndGet())
+                                : HttpRequest.newBuilder(users.resolve("/users/" + (1 + random.nextLong(sequence.get())))).GET().build();
+
+                        final long start = System.nanoTime();
+
+                        try {
+                            final HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+
+                            if(response.statusCode() >= 500) {
+                                errors.increment();
+                            }
+                        }
+                        catch(Exception exception) {
+                            errors.increment();
+                        }
+
+                        recorder.recordValue(Math.min(System.nanoTime() - start, TimeUnit.SECONDS.toNanos(10)));
+                    }
+
+                    return null;
+                });
+            }
+        }
+
+        final Histogram histogram = recorder.getIntervalHistogram();
+
+        System.out.printf("clients=%d requests=%d errors=%d throughput=%.0f req/s p50=%.3f ms p99=%.3f ms max=%.3f ms%n",
+                clients, histogram.getTotalCount(), errors.sum(), histogram.getTotalCount() / (double) seconds,
+                histogram.getValueAtPercentile(50) / 1e6, histogram.getValueAtPercentile(99) / 1e6, histogram.getMaxValue() / 1e6);
+
+        if(embedded != null) {
+            embedded.close();
+        }
+    }
+
+    private static HttpRequest create(final URI users, final long sequence) {
+        final String body = "{\"name\":\"Load\",\"email\":\"load" + sequence + "@bench.local\",\"age\":30}";
+
+        return HttpRequest.newBuilder(users)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,59 @@
+package edu.aston.userservice.benchmark;
+
+import edu.aston.userservice.dao.ReplicaRouter;
+import edu.aston.userservice.dao.UserDAO;
+import edu.aston.userservice.dao.UserDAOImpl;
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.util.HibernateUtil;
+import edu.aston.userservice.util.Setting;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+
+// Two unrelated PostgreSQL containers stand in for a primary and its replica. Nothing is replicated between them,
+// so a row written to the primary is visible only while reads are routed there: within the sticky window, or
+// after the replica has gone away.
+public class ReplicaRoutingCheck {
+    public static void main(String[] args) throws Exception {
+        try(PostgreSQLContainer<?> primary = new PostgreSQLContainer<>("postgres:17-alpine");
+            PostgreSQLContainer<?> replica = new PostgreSQLContainer<>("postgres:17-alpine")) {
+            primary.start();
+            replica.start();
+
+            System.setProperty(Setting.DB_URL.property(), primary.getJdbcUrl());
+            System.setProperty(Setting.DB_USERNAME.property(), primary.getUsername());
+            System.setProperty(Setting.DB_PASSWORD.property(), primary.getPassword());
+            System.setProperty(Setting.SCHEMA_MODE.property(), "create");
+            System.setProperty(Setting.DB_REPLICA_URLS.property(), replica.getJdbcUrl());
+
+            try(Connection connection = DriverManager.getConnection(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword());
+                Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(25) NOT NULL, email VARCHAR(50) NOT NULL UNIQUE, age INT, created_at TIMESTAMP NOT NULL, version BIGINT DEFAULT 0 NOT NULL)");
+            }
+
+            final ReplicaRouter router = new ReplicaRouter(HibernateUtil.getSessionFactory(), HibernateUtil.getReplicaSessionFactories(),
+                    ReplicaRouter.Strategy.ROUND_ROBIN, ReplicaRouter.Stickiness.THREAD, 500L);
+
+            final UserDAO userDAO = new UserDAOImpl(router, UserDAOImpl.DEFAULT_MULTI_LOAD_BATCH_SIZE);
+
+            final User user = userDAO.create(new User("Replica", "replica@check.local", 30));
+
+            System.out.println("Read inside the sticky window (primary):  " + userDAO.readByEmail(user.getEmail()).isPresent());
+
+            Thread.sleep(600L);
+
+            System.out.println("Read after the sticky window (replica):   " + userDAO.readByEmail(user.getEmail()).isPresent());
+
+            replica.stop();
+
+            System.out.println("Read with the replica stopped (fallback): " + userDAO.readByEmail(user.getEmail()).isPresent());
+            System.out.println("Next read skips the replica:              " + userDAO.readByEmail(user.getEmail()).isPresent());
+        }
+        finally {
+            HibernateUtil.shutdown();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package edu.aston.userservice.benchmark;
+
+import edu.aston.userservice.dao.UserDAO;
+import edu.aston.userservice.dao.UserDAOException;
+import edu.aston.userservice.dao.UserDAOImpl;
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.util.HibernateUtil;
+import edu.aston.userservice.util.Setting;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UserDAOBenchmark {
+    @Param({"1000", "100000"})
+    public int tableSize;
+
+    private PostgreSQLContainer<?> postgres;
+
+    private UserDAO userDAO;
+
+    private long[] ids;
+    private String[] emails;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() throws UserDAOException {
+        this.postgres = new PostgreSQLContainer<>("postgres:17-alpine");
+        this.postgres.start();
+
+        System.setProperty(Setting.DB_URL.property(), this.postgres.getJdbcUrl() + "&reWriteBatchedInserts=true");
+        System.setProperty(Setting.DB_USERNAME.property(), this.postgres.getUsername());
+        System.setProperty(Setting.DB_PASSWORD.property(), this.postgres.getPassword());
+        System.setProperty(Setting.SCHEMA_MODE.property(), "create");
+
+        this.userDAO = new UserDAOImpl(HibernateUtil.getSessionFactory());
+
+        final List<User> users = new ArrayList<>(this.tableSize);
+
+        for(int i = 0; i < this.tableSize; i++) {
+            users.add(new User("Seed", "seed" + i + "@bench.local", 30));
+        }
+
+        this.userDAO.createAll(users);
+
+        this.ids = new long[this.tableSize];
+        this.emails = new String[this.tableSize];
+
+        for(int i = 0; i < this.tableSize; i++) {
+            this.ids[i] = users.get(i).getId();
+            this.emails[i] = users.get(i).getEmail();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        HibernateUtil.shutdown();
+
+        this.postgres.stop();
+    }
+
+    @Benchmark
+    public User create() throws UserDAOException {
+        return this.userDAO.create(new User("Bench", "create" + this.sequence.incrementAndGet() + "@bench.local", 30));
+    }
+
+    @Benchmark
+    public Optional<User> readById() throws UserDAOException {
+        return this.userDAO.read(this.ids[ThreadLocalRandom.current().nextInt(this.tableSize)]);
+    }
+
+    @Benchmark
+    public void readAll(final Blackhole blackhole) throws UserDAOException {
+        long afterId = 0L;
+
+        List<User> page;
+
+        do {
+            page = this.userDAO.read(afterId, 1_000);
+
+            if(!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+
+            blackhole.consume(page);
+        } while(page.size() == 1_000);
+    }
+
+    @Benchmark
+    public int update() throws UserDAOException {
+        final int index = ThreadLocalRandom.current().nextInt(this.tableSize);
+
+        return this.userDAO.update(new User(this.ids[index], "Updated", this.emails[index], 40));
+    }
+
+    @Benchmark
+    public int createThenDelete() throws UserDAOException {
+        final User user = this.userDAO.create(new User("Bench", "delete" + this.sequence.incrementAndGet() + "@bench.local", 30));
+
+        return this.userDAO.delete(user.getId());
+    }
+}
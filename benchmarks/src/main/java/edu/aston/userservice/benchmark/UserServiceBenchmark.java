@@ -0,0 +1,108 @@
+package edu.aston.userservice.benchmark;
+
+import edu.aston.userservice.dao.OffHeapUserDAO;
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.service.UserService;
+import edu.aston.userservice.service.UserServiceException;
+import edu.aston.userservice.service.UserServiceImpl;
+import edu.aston.userservice.util.OperationLog;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+    @Param({"1000", "100000"})
+    public int tableSize;
+
+    // 1 logs every operation; a larger rate measures the sampled-out path, where a log call should cost nothing.
+    @Param({"1", "1000"})
+    public int logSampleRate;
+
+    private UserService userService;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup
+    public void setUp() throws UserServiceException {
+        for(final OperationLog operation : OperationLog.values()) {
+            operation.setSampleRate(this.logSampleRate);
+        }
+
+        this.userService = new UserServiceImpl(new OffHeapUserDAO());
+
+        final List<User> users = new ArrayList<>(this.tableSize);
+
+        for(int i = 0; i < this.tableSize; i++) {
+            users.add(new User("Seed", "seed" + i + "@bench.local", 30));
+        }
+
+        this.userService.importUsers(users, false);
+    }
+
+    @Benchmark
+    public User create() throws UserServiceException {
+        return this.userService.createUser("Bench", "create" + this.sequence.incrementAndGet() + "@bench.local", 30);
+    }
+
+    @Benchmark
+    public User readById() throws UserServiceException {
+        return this.userService.findById(randomId());
+    }
+
+    @Benchmark
+    public void readAll(final Blackhole blackhole) throws UserServiceException {
+        long afterId = 0L;
+
+        List<User> page;
+
+        do {
+            page = this.userService.findPage(afterId, 1_000);
+
+            if(!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+
+            blackhole.consume(page);
+        } while(page.size() == 1_000);
+    }
+
+    @Benchmark
+    public boolean update() throws UserServiceException {
+        final long id = randomId();
+
+        return this.userService.updateUser(id, "Updated", "seed" + (id - 1) + "@bench.local", 40);
+    }
+
+    @Benchmark
+    public boolean createThenDelete() throws UserServiceException {
+        final User user = this.userService.createUser("Bench", "delete" + this.sequence.incrementAndGet() + "@bench.local", 30);
+
+        return this.userService.deleteById(this.userService.findByEmail(user.getEmail()).getId());
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1L, this.tableSize + 1L);
+    }
+}
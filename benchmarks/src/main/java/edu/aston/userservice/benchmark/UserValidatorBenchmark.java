@@ -0,0 +1,49 @@
+package edu.aston.userservice.benchmark;
+
+import edu.aston.userservice.service.DefaultUserValidator;
+import edu.aston.userservice.service.UserValidator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Run with -prof gc: gc.alloc.rate.norm of validValidator is expected to be ~0 B/op.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserValidatorBenchmark {
+    private final UserValidator validator = new DefaultUserValidator();
+
+    public String name = "Alexandra";
+    public String email = "alexandra.smith@example.com";
+    public int age = 30;
+
+    @Benchmark
+    public int validValidator() {
+        return this.validator.validate(this.name, this.email, this.age);
+    }
+
+    @Benchmark
+    public int invalidValidator() {
+        return this.validator.validate("Al3x", "not-an-email", 7);
+    }
+
+    @Benchmark
+    public boolean validStreamBaseline() {
+        // The previous check: an IntStream pipeline per name plus a bare contains("@").
+        return this.name != null && !this.name.isBlank() && this.name.chars().allMatch(Character::isLetter)
+                && this.email != null && !this.email.isBlank() && this.email.contains("@")
+                && this.age >= 18 && this.age <= 99;
+    }
+}
@@ -1,15 +1,113 @@
 package edu.aston.userservice;
 
+import edu.aston.userservice.gui.BatchRunner;
 import edu.aston.userservice.gui.Cli;
 
+import edu.aston.userservice.dao.UserDAO;
+import edu.aston.userservice.dao.CircuitBreaker;
+import edu.aston.userservice.dao.CoalescingUserDAO;
+import edu.aston.userservice.dao.CountingUserDAO;
+import edu.aston.userservice.dao.ReplicaRouter;
+import edu.aston.userservice.dao.ResilientUserDAO;
+import edu.aston.userservice.dao.UserChangeDAOImpl;
 import edu.aston.userservice.dao.UserDAOImpl;
+import edu.aston.userservice.dao.UserPartitionMigration;
+import edu.aston.userservice.dao.UserStatsDAOImpl;
+import edu.aston.userservice.dao.WriteBehindUserDAO;
+import edu.aston.userservice.metrics.InstrumentedUserDAO;
+import edu.aston.userservice.metrics.InstrumentedUserService;
+import edu.aston.userservice.metrics.MetricsExporter;
+import edu.aston.userservice.metrics.MetricsRegistry;
+import edu.aston.userservice.server.UserHttpServer;
+import edu.aston.userservice.export.UserExporter;
+import edu.aston.userservice.service.DefaultUserValidator;
+import edu.aston.userservice.service.UserChangeFeedImpl;
 import edu.aston.userservice.service.UserServiceImpl;
+import edu.aston.userservice.service.UserService;
+import edu.aston.userservice.service.UserStatsService;
+import edu.aston.userservice.service.UserStatsServiceImpl;
 import edu.aston.userservice.util.HibernateUtil;
+import edu.aston.userservice.util.Setting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 public class Application {
+    private static final Logger logger = LoggerFactory.getLogger(Application.class);
+
+    // The DAO chain main runs on; the counter is kept apart because the user count is answered from it.
+    public record UserDAOStack(UserDAO userDAO, CountingUserDAO counter) { }
+
     public static void main(String[] args) {
+        final MetricsRegistry metrics = MetricsRegistry.getDefault();
+
+        final List<String> arguments = Arrays.asList(args);
+
         try {
-            final Cli cli = new Cli(new UserServiceImpl(new UserDAOImpl(HibernateUtil.getSessionFactory())));
+            final MetricsExporter exporter = MetricsExporter.start(metrics, HibernateUtil.getSessionFactory(),
+                    Path.of(Setting.METRICS_FILE.value().orElse("logs/metrics.jsonl")),
+                    Long.parseLong(Setting.METRICS_INTERVAL.value().orElse("60")));
+
+            // The last export runs inside shutdown, after the buffered writers flush and before the pool closes.
+            HibernateUtil.closeBeforeShutdown(exporter);
+
+            // Every HTTP request runs on a new virtual thread, so a GET after a POST is only routed to the primary when
+            // the whole process sticks to it; per-thread stickiness covers the CLI, where one thread does everything.
+            final ReplicaRouter router = createReplicaRouter(arguments.contains("--server")
+                    ? ReplicaRouter.Stickiness.GLOBAL
+                    : ReplicaRouter.Stickiness.THREAD);
+
+            final UserDAOStack stack = createUserDAOStack(router, metrics);
+
+            final UserServiceImpl userServiceImpl = createUserService(stack.userDAO());
+
+            metrics.gauge("service.updateConflicts", userServiceImpl::getUpdateConflicts);
+
+            final UserService userService = new InstrumentedUserService(userServiceImpl, metrics);
+            final UserStatsService userStatsService = new UserStatsServiceImpl(new UserStatsDAOImpl(router), stack.counter(),
+                    Long.parseLong(Setting.STATS_COUNT_REFRESH_SECONDS.value().orElse(String.valueOf(UserStatsServiceImpl.DEFAULT_COUNT_REFRESH_SECONDS))));
+
+            userService.findPage(0L, 1);
+
+            final long coldStartMillis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+
+            logger.info("Cold start to first query took {} ms (SessionFactory bootstrap {} ms).", coldStartMillis, HibernateUtil.getBootstrapMillis());
+
+            if(arguments.contains("--bootstrap-only")) {
+                System.out.println("Cold start to first query: " + coldStartMillis + " ms");
+                return;
+            }
+
+            if(arguments.contains("--partition-users")) {
+                System.out.println("Users copied into the partitioned table: " + createPartitionMigration().run());
+                return;
+            }
+
+            if(arguments.contains("--server")) {
+                serve(userService, userStatsService, arguments);
+                return;
+            }
+
+            final Cli cli = new Cli(userService, metrics, Cli.DEFAULT_PAGE_SIZE, userStatsService,
+                    new UserChangeFeedImpl(new UserChangeDAOImpl(router)),
+                    new UserExporter(router,
+                            Integer.parseInt(Setting.EXPORT_PARALLELISM.value().orElse(String.valueOf(UserExporter.DEFAULT_PARALLELISM))),
+                            Integer.parseInt(Setting.EXPORT_FETCH_SIZE.value().orElse(String.valueOf(UserExporter.DEFAULT_FETCH_SIZE)))));
+
+            final int batchIndex = arguments.indexOf("--batch");
+
+            if(batchIndex > -1 && batchIndex + 1 < arguments.size()) {
+                System.out.println(cli.runBatch(Path.of(arguments.get(batchIndex + 1)),
+                        Integer.parseInt(Setting.BATCH_GROUP_SIZE.value().orElse(String.valueOf(BatchRunner.DEFAULT_GROUP_SIZE))),
+                        Integer.parseInt(Setting.BATCH_READ_WINDOW.value().orElse(String.valueOf(BatchRunner.DEFAULT_READ_WINDOW)))));
+                return;
+            }
 
             cli.run();
         }
@@ -20,4 +118,136 @@ public class Application {
             HibernateUtil.shutdown();
         }
     }
+
+    public static ReplicaRouter createReplicaRouter() {
+        return createReplicaRouter(ReplicaRouter.Stickiness.THREAD);
+    }
+
+    public static ReplicaRouter createReplicaRouter(final ReplicaRouter.Stickiness defaultStickiness) {
+        return new ReplicaRouter(HibernateUtil.getSessionFactory(), HibernateUtil.getReplicaSessionFactories(),
+                ReplicaRouter.Strategy.valueOf(Setting.REPLICA_STRATEGY.value().orElse("round_robin").toUpperCase()),
+                ReplicaRouter.Stickiness.valueOf(Setting.REPLICA_STICKINESS.value().orElse(defaultStickiness.name()).toUpperCase()),
+                Long.parseLong(Setting.REPLICA_STICKY_MILLIS.value().orElse(String.valueOf(ReplicaRouter.DEFAULT_STICKY_MILLIS))));
+    }
+
+    public static UserDAOStack createUserDAOStack(final ReplicaRouter router, final MetricsRegistry metrics) {
+        final CountingUserDAO counter = new CountingUserDAO(createUserDAO(router, metrics));
+
+        return new UserDAOStack(createWriteBehindUserDAO(counter, metrics), counter);
+    }
+
+    public static UserServiceImpl createUserService(final UserDAO userDAO) {
+        return new UserServiceImpl(userDAO, new DefaultUserValidator(),
+                Integer.parseInt(Setting.UPDATE_RETRY_ATTEMPTS.value().orElse(String.valueOf(UserServiceImpl.DEFAULT_UPDATE_ATTEMPTS))),
+                Long.parseLong(Setting.UPDATE_RETRY_BACKOFF_MICROS.value().orElse(String.valueOf(UserServiceImpl.DEFAULT_BACKOFF_MICROS))));
+    }
+
+    private static UserPartitionMigration createPartitionMigration() {
+        return new UserPartitionMigration(HibernateUtil.getSessionFactory(),
+                Integer.parseInt(Setting.PARTITION_HASH_COUNT.value().orElse(String.valueOf(UserPartitionMigration.DEFAULT_HASH_PARTITIONS))),
+                UserPartitionMigration.RangeInterval.valueOf(Setting.PARTITION_RANGE.value().orElse("none").toUpperCase()),
+                Integer.parseInt(Setting.PARTITION_BATCH_SIZE.value().orElse(String.valueOf(UserPartitionMigration.DEFAULT_BATCH_SIZE))),
+                Long.parseLong(Setting.PARTITION_PAUSE_MILLIS.value().orElse("0")));
+    }
+
+    private static UserDAO createUserDAO(final ReplicaRouter router, final MetricsRegistry metrics) {
+        final UserDAOImpl userDAOImpl = new UserDAOImpl(router, UserDAOImpl.DEFAULT_MULTI_LOAD_BATCH_SIZE,
+                Integer.parseInt(Setting.DB_READ_TIMEOUT.value().orElse(String.valueOf(UserDAOImpl.DEFAULT_READ_TIMEOUT_SECONDS))),
+                Integer.parseInt(Setting.DB_WRITE_TIMEOUT.value().orElse(String.valueOf(UserDAOImpl.DEFAULT_WRITE_TIMEOUT_SECONDS))));
+
+        // Stops the partition scan threads; registered first, so it closes after any write-behind buffer has flushed.
+        HibernateUtil.closeBeforeShutdown(userDAOImpl);
+
+        UserDAO userDAO = createResilientUserDAO(new InstrumentedUserDAO(userDAOImpl, metrics), metrics);
+
+        if(Boolean.parseBoolean(Setting.READ_COALESCING_ENABLED.value().orElse("false"))) {
+            userDAO = createCoalescingUserDAO(userDAO, metrics);
+        }
+
+        return userDAO;
+    }
+
+    // Outside the counting DAO, so buffered writes only count once they have been flushed.
+    private static UserDAO createWriteBehindUserDAO(final UserDAO userDAO, final MetricsRegistry metrics) {
+        if(!Boolean.parseBoolean(Setting.WRITE_BEHIND_ENABLED.value().orElse("false"))) {
+            return userDAO;
+        }
+
+        final WriteBehindUserDAO writeBehind = new WriteBehindUserDAO(userDAO,
+                Integer.parseInt(Setting.WRITE_BEHIND_CAPACITY.value().orElse(String.valueOf(WriteBehindUserDAO.DEFAULT_CAPACITY))),
+                Integer.parseInt(Setting.WRITE_BEHIND_BATCH_SIZE.value().orElse(String.valueOf(WriteBehindUserDAO.DEFAULT_BATCH_SIZE))),
+                Long.parseLong(Setting.WRITE_BEHIND_FLUSH_MILLIS.value().orElse(String.valueOf(WriteBehindUserDAO.DEFAULT_FLUSH_INTERVAL_MILLIS))));
+
+        // The buffer is flushed by HibernateUtil.shutdown(), which also runs from the hook when the JVM is stopped.
+        HibernateUtil.closeBeforeShutdown(writeBehind);
+        Runtime.getRuntime().addShutdownHook(new Thread(HibernateUtil::shutdown, "userservice-write-behind-flush"));
+
+        // Writes are acknowledged before they are stored, so a dropped one is only visible here and in the log.
+        metrics.gauge("writeBehind.pending", writeBehind::getPending);
+        metrics.gauge("writeBehind.flushed", writeBehind::getFlushed);
+        metrics.gauge("writeBehind.coalesced", writeBehind::getCoalesced);
+        metrics.gauge("writeBehind.dropped", writeBehind::getDropped);
+
+        logger.info("Write-behind mode is enabled for creates and updates.");
+
+        return writeBehind;
+    }
+
+    private static ResilientUserDAO createResilientUserDAO(final UserDAO userDAO, final MetricsRegistry metrics) {
+        final CircuitBreaker breaker = new CircuitBreaker("users",
+                Integer.parseInt(Setting.BREAKER_FAILURE_THRESHOLD.value().orElse(String.valueOf(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD))),
+                Long.parseLong(Setting.BREAKER_OPEN_MILLIS.value().orElse(String.valueOf(CircuitBreaker.DEFAULT_OPEN_MILLIS))));
+
+        final ResilientUserDAO resilient = new ResilientUserDAO(userDAO, breaker,
+                Integer.parseInt(Setting.READ_RETRY_ATTEMPTS.value().orElse(String.valueOf(ResilientUserDAO.DEFAULT_READ_ATTEMPTS))),
+                Long.parseLong(Setting.READ_RETRY_BACKOFF_MILLIS.value().orElse(String.valueOf(ResilientUserDAO.DEFAULT_BACKOFF_MILLIS))));
+
+        // Outside the instrumented DAO, so every retry shows up in the dao.* timings; the state is 0 closed, 1 half-open, 2 open.
+        metrics.gauge("breaker.state", () -> breaker.getState().ordinal());
+        metrics.gauge("breaker.opened", breaker::getOpened);
+        metrics.gauge("breaker.rejected", breaker::getRejected);
+        metrics.gauge("breaker.retries", resilient::getRetries);
+
+        return resilient;
+    }
+
+    private static CoalescingUserDAO createCoalescingUserDAO(final UserDAO userDAO, final MetricsRegistry metrics) {
+        final CoalescingUserDAO coalescing = new CoalescingUserDAO(userDAO,
+                Long.parseLong(Setting.READ_COALESCING_WINDOW_MICROS.value().orElse(String.valueOf(CoalescingUserDAO.DEFAULT_WINDOW_MICROS))),
+                Integer.parseInt(Setting.READ_COALESCING_MAX_BATCH.value().orElse(String.valueOf(CoalescingUserDAO.DEFAULT_MAX_BATCH_SIZE))));
+
+        // Sits outside the instrumented DAO, so dao.readById and dao.readByIds count the queries that really ran.
+        metrics.gauge("coalescing.requests", coalescing::getRequests);
+        metrics.gauge("coalescing.shared", coalescing::getShared);
+        metrics.gauge("coalescing.queries", coalescing::getQueries);
+        metrics.gauge("coalescing.ratio", coalescing::getCoalescingRatio);
+        metrics.gauge("coalescing.averageBatchSize", coalescing::getAverageBatchSize);
+
+        logger.info("Read coalescing is enabled for reads by ID.");
+
+        return coalescing;
+    }
+
+    private static void serve(final UserService userService, final UserStatsService userStatsService, final List<String> arguments) throws Exception {
+        final int index = arguments.indexOf("--server");
+
+        final String port = index + 1 < arguments.size() && !arguments.get(index + 1).startsWith("--")
+                ? arguments.get(index + 1)
+                : Setting.SERVER_PORT.value().orElse("8080");
+
+        final UserHttpServer server = new UserHttpServer(userService, userStatsService, Integer.parseInt(port),
+                Integer.parseInt(Setting.SERVER_MAX_IN_FLIGHT.value().orElse("256")));
+
+        final CountDownLatch stopped = new CountDownLatch(1);
+
+        // The JVM may halt once the hooks finish, so the hook itself releases the pool instead of relying on main's finally.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            HibernateUtil.shutdown();
+            stopped.countDown();
+        }, "userservice-shutdown"));
+
+        server.start();
+        stopped.await();
+    }
 }
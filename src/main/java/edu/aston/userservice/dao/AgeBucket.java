@@ -0,0 +1,4 @@
+package edu.aston.userservice.dao;
+
+// Bucket 0 holds ages below the histogram range and the last bucket ages above it; their open side is null.
+public record AgeBucket(int bucket, Integer fromAge, Integer toAge, long count) {}
@@ -0,0 +1,123 @@
+package edu.aston.userservice.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Opens after a run of consecutive failures and rejects calls for the open period, so callers fail at once instead
+// of queueing on a database that does not answer. After the period one probe call is let through: its success
+// closes the breaker, its failure opens it for another period. Outcomes are reported with the permit the call was
+// admitted with, so a late answer to a call admitted before the breaker opened can neither close nor reopen it.
+// While closed, admitting a call reads one volatile.
+public class CircuitBreaker {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 5_000L;
+
+    public enum State { CLOSED, HALF_OPEN, OPEN }
+
+    public enum Permit { REJECTED, CALL, PROBE }
+
+    private final String name;
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+
+    public CircuitBreaker(final String name) {
+        this(name, DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS);
+    }
+
+    public CircuitBreaker(final String name, final int failureThreshold, final long openMillis) {
+        if(failureThreshold < 1 || openMillis < 1) {
+            throw new IllegalArgumentException("The failure threshold and the open period must be positive");
+        }
+
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openMillis * 1_000_000L;
+    }
+
+    public State getState() {
+        return this.state;
+    }
+
+    public long getRejected() {
+        return this.rejected.sum();
+    }
+
+    public long getOpened() {
+        return this.opened.sum();
+    }
+
+    public Permit tryAcquire() {
+        final State current = this.state;
+
+        if(current == State.CLOSED) {
+            return Permit.CALL;
+        }
+
+        if(current == State.OPEN && System.nanoTime() - this.openedAt < this.openNanos) {
+            this.rejected.increment();
+            return Permit.REJECTED;
+        }
+
+        if(this.probing.compareAndSet(false, true)) {
+            this.state = State.HALF_OPEN;
+            return Permit.PROBE;
+        }
+
+        this.rejected.increment();
+        return Permit.REJECTED;
+    }
+
+    public void onSuccess(final Permit permit) {
+        if(this.failures.get() != 0) {
+            this.failures.set(0);
+        }
+
+        if(permit == Permit.PROBE) {
+            synchronized(this) {
+                if(this.state == State.HALF_OPEN) {
+                    this.state = State.CLOSED;
+                    this.probing.set(false);
+
+                    logger.info("Circuit breaker {} is closed again.", this.name);
+                }
+            }
+        }
+    }
+
+    public void onFailure(final Permit permit) {
+        // Failures only add up while closed; once open, only the probe decides what happens next.
+        if(permit == Permit.PROBE || (this.state == State.CLOSED && this.failures.incrementAndGet() >= this.failureThreshold)) {
+            open();
+        }
+    }
+
+    private synchronized void open() {
+        if(this.state == State.OPEN) {
+            return;
+        }
+
+        this.openedAt = System.nanoTime();
+        this.state = State.OPEN;
+        this.failures.set(0);
+        this.probing.set(false);
+        this.opened.increment();
+
+        logger.warn("Circuit breaker {} is open for {} ms.", this.name, this.openNanos / 1_000_000L);
+    }
+}
@@ -0,0 +1,7 @@
+package edu.aston.userservice.dao;
+
+public class CircuitOpenException extends UserDAOException {
+    public CircuitOpenException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,306 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+// Lets concurrent reads of the same user ID share one database call and its result. With a batching window,
+// the first read of a window waits that long so reads of other IDs arriving meanwhile go out with it as one
+// IN (...) query. Writes through this DAO detach in-flight reads of the IDs they touch, so a read issued after
+// a write has returned never joins a call that started before it.
+public class CoalescingUserDAO implements UserDAO {
+    public static final long DEFAULT_WINDOW_MICROS = 200L;
+    public static final int DEFAULT_MAX_BATCH_SIZE = UserDAOImpl.DEFAULT_MULTI_LOAD_BATCH_SIZE;
+
+    private static final class Batch {
+        private final Map<Long, CompletableFuture<Optional<User>>> waiting = new LinkedHashMap<>();
+
+        private final Thread leader = Thread.currentThread();
+    }
+
+    private final UserDAO userDAO;
+
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    private final Map<Long, CompletableFuture<Optional<User>>> inFlight = new ConcurrentHashMap<>();
+
+    private final Object batchLock = new Object();
+
+    private Batch open;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder shared = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queriedIds = new LongAdder();
+
+    public CoalescingUserDAO(final UserDAO userDAO) {
+        this(userDAO, 0L, 1);
+    }
+
+    public CoalescingUserDAO(final UserDAO userDAO, final long windowMicros, final int maxBatchSize) {
+        if(windowMicros < 0 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("The batching window must not be negative and the batch size must be positive");
+        }
+
+        this.userDAO = userDAO;
+        this.windowNanos = windowMicros * 1_000L;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getRequests() {
+        return this.requests.sum();
+    }
+
+    public long getShared() {
+        return this.shared.sum();
+    }
+
+    public long getQueries() {
+        return this.queries.sum();
+    }
+
+    // Reads answered per database query; 1.0 means nothing was coalesced.
+    public double getCoalescingRatio() {
+        final long queries = this.queries.sum();
+
+        return queries == 0 ? 0.0 : (double) this.requests.sum() / queries;
+    }
+
+    public double getAverageBatchSize() {
+        final long queries = this.queries.sum();
+
+        return queries == 0 ? 0.0 : (double) this.queriedIds.sum() / queries;
+    }
+
+    @Override
+    public Optional<User> read(final Long id) throws UserDAOException {
+        this.requests.increment();
+
+        final CompletableFuture<Optional<User>> flight = new CompletableFuture<>();
+        final CompletableFuture<Optional<User>> existing = this.inFlight.putIfAbsent(id, flight);
+
+        if(existing != null) {
+            this.shared.increment();
+
+            return await(existing);
+        }
+
+        try {
+            final Optional<User> user = this.windowNanos > 0 ? readBatched(id) : readSingle(id);
+
+            flight.complete(user);
+
+            return user;
+        }
+        catch(UserDAOException | RuntimeException exception) {
+            flight.completeExceptionally(exception);
+            throw exception;
+        }
+        finally {
+            this.inFlight.remove(id, flight);
+        }
+    }
+
+    private Optional<User> readSingle(final Long id) throws UserDAOException {
+        this.queries.increment();
+        this.queriedIds.increment();
+
+        return this.userDAO.read(id);
+    }
+
+    private Optional<User> readBatched(final Long id) throws UserDAOException {
+        final Batch batch;
+        final CompletableFuture<Optional<User>> result;
+
+        synchronized(this.batchLock) {
+            if(this.open == null) {
+                this.open = new Batch();
+            }
+
+            batch = this.open;
+
+            // A detached flight may bring an ID that is already waiting in this batch; both share its slot.
+            result = batch.waiting.computeIfAbsent(id, key -> new CompletableFuture<>());
+
+            if(batch.waiting.size() >= this.maxBatchSize) {
+                this.open = null;
+
+                LockSupport.unpark(batch.leader);
+            }
+        }
+
+        if(batch.leader != Thread.currentThread()) {
+            return await(result);
+        }
+
+        final long deadline = System.nanoTime() + this.windowNanos;
+
+        for(long left = this.windowNanos; left > 0; left = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(this, left);
+
+            synchronized(this.batchLock) {
+                if(this.open != batch) {
+                    break;
+                }
+            }
+        }
+
+        synchronized(this.batchLock) {
+            if(this.open == batch) {
+                this.open = null;
+            }
+        }
+
+        load(batch);
+
+        return await(result);
+    }
+
+    private void load(final Batch batch) {
+        // The batch is closed, so its waiting map no longer changes.
+        this.queries.increment();
+        this.queriedIds.add(batch.waiting.size());
+
+        try {
+            if(batch.waiting.size() == 1) {
+                final Map.Entry<Long, CompletableFuture<Optional<User>>> only = batch.waiting.entrySet().iterator().next();
+
+                only.getValue().complete(this.userDAO.read(only.getKey()));
+                return;
+            }
+
+            final Map<Long, User> found = this.userDAO.read(new ArrayList<>(batch.waiting.keySet()));
+
+            batch.waiting.forEach((id, future) -> future.complete(Optional.ofNullable(found.get(id))));
+        }
+        catch(UserDAOException | RuntimeException exception) {
+            batch.waiting.values().forEach(future -> future.completeExceptionally(exception));
+        }
+    }
+
+    private static Optional<User> await(final CompletableFuture<Optional<User>> future) throws UserDAOException {
+        try {
+            return future.get();
+        }
+        catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new UserDAOException("Interrupted while waiting for a shared user read");
+        }
+        catch(ExecutionException exception) {
+            // Checked failures are wrapped again for every waiter, so each stack trace shows the caller that received it.
+            if(exception.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw new UserDAOException(exception.getCause().getMessage(), exception.getCause());
+        }
+    }
+
+    private void detach(final Long id) {
+        this.inFlight.remove(id);
+    }
+
+    @Override
+    public User create(final User user) throws UserDAOException {
+        return this.userDAO.create(user);
+    }
+
+    @Override
+    public int createAll(final Collection<User> users) throws UserDAOException {
+        return this.userDAO.createAll(users);
+    }
+
+    @Override
+    public int copyAll(final Collection<User> users) throws UserDAOException {
+        return this.userDAO.copyAll(users);
+    }
+
+    @Override
+    public List<User> read() throws UserDAOException {
+        return this.userDAO.read();
+    }
+
+    @Override
+    public List<User> read(final long afterId, final int limit) throws UserDAOException {
+        return this.userDAO.read(afterId, limit);
+    }
+
+    @Override
+    public Stream<User> stream(final int fetchSize) throws UserDAOException {
+        return this.userDAO.stream(fetchSize);
+    }
+
+    @Override
+    public Optional<User> readLatest(final Long id) throws UserDAOException {
+        // Never joins a read in flight, which may have started before the caller's own last write.
+        return this.userDAO.readLatest(id);
+    }
+
+    @Override
+    public Map<Long, User> read(final Collection<Long> ids) throws UserDAOException {
+        return this.userDAO.read(ids);
+    }
+
+    @Override
+    public Optional<User> readByEmail(final String email) throws UserDAOException {
+        return this.userDAO.readByEmail(email);
+    }
+
+    @Override
+    public List<UserView> find(final UserQuery query) throws UserDAOException {
+        return this.userDAO.find(query);
+    }
+
+    @Override
+    public int update(final User user) throws UserDAOException {
+        final int rows = this.userDAO.update(user);
+
+        detach(user.getId());
+
+        return rows;
+    }
+
+    @Override
+    public int patch(final UserPatch patch) throws UserDAOException {
+        final int rows = this.userDAO.patch(patch);
+
+        detach(patch.id());
+
+        return rows;
+    }
+
+    @Override
+    public int delete(final Long id) throws UserDAOException {
+        final int rows = this.userDAO.delete(id);
+
+        detach(id);
+
+        return rows;
+    }
+
+    @Override
+    public int[] applyAll(final List<UserWrite> writes) throws UserDAOException {
+        final int[] rows = this.userDAO.applyAll(writes);
+
+        for(final UserWrite write : writes) {
+            if(write.kind() != UserWrite.Kind.CREATE) {
+                detach(write.id());
+            }
+        }
+
+        return rows;
+    }
+}
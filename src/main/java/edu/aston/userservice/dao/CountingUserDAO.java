@@ -0,0 +1,172 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserView;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Keeps a running total of rows added minus rows removed through this DAO, so the user count can be
+// answered from a baseline plus this delta instead of scanning the table. It has to sit below any layer that
+// buffers writes, so the delta only moves once a write has reached the database.
+public class CountingUserDAO implements UserDAO {
+    private final UserDAO userDAO;
+
+    private final LongAdder change = new LongAdder();
+
+    // Writes share the read lock; taking a baseline takes the write lock so no write is half counted meanwhile.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private interface Write<T> {
+        T run() throws UserDAOException;
+    }
+
+    public CountingUserDAO(final UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
+
+    public long getChange() {
+        return this.change.sum();
+    }
+
+    // Counts the table and returns it minus the current change, with writes through this DAO held back until the count
+    // is done. Otherwise a write committing between the two reads would be counted both in the table and in the change.
+    public long baseline(final UserStatsDAO userStatsDAO) throws UserDAOException {
+        this.lock.writeLock().lock();
+
+        try {
+            return userStatsDAO.countUsers() - this.change.sum();
+        }
+        finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public User create(final User user) throws UserDAOException {
+        return write(() -> {
+            final User created = this.userDAO.create(user);
+
+            this.change.increment();
+
+            return created;
+        });
+    }
+
+    @Override
+    public int createAll(final Collection<User> users) throws UserDAOException {
+        return write(() -> {
+            final int count = this.userDAO.createAll(users);
+
+            this.change.add(count);
+
+            return count;
+        });
+    }
+
+    @Override
+    public int copyAll(final Collection<User> users) throws UserDAOException {
+        return write(() -> {
+            final int count = this.userDAO.copyAll(users);
+
+            this.change.add(count);
+
+            return count;
+        });
+    }
+
+    @Override
+    public int delete(final Long id) throws UserDAOException {
+        return write(() -> {
+            final int rows = this.userDAO.delete(id);
+
+            this.change.add(-rows);
+
+            return rows;
+        });
+    }
+
+    @Override
+    public int[] applyAll(final List<UserWrite> writes) throws UserDAOException {
+        return write(() -> {
+            final int[] rows = this.userDAO.applyAll(writes);
+
+            for(int i = 0; i < rows.length; i++) {
+                switch(writes.get(i).kind()) {
+                    case CREATE -> this.change.add(rows[i]);
+                    case DELETE -> this.change.add(-rows[i]);
+                    case UPDATE -> { }
+                }
+            }
+
+            return rows;
+        });
+    }
+
+    @Override
+    public int update(final User user) throws UserDAOException {
+        return this.userDAO.update(user);
+    }
+
+    @Override
+    public int patch(final UserPatch patch) throws UserDAOException {
+        return this.userDAO.patch(patch);
+    }
+
+    @Override
+    public List<User> read() throws UserDAOException {
+        return this.userDAO.read();
+    }
+
+    @Override
+    public List<User> read(final long afterId, final int limit) throws UserDAOException {
+        return this.userDAO.read(afterId, limit);
+    }
+
+    @Override
+    public Stream<User> stream(final int fetchSize) throws UserDAOException {
+        return this.userDAO.stream(fetchSize);
+    }
+
+    @Override
+    public Optional<User> read(final Long id) throws UserDAOException {
+        return this.userDAO.read(id);
+    }
+
+    @Override
+    public Optional<User> readLatest(final Long id) throws UserDAOException {
+        return this.userDAO.readLatest(id);
+    }
+
+    @Override
+    public Map<Long, User> read(final Collection<Long> ids) throws UserDAOException {
+        return this.userDAO.read(ids);
+    }
+
+    @Override
+    public Optional<User> readByEmail(final String email) throws UserDAOException {
+        return this.userDAO.readByEmail(email);
+    }
+
+    @Override
+    public List<UserView> find(final UserQuery query) throws UserDAOException {
+        return this.userDAO.find(query);
+    }
+
+    private <T> T write(final Write<T> write) throws UserDAOException {
+        this.lock.readLock().lock();
+
+        try {
+            return write.run();
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+}
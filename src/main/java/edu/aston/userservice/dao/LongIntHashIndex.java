@@ -0,0 +1,129 @@
+package edu.aston.userservice.dao;
+
+// Open-addressing map from positive long keys to int values on two flat arrays: no boxing and no entry
+// objects. Linear probing with backward-shift deletion, so removals leave no tombstones behind.
+class LongIntHashIndex {
+    static final int MISSING = -1;
+
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int[] values;
+
+    private int mask;
+    private int size;
+
+    LongIntHashIndex(final int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    int get(final long key) {
+        for(int i = home(key, this.mask); ; i = (i + 1) & this.mask) {
+            final long candidate = this.keys[i];
+
+            if(candidate == key) {
+                return this.values[i];
+            }
+
+            if(candidate == EMPTY) {
+                return MISSING;
+            }
+        }
+    }
+
+    void put(final long key, final int value) {
+        if(key <= 0L) {
+            throw new IllegalArgumentException("Keys must be positive: " + key);
+        }
+
+        // Kept at most half full so that probe sequences stay short.
+        if((this.size + 1) * 2 > this.keys.length) {
+            rehash(this.keys.length * 2);
+        }
+
+        int i = home(key, this.mask);
+
+        while(this.keys[i] != EMPTY && this.keys[i] != key) {
+            i = (i + 1) & this.mask;
+        }
+
+        if(this.keys[i] == EMPTY) {
+            this.size++;
+        }
+
+        this.keys[i] = key;
+        this.values[i] = value;
+    }
+
+    void remove(final long key) {
+        int hole = home(key, this.mask);
+
+        while(this.keys[hole] != key) {
+            if(this.keys[hole] == EMPTY) {
+                return;
+            }
+
+            hole = (hole + 1) & this.mask;
+        }
+
+        // Entries further along the run move back into the hole unless that would put them before their home slot.
+        for(int i = (hole + 1) & this.mask; this.keys[i] != EMPTY; i = (i + 1) & this.mask) {
+            final int home = home(this.keys[i], this.mask);
+
+            if(((i - home) & this.mask) >= ((i - hole) & this.mask)) {
+                this.keys[hole] = this.keys[i];
+                this.values[hole] = this.values[i];
+                hole = i;
+            }
+        }
+
+        this.keys[hole] = EMPTY;
+        this.size--;
+    }
+
+    void clear(final int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    private void rehash(final int capacity) {
+        final long[] oldKeys = this.keys;
+        final int[] oldValues = this.values;
+
+        allocate(capacity);
+
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY) {
+                int slot = home(oldKeys[i], this.mask);
+
+                while(this.keys[slot] != EMPTY) {
+                    slot = (slot + 1) & this.mask;
+                }
+
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+                this.size++;
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+
+    private static int tableSize(final int expectedSize) {
+        return Math.max(16, Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1);
+    }
+
+    private static int home(final long key, final int mask) {
+        final long hash = key * 0x9E3779B97F4A7C15L;
+
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
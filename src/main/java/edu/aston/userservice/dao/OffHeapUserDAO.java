@@ -0,0 +1,952 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserView;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Keeps users outside the Java heap in one direct buffer per column, in ID order: ids, creation times
+// and versions as longs, ages as ints, and names and emails as UTF-8 in a shared append-only arena that is compacted
+// once half of it is garbage. Deleted rows stay as tombstones until half of the slots are dead.
+// Constraint failures and batch boundaries behave as they do in UserDAOImpl against PostgreSQL.
+// Direct ByteBuffers rather than FFM segments: the project targets Java 23, where FFM is final, but the same source
+// still has to build on JDK 21 toolchains, where java.lang.foreign is a preview API.
+public class OffHeapUserDAO implements UserDAO {
+    private static final int INITIAL_SLOTS = 1_024;
+    private static final int INITIAL_ARENA_BYTES = 64 * 1_024;
+    private static final int COMMIT_SIZE = 5_000;
+
+    private static final int NULL_AGE = Integer.MIN_VALUE;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final int DELETED = -1;
+
+    private static final int EMPTY = -1;
+
+    private static final class ConstraintViolation extends RuntimeException {
+        private ConstraintViolation() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ByteBuffer ids;
+    private ByteBuffer ages;
+    private ByteBuffer createdAts;
+    private ByteBuffer versions;
+    private ByteBuffer nameOffsets;
+    private ByteBuffer nameLengths;
+    private ByteBuffer emailOffsets;
+    private ByteBuffer emailLengths;
+
+    private ByteBuffer arena;
+
+    private int arenaUsed;
+    private int arenaGarbage;
+
+    private int slots;
+    private int live;
+
+    private long sequence;
+
+    private final LongIntHashIndex idIndex = new LongIntHashIndex(INITIAL_SLOTS);
+
+    // Email index: open addressing over slot numbers, with the email hash kept beside each entry.
+    private int[] emailSlots;
+    private int[] emailHashes;
+    private int emailMask;
+
+    public OffHeapUserDAO() {
+        this.ids = column(INITIAL_SLOTS * Long.BYTES);
+        this.ages = column(INITIAL_SLOTS * Integer.BYTES);
+        this.createdAts = column(INITIAL_SLOTS * Long.BYTES);
+        this.versions = column(INITIAL_SLOTS * Long.BYTES);
+        this.nameOffsets = column(INITIAL_SLOTS * Integer.BYTES);
+        this.nameLengths = column(INITIAL_SLOTS * Integer.BYTES);
+        this.emailOffsets = column(INITIAL_SLOTS * Integer.BYTES);
+        this.emailLengths = column(INITIAL_SLOTS * Integer.BYTES);
+        this.arena = column(INITIAL_ARENA_BYTES);
+
+        allocateEmailIndex(INITIAL_SLOTS * 2);
+    }
+
+    public int size() {
+        this.lock.readLock().lock();
+
+        try {
+            return this.live;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    public long getOffHeapBytes() {
+        this.lock.readLock().lock();
+
+        try {
+            return (long) this.ids.capacity() + this.ages.capacity() + this.createdAts.capacity() + this.versions.capacity()
+                    + this.nameOffsets.capacity() + this.nameLengths.capacity()
+                    + this.emailOffsets.capacity() + this.emailLengths.capacity() + this.arena.capacity();
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public User create(final User user) throws UserDAOException {
+        this.lock.writeLock().lock();
+
+        try {
+            final long id = insert(user.getName(), user.getEmail(), user.getAge(), user.getCreatedAt());
+
+            return new User(id, user.getName(), user.getEmail(), user.getAge(), user.getCreatedAt(), 0L);
+        }
+        catch(ConstraintViolation exception) {
+            throw new UserDAOException("Session could not add user to the database");
+        }
+        finally {
+            maintain();
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int createAll(final Collection<User> users) throws UserDAOException {
+        int committed = 0;
+
+        this.lock.writeLock().lock();
+
+        try {
+            final Deque<Runnable> undo = new ArrayDeque<>();
+
+            try {
+                // Commits every COMMIT_SIZE rows like the database path, so a failure keeps the chunks before it.
+                for(final User user : users) {
+                    final int slot = this.slots;
+
+                    insert(user.getName(), user.getEmail(), user.getAge(), user.getCreatedAt());
+                    undo.push(() -> erase(slot));
+
+                    if(undo.size() == COMMIT_SIZE) {
+                        committed += undo.size();
+                        undo.clear();
+                    }
+                }
+
+                return committed + undo.size();
+            }
+            catch(ConstraintViolation exception) {
+                rollback(undo);
+                throw new UserDAOException("Session could not add users to the database after " + committed + " committed rows");
+            }
+        }
+        finally {
+            maintain();
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int copyAll(final Collection<User> users) throws UserDAOException {
+        this.lock.writeLock().lock();
+
+        try {
+            final Deque<Runnable> undo = new ArrayDeque<>();
+
+            try {
+                for(final User user : users) {
+                    final int slot = this.slots;
+
+                    insert(user.getName(), user.getEmail(), user.getAge(), user.getCreatedAt());
+                    undo.push(() -> erase(slot));
+                }
+
+                return users.size();
+            }
+            catch(ConstraintViolation exception) {
+                rollback(undo);
+                throw new UserDAOException("Session could not copy users into the database");
+            }
+        }
+        finally {
+            maintain();
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<User> read() {
+        this.lock.readLock().lock();
+
+        try {
+            final List<User> users = new ArrayList<>(this.live);
+
+            for(int slot = 0; slot < this.slots; slot++) {
+                if(isLive(slot)) {
+                    users.add(materialize(slot));
+                }
+            }
+
+            return users;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<User> read(final long afterId, final int limit) {
+        this.lock.readLock().lock();
+
+        try {
+            final List<User> page = new ArrayList<>(Math.min(limit, this.live));
+
+            for(int slot = firstSlotAfter(afterId); slot < this.slots && page.size() < limit; slot++) {
+                if(isLive(slot)) {
+                    page.add(materialize(slot));
+                }
+            }
+
+            return page;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Stream<User> stream(final int fetchSize) {
+        // Pages are taken under short read locks, so writers are not held up while the caller consumes the stream.
+        final Spliterator<User> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private final Deque<User> buffer = new ArrayDeque<>();
+
+            private long afterId;
+            private boolean exhausted;
+
+            @Override
+            public boolean tryAdvance(final Consumer<? super User> action) {
+                if(this.buffer.isEmpty() && !this.exhausted) {
+                    final List<User> page = read(this.afterId, fetchSize);
+
+                    this.exhausted = page.size() < fetchSize;
+
+                    if(!page.isEmpty()) {
+                        this.afterId = page.get(page.size() - 1).getId();
+                        this.buffer.addAll(page);
+                    }
+                }
+
+                final User user = this.buffer.pollFirst();
+
+                if(user == null) {
+                    return false;
+                }
+
+                action.accept(user);
+
+                return true;
+            }
+        };
+
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    @Override
+    public Optional<User> read(final Long id) {
+        this.lock.readLock().lock();
+
+        try {
+            final int slot = this.idIndex.get(id);
+
+            return slot == LongIntHashIndex.MISSING ? Optional.empty() : Optional.of(materialize(slot));
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> readLatest(final Long id) {
+        return read(id);
+    }
+
+    @Override
+    public Map<Long, User> read(final Collection<Long> ids) {
+        this.lock.readLock().lock();
+
+        try {
+            final Map<Long, User> found = new LinkedHashMap<>();
+
+            for(final Long id : new LinkedHashSet<>(ids)) {
+                final int slot = this.idIndex.get(id);
+
+                if(slot != LongIntHashIndex.MISSING) {
+                    found.put(id, materialize(slot));
+                }
+            }
+
+            return found;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<User> readByEmail(final String email) {
+        final byte[] bytes = email.getBytes(StandardCharsets.UTF_8);
+
+        this.lock.readLock().lock();
+
+        try {
+            final int slot = findEmail(bytes, hash(bytes));
+
+            return slot == EMPTY ? Optional.empty() : Optional.of(materialize(slot));
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<UserView> find(final UserQuery query) {
+        final String domain = query.getEmailDomain() == null ? null : "@" + query.getEmailDomain().toLowerCase();
+
+        final long createdFrom = query.getCreatedFrom() == null ? NULL_TIME : toMicros(query.getCreatedFrom());
+        final long createdTo = query.getCreatedTo() == null ? NULL_TIME : toMicros(query.getCreatedTo());
+
+        this.lock.readLock().lock();
+
+        try {
+            final List<Integer> matches = new ArrayList<>();
+
+            // Primitive columns are checked first; strings are only decoded for rows that survive them.
+            for(int slot = 0; slot < this.slots; slot++) {
+                if(!isLive(slot)) {
+                    continue;
+                }
+
+                final int age = this.ages.getInt(slot * Integer.BYTES);
+
+                if((query.getMinAge() != null && (age == NULL_AGE || age < query.getMinAge()))
+                        || (query.getMaxAge() != null && (age == NULL_AGE || age > query.getMaxAge()))) {
+                    continue;
+                }
+
+                final long createdAt = this.createdAts.getLong(slot * Long.BYTES);
+
+                if((createdFrom != NULL_TIME && createdAt < createdFrom) || (createdTo != NULL_TIME && createdAt >= createdTo)) {
+                    continue;
+                }
+
+                if(query.getNamePrefix() != null && !name(slot).startsWith(query.getNamePrefix())) {
+                    continue;
+                }
+
+                if(domain != null && !email(slot).toLowerCase().endsWith(domain)) {
+                    continue;
+                }
+
+                matches.add(slot);
+            }
+
+            Comparator<Integer> order = switch(query.getSortBy()) {
+                case ID -> Comparator.comparingLong(slot -> this.ids.getLong(slot * Long.BYTES));
+                case NAME -> Comparator.comparing(this::name);
+                case EMAIL -> Comparator.comparing(this::email);
+                case AGE -> Comparator.comparingInt(slot -> age(slot) == null ? Integer.MAX_VALUE : age(slot));
+                case CREATED_AT -> Comparator.comparingLong(slot -> this.createdAts.getLong(slot * Long.BYTES));
+            };
+
+            // Slots are in ID order, so the slot number is the ID tie-breaker.
+            order = order.thenComparingInt(slot -> slot);
+
+            matches.sort(query.isDescending() ? order.reversed() : order);
+
+            final List<UserView> views = new ArrayList<>(Math.min(query.getLimit(), matches.size()));
+
+            for(int i = query.getOffset(); i < matches.size() && views.size() < query.getLimit(); i++) {
+                final int slot = matches.get(i);
+
+                views.add(new UserView(
+                        query.getFields().contains(UserQuery.Field.ID) ? this.ids.getLong(slot * Long.BYTES) : null,
+                        query.getFields().contains(UserQuery.Field.NAME) ? name(slot) : null,
+                        query.getFields().contains(UserQuery.Field.EMAIL) ? email(slot) : null,
+                        query.getFields().contains(UserQuery.Field.AGE) ? age(slot) : null,
+                        query.getFields().contains(UserQuery.Field.CREATED_AT) ? createdAt(slot) : null));
+            }
+
+            return views;
+        }
+        finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int update(final User user) throws UserDAOException {
+        this.lock.writeLock().lock();
+
+        try {
+            checkVersion(user);
+
+            return replace(user.getId(), user.getName(), user.getEmail(), user.getAge()) == null ? 0 : 1;
+        }
+        catch(ConstraintViolation exception) {
+            throw new UserDAOException("Session could not update user information in the database");
+        }
+        finally {
+            maintain();
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int patch(final UserPatch patch) throws UserDAOException {
+        this.lock.writeLock().lock();
+
+        try {
+            final int slot = this.idIndex.get(patch.id());
+
+            if(slot == LongIntHashIndex.MISSING) {
+                return 0;
+            }
+
+            replace(patch.id(), patch.name() == null ? name(slot) : patch.name(), patch.email() == null ? email(slot) : patch.email(),
+                    patch.age() == null ? age(slot) : patch.age());
+
+            return 1;
+        }
+        catch(ConstraintViolation exception) {
+            throw new UserDAOException("Session could not patch user information in the database");
+        }
+        finally {
+            maintain();
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int delete(final Long id) {
+        this.lock.writeLock().lock();
+
+        try {
+            final int slot = this.idIndex.get(id);
+
+            if(slot == LongIntHashIndex.MISSING) {
+                return 0;
+            }
+
+            erase(slot);
+
+            return 1;
+        }
+        finally {
+            maintain();
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int[] applyAll(final List<UserWrite> writes) throws UserDAOException {
+        final int[] rows = new int[writes.size()];
+
+        this.lock.writeLock().lock();
+
+        try {
+            final Deque<Runnable> undo = new ArrayDeque<>();
+
+            try {
+                for(int i = 0; i < rows.length; i++) {
+                    final UserWrite write = writes.get(i);
+
+                    switch(write.kind()) {
+                        case CREATE -> {
+                            final int slot = this.slots;
+
+                            insert(write.user().getName(), write.user().getEmail(), write.user().getAge(), write.user().getCreatedAt());
+                            undo.push(() -> erase(slot));
+
+                            rows[i] = 1;
+                        }
+                        case UPDATE -> {
+                            try {
+                                checkVersion(write.user());
+                            }
+                            catch(UserVersionConflictException exception) {
+                                rollback(undo);
+                                throw exception;
+                            }
+
+                            final Runnable restore = replace(write.id(), write.user().getName(), write.user().getEmail(), write.user().getAge());
+
+                            if(restore != null) {
+                                undo.push(restore);
+                                rows[i] = 1;
+                            }
+                        }
+                        case DELETE -> {
+                            final int slot = this.idIndex.get(write.id());
+
+                            if(slot != LongIntHashIndex.MISSING) {
+                                erase(slot);
+                                undo.push(() -> revive(slot));
+
+                                rows[i] = 1;
+                            }
+                        }
+                    }
+                }
+
+                return rows;
+            }
+            catch(ConstraintViolation exception) {
+                rollback(undo);
+                throw new UserDAOException("Session could not apply a group of writes to the database");
+            }
+        }
+        finally {
+            maintain();
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    private long insert(final String name, final String email, final Integer age, final LocalDateTime createdAt) {
+        checkColumns(name, email);
+
+        if(createdAt == null) {
+            throw new ConstraintViolation();
+        }
+
+        final byte[] emailBytes = email.getBytes(StandardCharsets.UTF_8);
+        final int emailHash = hash(emailBytes);
+
+        if(findEmail(emailBytes, emailHash) != EMPTY) {
+            throw new ConstraintViolation();
+        }
+
+        ensureSlots(this.slots + 1);
+
+        final int slot = this.slots++;
+        final long id = ++this.sequence;
+
+        this.ids.putLong(slot * Long.BYTES, id);
+        this.ages.putInt(slot * Integer.BYTES, age == null ? NULL_AGE : age);
+        this.createdAts.putLong(slot * Long.BYTES, toMicros(createdAt));
+        this.versions.putLong(slot * Long.BYTES, 0L);
+
+        writeStrings(slot, name.getBytes(StandardCharsets.UTF_8), emailBytes);
+
+        this.idIndex.put(id, slot);
+        addEmail(slot, emailHash);
+
+        this.live++;
+
+        return id;
+    }
+
+    // Returns an action that restores the previous row, or null when there is no row with this ID.
+    private Runnable replace(final long id, final String name, final String email, final Integer age) {
+        final int slot = this.idIndex.get(id);
+
+        if(slot == LongIntHashIndex.MISSING) {
+            return null;
+        }
+
+        checkColumns(name, email);
+
+        final byte[] emailBytes = email.getBytes(StandardCharsets.UTF_8);
+        final int emailHash = hash(emailBytes);
+
+        final int owner = findEmail(emailBytes, emailHash);
+
+        if(owner != EMPTY && owner != slot) {
+            throw new ConstraintViolation();
+        }
+
+        final int previousAge = this.ages.getInt(slot * Integer.BYTES);
+        final long previousVersion = this.versions.getLong(slot * Long.BYTES);
+        final int previousNameOffset = this.nameOffsets.getInt(slot * Integer.BYTES);
+        final int previousNameLength = this.nameLengths.getInt(slot * Integer.BYTES);
+        final int previousEmailOffset = this.emailOffsets.getInt(slot * Integer.BYTES);
+        final int previousEmailLength = this.emailLengths.getInt(slot * Integer.BYTES);
+
+        removeEmail(slot);
+
+        this.arenaGarbage += previousNameLength + previousEmailLength;
+
+        this.ages.putInt(slot * Integer.BYTES, age == null ? NULL_AGE : age);
+        this.versions.putLong(slot * Long.BYTES, previousVersion + 1);
+        writeStrings(slot, name.getBytes(StandardCharsets.UTF_8), emailBytes);
+
+        addEmail(slot, emailHash);
+
+        return () -> {
+            removeEmail(slot);
+
+            this.arenaGarbage += this.nameLengths.getInt(slot * Integer.BYTES) + this.emailLengths.getInt(slot * Integer.BYTES);
+            this.arenaGarbage -= previousNameLength + previousEmailLength;
+
+            this.ages.putInt(slot * Integer.BYTES, previousAge);
+            this.versions.putLong(slot * Long.BYTES, previousVersion);
+            this.nameOffsets.putInt(slot * Integer.BYTES, previousNameOffset);
+            this.nameLengths.putInt(slot * Integer.BYTES, previousNameLength);
+            this.emailOffsets.putInt(slot * Integer.BYTES, previousEmailOffset);
+            this.emailLengths.putInt(slot * Integer.BYTES, previousEmailLength);
+
+            addEmail(slot, hash(bytes(previousEmailOffset, previousEmailLength)));
+        };
+    }
+
+    private void erase(final int slot) {
+        removeEmail(slot);
+        this.idIndex.remove(this.ids.getLong(slot * Long.BYTES));
+
+        this.arenaGarbage += this.nameLengths.getInt(slot * Integer.BYTES) + this.emailLengths.getInt(slot * Integer.BYTES);
+
+        // The name length is negated rather than cleared, so an undone delete can bring the row back.
+        this.nameLengths.putInt(slot * Integer.BYTES, DELETED - this.nameLengths.getInt(slot * Integer.BYTES));
+
+        this.live--;
+    }
+
+    private void revive(final int slot) {
+        final int nameLength = DELETED - this.nameLengths.getInt(slot * Integer.BYTES);
+
+        this.nameLengths.putInt(slot * Integer.BYTES, nameLength);
+        this.arenaGarbage -= nameLength + this.emailLengths.getInt(slot * Integer.BYTES);
+
+        this.idIndex.put(this.ids.getLong(slot * Long.BYTES), slot);
+        addEmail(slot, hash(bytes(this.emailOffsets.getInt(slot * Integer.BYTES), this.emailLengths.getInt(slot * Integer.BYTES))));
+
+        this.live++;
+    }
+
+    private static void rollback(final Deque<Runnable> undo) {
+        while(!undo.isEmpty()) {
+            undo.pop().run();
+        }
+    }
+
+    private void checkVersion(final User user) throws UserVersionConflictException {
+        if(user.getVersion() == null) {
+            return;
+        }
+
+        final int slot = this.idIndex.get(user.getId());
+
+        if(slot != LongIntHashIndex.MISSING && this.versions.getLong(slot * Long.BYTES) != user.getVersion()) {
+            throw new UserVersionConflictException(user.getId(), user.getVersion());
+        }
+    }
+
+    private static void checkColumns(final String name, final String email) {
+        // Mirrors the NOT NULL and VARCHAR length constraints of the users table.
+        if(name == null || email == null || name.length() > User.MAX_NAME_LENGTH || email.length() > User.MAX_EMAIL_LENGTH) {
+            throw new ConstraintViolation();
+        }
+    }
+
+    private boolean isLive(final int slot) {
+        return this.nameLengths.getInt(slot * Integer.BYTES) >= 0;
+    }
+
+    private int firstSlotAfter(final long afterId) {
+        int low = 0;
+        int high = this.slots;
+
+        while(low < high) {
+            final int middle = (low + high) >>> 1;
+
+            if(this.ids.getLong(middle * Long.BYTES) <= afterId) {
+                low = middle + 1;
+            }
+            else {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    private User materialize(final int slot) {
+        return new User(this.ids.getLong(slot * Long.BYTES), name(slot), email(slot), age(slot), createdAt(slot), this.versions.getLong(slot * Long.BYTES));
+    }
+
+    private String name(final int slot) {
+        return string(this.nameOffsets.getInt(slot * Integer.BYTES), this.nameLengths.getInt(slot * Integer.BYTES));
+    }
+
+    private String email(final int slot) {
+        return string(this.emailOffsets.getInt(slot * Integer.BYTES), this.emailLengths.getInt(slot * Integer.BYTES));
+    }
+
+    private Integer age(final int slot) {
+        final int age = this.ages.getInt(slot * Integer.BYTES);
+
+        return age == NULL_AGE ? null : age;
+    }
+
+    private LocalDateTime createdAt(final int slot) {
+        final long micros = this.createdAts.getLong(slot * Long.BYTES);
+
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private String string(final int offset, final int length) {
+        return new String(bytes(offset, length), StandardCharsets.UTF_8);
+    }
+
+    private byte[] bytes(final int offset, final int length) {
+        final byte[] bytes = new byte[length];
+
+        this.arena.get(offset, bytes);
+
+        return bytes;
+    }
+
+    private static long toMicros(final LocalDateTime time) {
+        // PostgreSQL keeps timestamps to the microsecond and rounds the rest away.
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + (time.getNano() + 500) / 1_000;
+    }
+
+    private void writeStrings(final int slot, final byte[] name, final byte[] email) {
+        ensureArena(this.arenaUsed + name.length + email.length);
+
+        this.nameOffsets.putInt(slot * Integer.BYTES, this.arenaUsed);
+        this.nameLengths.putInt(slot * Integer.BYTES, name.length);
+        this.arena.put(this.arenaUsed, name);
+        this.arenaUsed += name.length;
+
+        this.emailOffsets.putInt(slot * Integer.BYTES, this.arenaUsed);
+        this.emailLengths.putInt(slot * Integer.BYTES, email.length);
+        this.arena.put(this.arenaUsed, email);
+        this.arenaUsed += email.length;
+    }
+
+    private int findEmail(final byte[] email, final int hash) {
+        for(int i = hash & this.emailMask; this.emailSlots[i] != EMPTY; i = (i + 1) & this.emailMask) {
+            final int slot = this.emailSlots[i];
+
+            if(this.emailHashes[i] == hash && this.emailLengths.getInt(slot * Integer.BYTES) == email.length
+                    && this.arena.slice(this.emailOffsets.getInt(slot * Integer.BYTES), email.length).mismatch(ByteBuffer.wrap(email)) == -1) {
+                return slot;
+            }
+        }
+
+        return EMPTY;
+    }
+
+    private void addEmail(final int slot, final int hash) {
+        // The slot already holds its new strings, so a rebuild indexes it along with every other live row.
+        if((this.live + 1) * 2 > this.emailSlots.length) {
+            rebuildEmailIndex(this.emailSlots.length * 2);
+            return;
+        }
+
+        int i = hash & this.emailMask;
+
+        while(this.emailSlots[i] != EMPTY) {
+            i = (i + 1) & this.emailMask;
+        }
+
+        this.emailSlots[i] = slot;
+        this.emailHashes[i] = hash;
+    }
+
+    private void removeEmail(final int slot) {
+        final int length = this.emailLengths.getInt(slot * Integer.BYTES);
+
+        int hole = hash(bytes(this.emailOffsets.getInt(slot * Integer.BYTES), length)) & this.emailMask;
+
+        while(this.emailSlots[hole] != slot) {
+            if(this.emailSlots[hole] == EMPTY) {
+                return;
+            }
+
+            hole = (hole + 1) & this.emailMask;
+        }
+
+        for(int i = (hole + 1) & this.emailMask; this.emailSlots[i] != EMPTY; i = (i + 1) & this.emailMask) {
+            final int home = this.emailHashes[i] & this.emailMask;
+
+            if(((i - home) & this.emailMask) >= ((i - hole) & this.emailMask)) {
+                this.emailSlots[hole] = this.emailSlots[i];
+                this.emailHashes[hole] = this.emailHashes[i];
+                hole = i;
+            }
+        }
+
+        this.emailSlots[hole] = EMPTY;
+    }
+
+    private void rebuildEmailIndex(final int capacity) {
+        allocateEmailIndex(capacity);
+
+        for(int slot = 0; slot < this.slots; slot++) {
+            if(isLive(slot)) {
+                final int hash = hash(bytes(this.emailOffsets.getInt(slot * Integer.BYTES), this.emailLengths.getInt(slot * Integer.BYTES)));
+
+                int i = hash & this.emailMask;
+
+                while(this.emailSlots[i] != EMPTY) {
+                    i = (i + 1) & this.emailMask;
+                }
+
+                this.emailSlots[i] = slot;
+                this.emailHashes[i] = hash;
+            }
+        }
+    }
+
+    private void allocateEmailIndex(final int capacity) {
+        final int size = Integer.highestOneBit(Math.max(capacity, 16) - 1) << 1;
+
+        this.emailSlots = new int[size];
+        this.emailHashes = new int[size];
+        this.emailMask = size - 1;
+
+        Arrays.fill(this.emailSlots, EMPTY);
+    }
+
+    private static int hash(final byte[] bytes) {
+        int hash = 0x811C9DC5;
+
+        for(final byte symbol : bytes) {
+            hash = (hash ^ symbol) * 0x01000193;
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    private void maintain() {
+        // Runs only after a whole write has finished, never between a change and its undo action.
+        if(this.slots > INITIAL_SLOTS && this.live * 2 < this.slots) {
+            compactSlots();
+        }
+
+        if(this.arenaUsed > INITIAL_ARENA_BYTES && this.arenaGarbage * 2 > this.arenaUsed) {
+            compactArena();
+        }
+    }
+
+    private void compactSlots() {
+        int target = 0;
+
+        for(int slot = 0; slot < this.slots; slot++) {
+            if(!isLive(slot)) {
+                continue;
+            }
+
+            if(target != slot) {
+                this.ids.putLong(target * Long.BYTES, this.ids.getLong(slot * Long.BYTES));
+                this.ages.putInt(target * Integer.BYTES, this.ages.getInt(slot * Integer.BYTES));
+                this.createdAts.putLong(target * Long.BYTES, this.createdAts.getLong(slot * Long.BYTES));
+                this.versions.putLong(target * Long.BYTES, this.versions.getLong(slot * Long.BYTES));
+                this.nameOffsets.putInt(target * Integer.BYTES, this.nameOffsets.getInt(slot * Integer.BYTES));
+                this.nameLengths.putInt(target * Integer.BYTES, this.nameLengths.getInt(slot * Integer.BYTES));
+                this.emailOffsets.putInt(target * Integer.BYTES, this.emailOffsets.getInt(slot * Integer.BYTES));
+                this.emailLengths.putInt(target * Integer.BYTES, this.emailLengths.getInt(slot * Integer.BYTES));
+            }
+
+            target++;
+        }
+
+        this.slots = target;
+
+        this.idIndex.clear(this.live);
+
+        for(int slot = 0; slot < this.slots; slot++) {
+            this.idIndex.put(this.ids.getLong(slot * Long.BYTES), slot);
+        }
+
+        rebuildEmailIndex(this.live * 2);
+    }
+
+    private void compactArena() {
+        final ByteBuffer compacted = column(Math.max(INITIAL_ARENA_BYTES, (this.arenaUsed - this.arenaGarbage) * 2));
+
+        int used = 0;
+
+        for(int slot = 0; slot < this.slots; slot++) {
+            if(!isLive(slot)) {
+                continue;
+            }
+
+            used = move(compacted, used, this.nameOffsets, this.nameLengths.getInt(slot * Integer.BYTES), slot);
+            used = move(compacted, used, this.emailOffsets, this.emailLengths.getInt(slot * Integer.BYTES), slot);
+        }
+
+        this.arena = compacted;
+        this.arenaUsed = used;
+        this.arenaGarbage = 0;
+    }
+
+    private int move(final ByteBuffer target, final int position, final ByteBuffer offsets, final int length, final int slot) {
+        target.put(position, this.arena, offsets.getInt(slot * Integer.BYTES), length);
+        offsets.putInt(slot * Integer.BYTES, position);
+
+        return position + length;
+    }
+
+    private void ensureSlots(final int required) {
+        final int capacity = this.ids.capacity() / Long.BYTES;
+
+        if(required <= capacity) {
+            return;
+        }
+
+        final int grown = Math.max(required, capacity * 2);
+
+        this.ids = grow(this.ids, grown * Long.BYTES);
+        this.ages = grow(this.ages, grown * Integer.BYTES);
+        this.createdAts = grow(this.createdAts, grown * Long.BYTES);
+        this.versions = grow(this.versions, grown * Long.BYTES);
+        this.nameOffsets = grow(this.nameOffsets, grown * Integer.BYTES);
+        this.nameLengths = grow(this.nameLengths, grown * Integer.BYTES);
+        this.emailOffsets = grow(this.emailOffsets, grown * Integer.BYTES);
+        this.emailLengths = grow(this.emailLengths, grown * Integer.BYTES);
+    }
+
+    private void ensureArena(final int required) {
+        if(required > this.arena.capacity()) {
+            this.arena = grow(this.arena, (int) Math.min(Integer.MAX_VALUE - 8L, Math.max(required, this.arena.capacity() * 2L)));
+        }
+    }
+
+    private static ByteBuffer grow(final ByteBuffer buffer, final int capacity) {
+        final ByteBuffer grown = column(capacity);
+
+        grown.put(0, buffer, 0, buffer.capacity());
+
+        return grown;
+    }
+
+    private static ByteBuffer column(final int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+}
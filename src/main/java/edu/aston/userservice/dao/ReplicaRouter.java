@@ -0,0 +1,193 @@
+package edu.aston.userservice.dao;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.JDBCConnectionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+public class ReplicaRouter {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    public static final long DEFAULT_STICKY_MILLIS = 1_000L;
+    public static final long RETRY_AFTER_MILLIS = 30_000L;
+
+    public enum Strategy { ROUND_ROBIN, LEAST_LOADED }
+
+    // After a write, reads from the same thread (or from every thread) go to the primary until replication catches up.
+    // THREAD only helps a caller that reads on the thread it wrote from; separate requests on separate threads need GLOBAL.
+    public enum Stickiness { NONE, THREAD, GLOBAL }
+
+    public final class Target implements AutoCloseable {
+        private final Replica replica;
+
+        private Target(final Replica replica) {
+            this.replica = replica;
+        }
+
+        public SessionFactory factory() {
+            return this.replica == null ? primary : this.replica.factory;
+        }
+
+        public boolean isReplica() {
+            return this.replica != null;
+        }
+
+        public void markUnavailable() {
+            if(this.replica != null) {
+                this.replica.unavailableUntil = System.currentTimeMillis() + RETRY_AFTER_MILLIS;
+
+                logger.warn("Read replica {} is unavailable; reads go to the primary for {} ms.", this.replica.index, RETRY_AFTER_MILLIS);
+            }
+        }
+
+        @Override
+        public void close() {
+            if(this.replica != null) {
+                this.replica.inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private static final class Replica {
+        private final int index;
+        private final SessionFactory factory;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private volatile long unavailableUntil;
+
+        private Replica(final int index, final SessionFactory factory) {
+            this.index = index;
+            this.factory = factory;
+        }
+
+        private boolean isAvailable(final long now) {
+            return now >= this.unavailableUntil && this.factory.isOpen();
+        }
+    }
+
+    private final SessionFactory primary;
+    private final Replica[] replicas;
+
+    private final Strategy strategy;
+    private final Stickiness stickiness;
+    private final long stickyMillis;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final ThreadLocal<Long> threadLastWrite = new ThreadLocal<>();
+    private volatile long globalLastWrite;
+
+    private final Target primaryTarget = new Target(null);
+
+    public ReplicaRouter(final SessionFactory primary, final List<SessionFactory> replicas, final Strategy strategy,
+                         final Stickiness stickiness, final long stickyMillis) {
+        this.primary = primary;
+        this.strategy = strategy;
+        this.stickiness = stickiness;
+        this.stickyMillis = stickyMillis;
+
+        this.replicas = new Replica[replicas.size()];
+
+        for(int i = 0; i < this.replicas.length; i++) {
+            this.replicas[i] = new Replica(i, replicas.get(i));
+        }
+    }
+
+    public static ReplicaRouter primaryOnly(final SessionFactory primary) {
+        return new ReplicaRouter(primary, List.of(), Strategy.ROUND_ROBIN, Stickiness.NONE, 0L);
+    }
+
+    public SessionFactory primary() {
+        return this.primary;
+    }
+
+    public Target acquire() {
+        if(this.replicas.length == 0) {
+            return this.primaryTarget;
+        }
+
+        final long now = System.currentTimeMillis();
+
+        if(isSticky(now)) {
+            return this.primaryTarget;
+        }
+
+        final Replica replica = this.strategy == Strategy.LEAST_LOADED ? leastLoaded(now) : roundRobin(now);
+
+        if(replica == null) {
+            return this.primaryTarget;
+        }
+
+        replica.inFlight.incrementAndGet();
+
+        return new Target(replica);
+    }
+
+    public <T> T read(final Function<SessionFactory, T> read) {
+        try(Target target = acquire()) {
+            try {
+                return read.apply(target.factory());
+            }
+            catch(JDBCConnectionException exception) {
+                if(!target.isReplica()) {
+                    throw exception;
+                }
+
+                target.markUnavailable();
+
+                return read.apply(this.primary);
+            }
+        }
+    }
+
+    public void recordWrite() {
+        switch(this.stickiness) {
+            case THREAD -> this.threadLastWrite.set(System.currentTimeMillis());
+            case GLOBAL -> this.globalLastWrite = System.currentTimeMillis();
+            case NONE -> { }
+        }
+    }
+
+    private boolean isSticky(final long now) {
+        return switch(this.stickiness) {
+            case THREAD -> {
+                final Long lastWrite = this.threadLastWrite.get();
+
+                yield lastWrite != null && now - lastWrite < this.stickyMillis;
+            }
+            case GLOBAL -> now - this.globalLastWrite < this.stickyMillis;
+            case NONE -> false;
+        };
+    }
+
+    private Replica roundRobin(final long now) {
+        final int start = Math.floorMod(this.next.getAndIncrement(), this.replicas.length);
+
+        for(int i = 0; i < this.replicas.length; i++) {
+            final Replica replica = this.replicas[(start + i) % this.replicas.length];
+
+            if(replica.isAvailable(now)) {
+                return replica;
+            }
+        }
+
+        return null;
+    }
+
+    private Replica leastLoaded(final long now) {
+        Replica best = null;
+
+        for(final Replica replica : this.replicas) {
+            if(replica.isAvailable(now) && (best == null || replica.inFlight.get() < best.inFlight.get())) {
+                best = replica;
+            }
+        }
+
+        return best;
+    }
+}
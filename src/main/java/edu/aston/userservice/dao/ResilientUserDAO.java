@@ -0,0 +1,255 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserView;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Puts every call behind a circuit breaker and retries reads that failed for a transient reason. Only failures
+// that say the database is unreachable, overloaded or too slow count against the breaker; a constraint violation
+// is an answer and counts as a success. Writes are never retried, since a lost acknowledgement would apply them twice.
+public class ResilientUserDAO implements UserDAO {
+    private static final Logger logger = LoggerFactory.getLogger(ResilientUserDAO.class);
+
+    public static final int DEFAULT_READ_ATTEMPTS = 3;
+    public static final long DEFAULT_BACKOFF_MILLIS = 50L;
+
+    // Serialization failures and deadlocks are retried but do not mean the database is unhealthy.
+    private static final Set<String> RETRYABLE_STATES = Set.of("40001", "40P01");
+    // Cancelled statements (the query timeout), shutdowns and exhausted resources count against the breaker but are
+    // not retried, since running them again right away would only add load.
+    private static final Set<String> UNHEALTHY_STATES = Set.of("57014", "57P01", "57P02", "57P03", "53000", "53300");
+
+    private interface Call<T> {
+        T run() throws UserDAOException;
+    }
+
+    private final UserDAO userDAO;
+
+    private final CircuitBreaker breaker;
+
+    private final int readAttempts;
+
+    private final long backoffMillis;
+
+    private final LongAdder retries = new LongAdder();
+
+    public ResilientUserDAO(final UserDAO userDAO, final CircuitBreaker breaker) {
+        this(userDAO, breaker, DEFAULT_READ_ATTEMPTS, DEFAULT_BACKOFF_MILLIS);
+    }
+
+    public ResilientUserDAO(final UserDAO userDAO, final CircuitBreaker breaker, final int readAttempts, final long backoffMillis) {
+        if(readAttempts < 1 || backoffMillis < 0L) {
+            throw new IllegalArgumentException("The read attempts must be positive and the backoff must not be negative");
+        }
+
+        this.userDAO = userDAO;
+        this.breaker = breaker;
+        this.readAttempts = readAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    public CircuitBreaker getBreaker() {
+        return this.breaker;
+    }
+
+    public long getRetries() {
+        return this.retries.sum();
+    }
+
+    private <T> T guarded(final Call<T> call) throws UserDAOException {
+        final CircuitBreaker.Permit permit = this.breaker.tryAcquire();
+
+        if(permit == CircuitBreaker.Permit.REJECTED) {
+            throw new CircuitOpenException("The database is unavailable; the call was rejected without trying it");
+        }
+
+        try {
+            final T result = call.run();
+
+            this.breaker.onSuccess(permit);
+
+            return result;
+        }
+        catch(UserDAOException | RuntimeException exception) {
+            if(isUnhealthy(exception)) {
+                this.breaker.onFailure(permit);
+            }
+            else {
+                this.breaker.onSuccess(permit);
+            }
+
+            throw exception;
+        }
+    }
+
+    private <T> T retried(final Call<T> call) throws UserDAOException {
+        for(int attempt = 1; ; attempt++) {
+            try {
+                return guarded(call);
+            }
+            catch(CircuitOpenException exception) {
+                throw exception;
+            }
+            catch(UserDAOException exception) {
+                if(attempt >= this.readAttempts || !isRetryable(exception)) {
+                    throw exception;
+                }
+
+                this.retries.increment();
+
+                logger.warn("Retrying a read after a transient failure (attempt {} of {}): {}.", attempt, this.readAttempts, exception.getMessage());
+
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(final int attempt) throws UserDAOException {
+        final long ceiling = this.backoffMillis << Math.min(attempt - 1, 10);
+
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+        }
+        catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new UserDAOException("Interrupted while waiting to retry a read", exception);
+        }
+    }
+
+    private static boolean isUnhealthy(final Throwable exception) {
+        final SQLException cause = sqlCause(exception);
+
+        if(cause == null) {
+            return false;
+        }
+
+        return cause instanceof SQLTransientException || cause instanceof SQLRecoverableException || isConnectionState(cause.getSQLState())
+                || hasState(UNHEALTHY_STATES, cause);
+    }
+
+    private static boolean isRetryable(final Throwable exception) {
+        final SQLException cause = sqlCause(exception);
+
+        if(cause == null) {
+            return false;
+        }
+
+        if(hasState(UNHEALTHY_STATES, cause)) {
+            return false;
+        }
+
+        return cause instanceof SQLTransientException || cause instanceof SQLRecoverableException || isConnectionState(cause.getSQLState())
+                || hasState(RETRYABLE_STATES, cause);
+    }
+
+    private static boolean hasState(final Set<String> states, final SQLException cause) {
+        // Set.of rejects a null lookup, and pool and driver exceptions often carry no state.
+        return cause.getSQLState() != null && states.contains(cause.getSQLState());
+    }
+
+    private static boolean isConnectionState(final String state) {
+        // Class 08: the connection failed or could not be made.
+        return state != null && state.startsWith("08");
+    }
+
+    private static SQLException sqlCause(final Throwable exception) {
+        for(Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if(cause instanceof SQLException sql) {
+                return sql;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public User create(final User user) throws UserDAOException {
+        return guarded(() -> this.userDAO.create(user));
+    }
+
+    @Override
+    public int createAll(final Collection<User> users) throws UserDAOException {
+        return guarded(() -> this.userDAO.createAll(users));
+    }
+
+    @Override
+    public int copyAll(final Collection<User> users) throws UserDAOException {
+        return guarded(() -> this.userDAO.copyAll(users));
+    }
+
+    @Override
+    public List<User> read() throws UserDAOException {
+        return retried(this.userDAO::read);
+    }
+
+    @Override
+    public List<User> read(final long afterId, final int limit) throws UserDAOException {
+        return retried(() -> this.userDAO.read(afterId, limit));
+    }
+
+    @Override
+    public Stream<User> stream(final int fetchSize) throws UserDAOException {
+        // Only opening the stream is guarded; a failure while it is consumed surfaces to the consumer.
+        return retried(() -> this.userDAO.stream(fetchSize));
+    }
+
+    @Override
+    public Optional<User> read(final Long id) throws UserDAOException {
+        return retried(() -> this.userDAO.read(id));
+    }
+
+    @Override
+    public Optional<User> readLatest(final Long id) throws UserDAOException {
+        return retried(() -> this.userDAO.readLatest(id));
+    }
+
+    @Override
+    public Map<Long, User> read(final Collection<Long> ids) throws UserDAOException {
+        return retried(() -> this.userDAO.read(ids));
+    }
+
+    @Override
+    public Optional<User> readByEmail(final String email) throws UserDAOException {
+        return retried(() -> this.userDAO.readByEmail(email));
+    }
+
+    @Override
+    public List<UserView> find(final UserQuery query) throws UserDAOException {
+        return retried(() -> this.userDAO.find(query));
+    }
+
+    @Override
+    public int update(final User user) throws UserDAOException {
+        return guarded(() -> this.userDAO.update(user));
+    }
+
+    @Override
+    public int patch(final UserPatch patch) throws UserDAOException {
+        return guarded(() -> this.userDAO.patch(patch));
+    }
+
+    @Override
+    public int delete(final Long id) throws UserDAOException {
+        return guarded(() -> this.userDAO.delete(id));
+    }
+
+    @Override
+    public int[] applyAll(final List<UserWrite> writes) throws UserDAOException {
+        return guarded(() -> this.userDAO.applyAll(writes));
+    }
+}
@@ -0,0 +1,5 @@
+package edu.aston.userservice.dao;
+
+import java.time.LocalDateTime;
+
+public record SignupCount(LocalDateTime period, long count) {}
@@ -0,0 +1,9 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.model.UserChange;
+
+import java.util.List;
+
+public interface UserChangeDAO {
+    List<UserChange> readAfter(final long sequence, final int limit) throws UserDAOException;
+}
@@ -0,0 +1,54 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.model.UserChange;
+
+import org.hibernate.HibernateException;
+import org.hibernate.SessionException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+public class UserChangeDAOImpl implements UserChangeDAO {
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeDAOImpl.class);
+
+    private final ReplicaRouter router;
+
+    public UserChangeDAOImpl(final SessionFactory sessionFactory) {
+        this(ReplicaRouter.primaryOnly(sessionFactory));
+    }
+
+    public UserChangeDAOImpl(final ReplicaRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public List<UserChange> readAfter(final long sequence, final int limit) throws UserDAOException {
+        try {
+            return this.router.read(factory -> {
+                try(StatelessSession session = factory.openStatelessSession()) {
+                    // Sequence numbers are taken at insert time but become visible at commit, so a transaction still
+                    // running may commit a lower number later. Rows from transactions at or above the oldest one
+                    // still running are held back until it ends, which keeps a consumer's position from skipping them.
+                    return session.createNativeQuery(
+                                    "SELECT * FROM user_changes WHERE id > :sequence " +
+                                    "AND transaction_id < pg_snapshot_xmin(pg_current_snapshot()) ORDER BY id LIMIT :limit", UserChange.class)
+                            .setParameter("sequence", sequence)
+                            .setParameter("limit", limit)
+                            .list();
+                }
+            });
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to read user changes in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to read user changes in the database", exception);
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not read user changes in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not read user changes in the database", exception);
+        }
+    }
+}
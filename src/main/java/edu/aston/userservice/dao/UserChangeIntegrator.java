@@ -0,0 +1,22 @@
+package edu.aston.userservice.dao;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+
+// Registered through META-INF/services, so every SessionFactory built from hibernate.cfg.xml feeds the outbox.
+public class UserChangeIntegrator implements Integrator {
+    @Override
+    public void integrate(final Metadata metadata, final BootstrapContext bootstrapContext, final SessionFactoryImplementor sessionFactory) {
+        final EventListenerRegistry registry = sessionFactory.getServiceRegistry().requireService(EventListenerRegistry.class);
+
+        final UserChangeListener listener = new UserChangeListener();
+
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+        registry.appendListeners(EventType.POST_DELETE, listener);
+    }
+}
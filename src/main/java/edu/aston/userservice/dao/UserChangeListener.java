@@ -0,0 +1,104 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserChange;
+
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Collects the User changes Hibernate flushes in a transaction and writes them to the outbox in one JDBC batch
+// just before that transaction commits. Native statements do not raise these events; UserDAOImpl writes
+// their outbox rows itself.
+final class UserChangeListener implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+    private static final String INSERT_CHANGE = "INSERT INTO user_changes (user_id, operation, name, email, age) VALUES (?, ?, ?, ?, ?)";
+
+    private static final int BATCH_SIZE = 50;
+
+    private record Change(long userId, UserChange.Operation operation, String name, String email, Integer age) {}
+
+    private final Map<SharedSessionContractImplementor, List<Change>> pending = new ConcurrentHashMap<>();
+
+    @Override
+    public void onPostInsert(final PostInsertEvent event) {
+        if(event.getEntity() instanceof User user) {
+            record(event.getSession(), new Change((Long) event.getId(), UserChange.Operation.INSERT, user.getName(), user.getEmail(), user.getAge()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(final PostUpdateEvent event) {
+        if(event.getEntity() instanceof User user) {
+            record(event.getSession(), new Change((Long) event.getId(), UserChange.Operation.UPDATE, user.getName(), user.getEmail(), user.getAge()));
+        }
+    }
+
+    @Override
+    public void onPostDelete(final PostDeleteEvent event) {
+        if(event.getEntity() instanceof User) {
+            record(event.getSession(), new Change((Long) event.getId(), UserChange.Operation.DELETE, null, null, null));
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(final EntityPersister persister) {
+        return false;
+    }
+
+    private void record(final EventSource session, final Change change) {
+        this.pending.computeIfAbsent(session, key -> {
+            // The first change of a transaction registers the write; the cleanup also covers rolled back transactions.
+            session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess) this::write);
+            session.getActionQueue().registerProcess((AfterTransactionCompletionProcess) (success, completed) -> this.pending.remove(completed));
+
+            return new ArrayList<>();
+        }).add(change);
+    }
+
+    private void write(final SessionImplementor session) {
+        final List<Change> changes = this.pending.remove(session);
+
+        if(changes == null) {
+            return;
+        }
+
+        session.doWork(connection -> {
+            try(PreparedStatement statement = connection.prepareStatement(INSERT_CHANGE)) {
+                int batched = 0;
+
+                for(final Change change : changes) {
+                    statement.setLong(1, change.userId());
+                    statement.setString(2, change.operation().name());
+                    statement.setString(3, change.name());
+                    statement.setString(4, change.email());
+                    statement.setObject(5, change.age(), Types.INTEGER);
+                    statement.addBatch();
+
+                    if(++batched % BATCH_SIZE == 0) {
+                        statement.executeBatch();
+                    }
+                }
+
+                if(batched % BATCH_SIZE != 0) {
+                    statement.executeBatch();
+                }
+            }
+        });
+    }
+}
@@ -1,14 +1,29 @@
 package edu.aston.userservice.dao;
 
 import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserView;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface UserDAO {
     User create(final User user) throws UserDAOException;
+    int createAll(final Collection<User> users) throws UserDAOException;
+    int copyAll(final Collection<User> users) throws UserDAOException;
     List<User> read() throws UserDAOException;
+    List<User> read(final long afterId, final int limit) throws UserDAOException;
+    Stream<User> stream(final int fetchSize) throws UserDAOException;
     Optional<User> read(final Long id) throws UserDAOException;
-    void update(final User user) throws UserDAOException;
-    boolean delete(final Long id) throws UserDAOException;
+    // The row as committed on the primary, past any cache, batching or replica; the read of a read-modify-write.
+    Optional<User> readLatest(final Long id) throws UserDAOException;
+    Map<Long, User> read(final Collection<Long> ids) throws UserDAOException;
+    Optional<User> readByEmail(final String email) throws UserDAOException;
+    List<UserView> find(final UserQuery query) throws UserDAOException;
+    int update(final User user) throws UserDAOException;
+    int patch(final UserPatch patch) throws UserDAOException;
+    int delete(final Long id) throws UserDAOException;
+    int[] applyAll(final List<UserWrite> writes) throws UserDAOException;
 }
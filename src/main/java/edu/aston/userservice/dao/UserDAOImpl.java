@@ -1,160 +1,1070 @@
 package edu.aston.userservice.dao;
 
 import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserView;
+import edu.aston.userservice.util.OperationLog;
 
+import jakarta.persistence.Tuple;
+
+import org.hibernate.CacheMode;
 import org.hibernate.HibernateException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionException;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
+import org.hibernate.cache.spi.access.NaturalIdDataAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
 import org.hibernate.query.Query;
+import org.hibernate.query.SelectionQuery;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class UserDAOImpl implements UserDAO {
+public class UserDAOImpl implements UserDAO, AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(UserDAOImpl.class);
 
+    private static final int BATCH_SIZE = 50;
+    private static final int COMMIT_SIZE = 5_000;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    // Native statements bypass the Hibernate events behind the outbox, so each one records its change itself.
+    // Each returns the email the row had before it, one per affected row, so only that key of the email cache is evicted.
+    // A user that carries a version is only written while the row still has it; without one the update is unconditional.
+    private static final String UPDATE_USER = "WITH old AS (SELECT id, email FROM users WHERE id = :id FOR UPDATE), " +
+            "changed AS (UPDATE users u SET name = :name, email = :email, age = :age, version = u.version + 1 FROM old " +
+            "WHERE u.id = old.id AND (CAST(:version AS bigint) IS NULL OR u.version = :version) " +
+            "RETURNING u.id, u.name, u.email, u.age, old.email AS old_email), " +
+            "recorded AS (INSERT INTO user_changes (user_id, operation, name, email, age) SELECT id, 'UPDATE', name, email, age FROM changed) " +
+            "SELECT old_email FROM changed";
+    // The fields are merged in the statement against the locked row, so patches of different fields never overwrite each other.
+    private static final String PATCH_USER = "WITH old AS (SELECT id, email FROM users WHERE id = :id FOR UPDATE), " +
+            "changed AS (UPDATE users u SET name = COALESCE(:name, u.name), email = COALESCE(:email, u.email), " +
+            "age = COALESCE(:age, u.age), version = u.version + 1 FROM old WHERE u.id = old.id " +
+            "RETURNING u.id, u.name, u.email, u.age, old.email AS old_email), " +
+            "recorded AS (INSERT INTO user_changes (user_id, operation, name, email, age) SELECT id, 'UPDATE', name, email, age FROM changed) " +
+            "SELECT old_email FROM changed";
+    private static final String DELETE_USER = "WITH removed AS (DELETE FROM users WHERE id = :id RETURNING id, email), " +
+            "recorded AS (INSERT INTO user_changes (user_id, operation) SELECT id, 'DELETE' FROM removed) " +
+            "SELECT email FROM removed";
+    private static final String RECORD_COPIED_USERS = "INSERT INTO user_changes (user_id, operation, name, email, age) " +
+            "SELECT id, 'INSERT', name, email, age FROM users WHERE id = ANY(?)";
+
+    public static final int DEFAULT_MULTI_LOAD_BATCH_SIZE = 100;
+
+    public static final int DEFAULT_READ_TIMEOUT_SECONDS = 5;
+    public static final int DEFAULT_WRITE_TIMEOUT_SECONDS = 10;
+
+    private static final int PARTITION_SCAN_THREADS = 4;
+    // How long the leaf partitions of users are trusted before they are looked up again.
+    private static final long PARTITION_REFRESH_NANOS = TimeUnit.MINUTES.toNanos(1L);
+
+    private record Partitions(List<String> leaves, long resolvedAtNanos) { }
+
     private final SessionFactory sessionFactory;
 
+    private final ReplicaRouter router;
+
+    private final int multiLoadBatchSize;
+
+    private final int readTimeoutSeconds;
+
+    private final int writeTimeoutSeconds;
+
+    // Shared by every full read, so concurrent scans together never hold more than this many connections. The
+    // threads are only started on the first partitioned read and are daemons, so an unclosed DAO does not keep the JVM up.
+    private final ExecutorService partitionScans = Executors.newFixedThreadPool(PARTITION_SCAN_THREADS,
+            Thread.ofPlatform().name("user-partition-scan-", 0).daemon(true).factory());
+
+    private volatile Partitions partitions;
+
     public UserDAOImpl(final SessionFactory sessionFactory) {
-        this.sessionFactory = sessionFactory;
+        this(sessionFactory, DEFAULT_MULTI_LOAD_BATCH_SIZE);
+    }
+
+    public UserDAOImpl(final SessionFactory sessionFactory, final int multiLoadBatchSize) {
+        this(ReplicaRouter.primaryOnly(sessionFactory), multiLoadBatchSize);
+    }
+
+    public UserDAOImpl(final ReplicaRouter router, final int multiLoadBatchSize) {
+        this(router, multiLoadBatchSize, DEFAULT_READ_TIMEOUT_SECONDS, DEFAULT_WRITE_TIMEOUT_SECONDS);
+    }
+
+    // The timeouts bound the queries of single-row reads, pages, searches, full reads (each partition on its own) and
+    // writes; PostgreSQL cancels a statement that runs past them. Entity loads by ID or email and the bulk paths are bounded by the pool's socket timeout.
+    public UserDAOImpl(final ReplicaRouter router, final int multiLoadBatchSize, final int readTimeoutSeconds, final int writeTimeoutSeconds) {
+        if(readTimeoutSeconds < 0 || writeTimeoutSeconds < 0) {
+            throw new IllegalArgumentException("The query timeouts must not be negative");
+        }
+
+        this.sessionFactory = router.primary();
+        this.router = router;
+        this.multiLoadBatchSize = multiLoadBatchSize;
+        this.readTimeoutSeconds = readTimeoutSeconds;
+        this.writeTimeoutSeconds = writeTimeoutSeconds;
     }
 
     @Override
     public User create(final User user) throws UserDAOException{
-        logger.info("Running session to create a new user...");
+        final Logger log = OperationLog.CREATE.sample(logger, Level.DEBUG);
+
+        log.debug("Running session to create a new user...");
 
-        try (Session session = sessionFactory.openSession()) {
+        try (Session session = openWriteSession()) {
             Transaction transaction = session.beginTransaction();
 
             try {
-                logger.info("Running the creation process for a new user in the database.");
+                log.debug("Running the creation process for a new user in the database.");
 
                 session.persist(user);
                 transaction.commit();
+                this.router.recordWrite();
 
-                logger.info("Stopping the creation process for a new user in the database.");
+                log.debug("Stopping the creation process for a new user in the database.");
 
                 return user;
             } catch (HibernateException exception) {
                 transaction.rollback();
 
                 logger.error("Session could not add user to the database: {}.", exception.getMessage());
-                throw new UserDAOException("Session could not add user to the database");
+                throw new UserDAOException("Session could not add user to the database", exception);
             }
         } catch (SessionException exception) {
             logger.error("Session could not run to add user to the database: {}.", exception.getMessage());
-            throw new UserDAOException("Session could not run to add user to the database");
+            throw new UserDAOException("Session could not run to add user to the database", exception);
         }
     }
 
     @Override
-    public List<User> read() throws UserDAOException {
-        logger.info("Running session to find all users in the database...");
+    public int createAll(final Collection<User> users) throws UserDAOException {
+        logger.debug("Running session to create {} users in batches...", users.size());
+
+        int count = 0;
+        int committed = 0;
+
+        try(Session session = sessionFactory.openSession()) {
+            session.setJdbcBatchSize(BATCH_SIZE);
+            session.setCacheMode(CacheMode.IGNORE);
+
+            Transaction transaction = session.beginTransaction();
+
+            try {
+                for(final User user : users) {
+                    session.persist(user);
+
+                    if(++count % BATCH_SIZE == 0) {
+                        session.flush();
+                        session.clear();
+                    }
+
+                    if(count % COMMIT_SIZE == 0) {
+                        transaction.commit();
+                        committed = count;
+
+                        transaction = session.beginTransaction();
+                    }
+                }
+
+                transaction.commit();
+                this.router.recordWrite();
+
+                logger.debug("Stopping the batch creation process for {} users in the database.", count);
+
+                return count;
+            }
+            catch(HibernateException exception) {
+                transaction.rollback();
+
+                logger.error("Session could not add users to the database after {} committed rows: {}.", committed, exception.getMessage());
+                throw new UserDAOException("Session could not add users to the database after " + committed + " committed rows", exception);
+            }
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to add users to the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to add users to the database", exception);
+        }
+    }
+
+    @Override
+    public int copyAll(final Collection<User> users) throws UserDAOException {
+        logger.debug("Running session to copy {} users into the database...", users.size());
 
         try(Session session = sessionFactory.openSession()) {
-            logger.info("Running the search process for all users in the database.");
+            Transaction transaction = session.beginTransaction();
+
+            try {
+                final int count = session.doReturningWork(connection -> copyUsers(connection, users));
+
+                transaction.commit();
+                this.router.recordWrite();
+
+                logger.debug("Stopping the copy process for {} users in the database.", count);
+
+                return count;
+            }
+            catch(HibernateException exception) {
+                transaction.rollback();
+
+                logger.error("Session could not copy users into the database: {}.", exception.getMessage());
+                throw new UserDAOException("Session could not copy users into the database", exception);
+            }
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to copy users into the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to copy users into the database", exception);
+        }
+    }
+
+    private static int copyUsers(final Connection connection, final Collection<User> users) throws SQLException {
+        final Deque<Long> ids = reserveIds(connection, users.size());
+
+        final CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY users (id, name, email, age, created_at) FROM STDIN WITH (FORMAT csv)");
+
+        final Long[] copied = new Long[users.size()];
+
+        try {
+            final StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE);
+
+            int row = 0;
+
+            for(final User user : users) {
+                copied[row] = ids.removeFirst();
+
+                buffer.append(copied[row++]).append(',');
+                appendCsv(buffer, user.getName()).append(',');
+                appendCsv(buffer, user.getEmail()).append(',');
+                buffer.append(user.getAge() == null ? "" : user.getAge()).append(',');
+                buffer.append(user.getCreatedAt()).append('\n');
+
+                if(buffer.length() >= COPY_BUFFER_SIZE) {
+                    writeToCopy(copyIn, buffer);
+                }
+            }
+
+            writeToCopy(copyIn, buffer);
+
+            final int count = (int) copyIn.endCopy();
+
+            try(PreparedStatement statement = connection.prepareStatement(RECORD_COPIED_USERS)) {
+                statement.setArray(1, connection.createArrayOf("bigint", copied));
+                statement.executeUpdate();
+            }
+
+            return count;
+        }
+        finally {
+            if(copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static Deque<Long> reserveIds(final Connection connection, final int count) throws SQLException {
+        // The pooled optimizer treats every sequence value v as the block (v - allocationSize, v],
+        // so reserving whole blocks here keeps COPY rows clear of ids handed out by Hibernate.
+        final Deque<Long> ids = new ArrayDeque<>(count);
+
+        try(PreparedStatement statement = connection.prepareStatement("SELECT nextval('" + User.ID_SEQUENCE + "') FROM generate_series(1, ?)")) {
+            while(ids.size() < count) {
+                statement.setInt(1, (count - ids.size()) / User.ID_ALLOCATION_SIZE + 1);
+
+                try(ResultSet resultSet = statement.executeQuery()) {
+                    while(resultSet.next()) {
+                        final long high = resultSet.getLong(1);
+
+                        for(long id = Math.max(1L, high - User.ID_ALLOCATION_SIZE + 1); id <= high; id++) {
+                            ids.addLast(id);
+                        }
+                    }
+                }
+            }
+        }
+
+        return ids;
+    }
 
-            Query<User> query = session.createQuery("FROM User", User.class);
-            List<User> list = query.list();
+    private static StringBuilder appendCsv(final StringBuilder buffer, final String value) {
+        buffer.append('"');
 
-            logger.info("Stopping the search process for all users in the database.");
+        for(int i = 0; i < value.length(); i++) {
+            final char symbol = value.charAt(i);
+
+            if(symbol == '"') {
+                buffer.append('"');
+            }
+
+            buffer.append(symbol);
+        }
+
+        return buffer.append('"');
+    }
+
+    private static void writeToCopy(final CopyIn copyIn, final StringBuilder buffer) throws SQLException {
+        final byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    @Override
+    public List<User> read() throws UserDAOException {
+        logger.debug("Running session to find all users in the database...");
+
+        try {
+            // Ordered by ID either way, so the result does not depend on which partition answers first.
+            final List<User> list = this.router.read(factory -> {
+                final List<String> leaves = leafPartitions(factory);
+
+                if(leaves.size() > 1) {
+                    return readPartitions(factory, leaves);
+                }
+
+                try(Session session = factory.openSession()) {
+                    return session.createQuery("FROM User u ORDER BY u.id", User.class)
+                            .setTimeout(this.readTimeoutSeconds)
+                            .list();
+                }
+            });
+
+            logger.debug("Stopping the search process for all users in the database.");
 
             return list;
         }
         catch(SessionException exception) {
             logger.error("Session could not run to read all users in the database: {}.", exception.getMessage());
-            throw new UserDAOException("Session could not run to read all users in the database");
+            throw new UserDAOException("Session could not run to read all users in the database", exception);
         }
         catch(HibernateException exception) {
             logger.error("Session could not read all users in the database: {}.", exception.getMessage());
-            throw new UserDAOException("Session could not read all users in the database");
+            throw new UserDAOException("Session could not read all users in the database", exception);
+        }
+    }
+
+    private List<String> leafPartitions(final SessionFactory factory) {
+        final Partitions current = this.partitions;
+
+        if(current != null && System.nanoTime() - current.resolvedAtNanos() < PARTITION_REFRESH_NANOS) {
+            return current.leaves();
+        }
+
+        // An unpartitioned table is its own single leaf.
+        try(StatelessSession session = factory.openStatelessSession()) {
+            final List<String> leaves = List.copyOf(session.createNativeQuery(
+                            "SELECT CAST(relid AS text) AS partition FROM pg_partition_tree('users') WHERE isleaf", String.class)
+                    .setTimeout(this.readTimeoutSeconds)
+                    .list());
+
+            this.partitions = new Partitions(leaves, System.nanoTime());
+
+            return leaves;
+        }
+    }
+
+    private List<User> readPartitions(final SessionFactory factory, final List<String> leaves) {
+        final List<Future<List<User>>> scans = new ArrayList<>(leaves.size());
+
+        try {
+            for(final String partition : leaves) {
+                scans.add(this.partitionScans.submit(() -> {
+                    try(StatelessSession session = factory.openStatelessSession()) {
+                        session.setCacheMode(CacheMode.IGNORE);
+
+                        return session.createNativeQuery("SELECT * FROM " + partition, User.class)
+                                .setTimeout(this.readTimeoutSeconds)
+                                .list();
+                    }
+                }));
+            }
+
+            final List<User> users = new ArrayList<>();
+
+            for(final Future<List<User>> scan : scans) {
+                users.addAll(scan.get());
+            }
+
+            users.sort(Comparator.comparing(User::getId));
+
+            return users;
+        }
+        catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new HibernateException("Interrupted while scanning the users partitions", exception);
+        }
+        catch(ExecutionException exception) {
+            // A partition may have been detached or dropped since the lookup, so the next read looks them up again.
+            this.partitions = null;
+            throw exception.getCause() instanceof HibernateException cause ? cause : new HibernateException(exception.getCause());
+        }
+        finally {
+            for(final Future<List<User>> scan : scans) {
+                scan.cancel(true);
+            }
+        }
+    }
+
+    @Override
+    public List<User> read(final long afterId, final int limit) throws UserDAOException {
+        final Logger log = OperationLog.READ.sample(logger, Level.DEBUG);
+
+        if(log.isDebugEnabled()) {
+            log.debug("Running session to find a page of users after ID {}...", afterId);
+        }
+
+        try {
+            final List<User> list = this.router.read(factory -> {
+                try(StatelessSession session = factory.openStatelessSession()) {
+                    // Scans must not push the whole table through the second-level cache.
+                    session.setCacheMode(CacheMode.IGNORE);
+
+                    return session.createSelectionQuery("FROM User u WHERE u.id > :afterId ORDER BY u.id", User.class)
+                            .setParameter("afterId", afterId)
+                            .setMaxResults(limit)
+                            .setTimeout(this.readTimeoutSeconds)
+                            .list();
+                }
+            });
+
+            if(log.isDebugEnabled()) {
+                log.debug("Stopping the search process for a page of {} users.", list.size());
+            }
+
+            return list;
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to read a page of users in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to read a page of users in the database", exception);
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not read a page of users in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not read a page of users in the database", exception);
+        }
+    }
+
+    @Override
+    public Stream<User> stream(final int fetchSize) throws UserDAOException {
+        logger.debug("Running stateless session to stream all users in the database...");
+
+        final StatelessSession session;
+
+        try {
+            session = sessionFactory.openStatelessSession();
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not run to stream users in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to stream users in the database", exception);
+        }
+
+        try {
+            session.setCacheMode(CacheMode.IGNORE);
+
+            // PostgreSQL only honours the fetch size (server-side cursor) inside a transaction.
+            final Transaction transaction = session.beginTransaction();
+
+            final ScrollableResults<User> results = session.createSelectionQuery("FROM User u ORDER BY u.id", User.class)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .scroll(ScrollMode.FORWARD_ONLY);
+
+            final Spliterator<User> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                    Spliterator.ORDERED | Spliterator.NONNULL) {
+                @Override
+                public boolean tryAdvance(final Consumer<? super User> action) {
+                    if(!results.next()) {
+                        return false;
+                    }
+
+                    action.accept(results.get());
+
+                    return true;
+                }
+            };
+
+            return StreamSupport.stream(spliterator, false).onClose(() -> {
+                try {
+                    results.close();
+
+                    if(transaction.isActive()) {
+                        transaction.commit();
+                    }
+                }
+                finally {
+                    session.close();
+
+                    logger.debug("Stopping the stream of all users in the database.");
+                }
+            });
+        }
+        catch(HibernateException exception) {
+            session.close();
+
+            logger.error("Session could not stream users in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not stream users in the database", exception);
         }
     }
 
     @Override
     public Optional<User> read(final Long id) throws UserDAOException {
-        logger.info("Running session to find the user by ID...");
+        final Logger log = OperationLog.READ.sample(logger, Level.DEBUG);
 
-        try(Session session = sessionFactory.openSession()) {
-            logger.info("Running the search process for a user by ID.");
+        log.debug("Running session to find the user by ID...");
 
-            final User user = session.find(User.class, id);
+        try {
+            // Replicas run without the second-level cache, so a user already cached on the primary is read there.
+            final User user = this.sessionFactory.getCache().containsEntity(User.class, id)
+                    ? findById(this.sessionFactory, id)
+                    : this.router.read(factory -> findById(factory, id));
 
-            logger.info("Stopping the search process for a user by ID.");
+            log.debug("Stopping the search process for a user by ID.");
 
             return Optional.ofNullable(user);
         }
         catch(SessionException exception) {
             logger.error("Session could not run to read a user by ID in the database: {}.", exception.getMessage());
-            throw new UserDAOException("Session could not run to read a user by ID in the database");
+            throw new UserDAOException("Session could not run to read a user by ID in the database", exception);
         }
     }
 
     @Override
-    public void update(final User user) throws UserDAOException {
-        logger.info("Running session to update user information...");
+    public Optional<User> readLatest(final Long id) throws UserDAOException {
+        final Logger log = OperationLog.READ.sample(logger, Level.DEBUG);
 
-        try(Session session = sessionFactory.openSession()) {
+        log.debug("Running session to find the latest committed user by ID...");
+
+        // The primary without the second-level cache, so the version read is the one an update will be checked against.
+        try(StatelessSession session = this.sessionFactory.openStatelessSession()) {
+            session.setCacheMode(CacheMode.IGNORE);
+
+            final Optional<User> user = session.createSelectionQuery("FROM User u WHERE u.id = :id", User.class)
+                    .setParameter("id", id)
+                    .setTimeout(this.readTimeoutSeconds)
+                    .uniqueResultOptional();
+
+            log.debug("Stopping the search process for the latest committed user by ID.");
+
+            return user;
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to read the latest user by ID in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to read the latest user by ID in the database", exception);
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not read the latest user by ID in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not read the latest user by ID in the database", exception);
+        }
+    }
+
+    @Override
+    public Map<Long, User> read(final Collection<Long> ids) throws UserDAOException {
+        final Logger log = OperationLog.READ.sample(logger, Level.DEBUG);
+
+        if(log.isDebugEnabled()) {
+            log.debug("Running session to find {} users by ID...", ids.size());
+        }
+
+        final List<Long> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+
+        try {
+            final List<User> users = this.router.read(factory -> {
+                try(Session session = factory.openSession()) {
+                    return session.byMultipleIds(User.class)
+                            .withBatchSize(this.multiLoadBatchSize)
+                            .enableOrderedReturn(true)
+                            .multiLoad(uniqueIds);
+                }
+            });
+
+            // Ordered return keeps one slot per requested ID, with null for the ones that do not exist.
+            final Map<Long, User> found = new LinkedHashMap<>();
+
+            for(int i = 0; i < uniqueIds.size(); i++) {
+                if(users.get(i) != null) {
+                    found.put(uniqueIds.get(i), users.get(i));
+                }
+            }
+
+            if(log.isDebugEnabled()) {
+                log.debug("Stopping the search process for users by ID: found {} of {}.", found.size(), uniqueIds.size());
+            }
+
+            return found;
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to read users by ID in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to read users by ID in the database", exception);
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not read users by ID in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not read users by ID in the database", exception);
+        }
+    }
+
+    @Override
+    public Optional<User> readByEmail(final String email) throws UserDAOException {
+        final Logger log = OperationLog.READ.sample(logger, Level.DEBUG);
+
+        log.debug("Running session to find the user by email...");
+
+        try {
+            final User user = this.router.read(factory -> {
+                try(Session session = factory.openSession()) {
+                    return session.bySimpleNaturalId(User.class).load(email);
+                }
+            });
+
+            log.debug("Stopping the search process for a user by email.");
+
+            return Optional.ofNullable(user);
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to read a user by email in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to read a user by email in the database", exception);
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not read a user by email in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not read a user by email in the database", exception);
+        }
+    }
+
+    @Override
+    public List<UserView> find(final UserQuery query) throws UserDAOException {
+        final Logger log = OperationLog.READ.sample(logger, Level.DEBUG);
+
+        log.debug("Running session to find users matching {}...", query);
+
+        final List<UserQuery.Field> fields = new ArrayList<>(query.getFields());
+
+        final StringJoiner select = new StringJoiner(", ", "SELECT ", " FROM User u");
+
+        for(final UserQuery.Field field : fields) {
+            select.add("u." + field.attribute() + " AS " + field.attribute());
+        }
+
+        final StringJoiner where = new StringJoiner(" AND ", " WHERE ", "").setEmptyValue("");
+        final Map<String, Object> parameters = new LinkedHashMap<>();
+
+        if(query.getNamePrefix() != null) {
+            where.add("u.name LIKE :name ESCAPE '!'");
+            parameters.put("name", escapeLike(query.getNamePrefix()) + "%");
+        }
+
+        if(query.getEmailDomain() != null) {
+            // Matches the users_email_domain_idx expression exactly, so the index can serve it.
+            where.add("lower(function('split_part', u.email, '@', 2)) = :domain");
+            parameters.put("domain", query.getEmailDomain().toLowerCase());
+        }
+
+        if(query.getMinAge() != null) {
+            where.add("u.age >= :minAge");
+            parameters.put("minAge", query.getMinAge());
+        }
+
+        if(query.getMaxAge() != null) {
+            where.add("u.age <= :maxAge");
+            parameters.put("maxAge", query.getMaxAge());
+        }
+
+        if(query.getCreatedFrom() != null) {
+            where.add("u.createdAt >= :createdFrom");
+            parameters.put("createdFrom", query.getCreatedFrom());
+        }
+
+        if(query.getCreatedTo() != null) {
+            where.add("u.createdAt < :createdTo");
+            parameters.put("createdTo", query.getCreatedTo());
+        }
+
+        final String direction = query.isDescending() ? " DESC" : " ASC";
+
+        // The ID tie-breaker keeps offset pages stable when the sort column has duplicates.
+        final String orderBy = " ORDER BY u." + query.getSortBy().attribute() + direction
+                + (query.getSortBy() == UserQuery.Field.ID ? "" : ", u.id" + direction);
+
+        final String hql = select + where.toString() + orderBy;
+
+        try {
+            final List<Tuple> tuples = this.router.read(factory -> {
+                try(StatelessSession session = factory.openStatelessSession()) {
+                    session.setCacheMode(CacheMode.IGNORE);
+
+                    final SelectionQuery<Tuple> selection = session.createSelectionQuery(hql, Tuple.class);
+
+                    parameters.forEach(selection::setParameter);
+
+                    return selection.setFirstResult(query.getOffset())
+                            .setMaxResults(query.getLimit())
+                            .setTimeout(this.readTimeoutSeconds)
+                            .list();
+                }
+            });
+
+            final List<UserView> views = new ArrayList<>(tuples.size());
+
+            for(final Tuple tuple : tuples) {
+                views.add(toView(tuple, query.getFields()));
+            }
+
+            if(log.isDebugEnabled()) {
+                log.debug("Stopping the search process for a query: {} users found.", views.size());
+            }
+
+            return views;
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to query users in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to query users in the database", exception);
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not query users in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not query users in the database", exception);
+        }
+    }
+
+    private static UserView toView(final Tuple tuple, final Set<UserQuery.Field> fields) {
+        return new UserView(
+                fields.contains(UserQuery.Field.ID) ? tuple.get(UserQuery.Field.ID.attribute(), Long.class) : null,
+                fields.contains(UserQuery.Field.NAME) ? tuple.get(UserQuery.Field.NAME.attribute(), String.class) : null,
+                fields.contains(UserQuery.Field.EMAIL) ? tuple.get(UserQuery.Field.EMAIL.attribute(), String.class) : null,
+                fields.contains(UserQuery.Field.AGE) ? tuple.get(UserQuery.Field.AGE.attribute(), Integer.class) : null,
+                fields.contains(UserQuery.Field.CREATED_AT) ? tuple.get(UserQuery.Field.CREATED_AT.attribute(), LocalDateTime.class) : null);
+    }
+
+    private static String escapeLike(final String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    @Override
+    public int update(final User user) throws UserDAOException {
+        final Logger log = OperationLog.UPDATE.sample(logger, Level.DEBUG);
+
+        log.debug("Running session to update user information...");
+
+        try(Session session = openWriteSession()) {
             Transaction transaction = session.beginTransaction();
 
             try {
-                logger.info("Running the update process for user in the database.");
+                log.debug("Running the update process for user in the database.");
+
+                evictCachedUser(user.getId());
+
+                final List<String> oldEmails = updateVersioned(session, user);
 
-                session.merge(user);
                 transaction.commit();
+                this.router.recordWrite();
+
+                evictCachedUser(session, user.getId(), oldEmails);
+
+                if(log.isDebugEnabled()) {
+                    log.debug("Stopping the update process for user in the database: {} row(s) updated.", oldEmails.size());
+                }
 
-                logger.info("Stopping the update process for user in the database.");
+                return oldEmails.size();
+            }
+            catch(UserVersionConflictException exception) {
+                transaction.rollback();
+
+                logger.info("Session did not update user information: {}.", exception.getMessage());
+                throw exception;
             }
             catch(HibernateException exception) {
                 transaction.rollback();
 
                 logger.error("Session could not update user information in the database: {}.", exception.getMessage());
-                throw new UserDAOException("Session could not update user information in the database");
+                throw new UserDAOException("Session could not update user information in the database", exception);
             }
         }
         catch(SessionException exception) {
             logger.error("Session could not run to update user information in the database: {}.", exception.getMessage());
-            throw new UserDAOException("Session could not run to update user information in the database");
+            throw new UserDAOException("Session could not run to update user information in the database", exception);
         }
     }
 
     @Override
-    public boolean delete(final Long id) throws UserDAOException {
-        logger.info("Running session to delete a user from the database...");
+    public int patch(final UserPatch patch) throws UserDAOException {
+        final Logger log = OperationLog.UPDATE.sample(logger, Level.DEBUG);
 
-        try(Session session = sessionFactory.openSession()) {
+        log.debug("Running session to patch user information...");
+
+        try(Session session = openWriteSession()) {
             Transaction transaction = session.beginTransaction();
 
-            try{
-                logger.info("Running the delete process for a user in the database.");
+            try {
+                evictCachedUser(patch.id());
 
-                final User user = session.find(User.class, id);
+                final List<String> oldEmails = mutation(session, PATCH_USER)
+                        .setParameter("name", patch.name(), String.class)
+                        .setParameter("email", patch.email(), String.class)
+                        .setParameter("age", patch.age(), Integer.class)
+                        .setParameter("id", patch.id())
+                        .getResultList();
 
-                if(user != null) {
-                    session.remove(user);
-                    transaction.commit();
+                transaction.commit();
+                this.router.recordWrite();
+
+                evictCachedUser(session, patch.id(), oldEmails);
+
+                if(log.isDebugEnabled()) {
+                    log.debug("Stopping the patch process for user in the database: {} row(s) updated.", oldEmails.size());
                 }
 
-                logger.info("Running the delete process for a user in the database.");
+                return oldEmails.size();
+            }
+            catch(HibernateException exception) {
+                transaction.rollback();
 
-                return user != null;
+                logger.error("Session could not patch user information in the database: {}.", exception.getMessage());
+                throw new UserDAOException("Session could not patch user information in the database", exception);
+            }
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to patch user information in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to patch user information in the database", exception);
+        }
+    }
+
+    private List<String> updateVersioned(final Session session, final User user) throws UserVersionConflictException {
+        final List<String> oldEmails = mutation(session, UPDATE_USER)
+                .setParameter("name", user.getName())
+                .setParameter("email", user.getEmail())
+                .setParameter("age", user.getAge())
+                .setParameter("version", user.getVersion(), Long.class)
+                .setParameter("id", user.getId())
+                .getResultList();
+
+        // No row either means the user is gone or that another writer has moved it past the expected version.
+        if(oldEmails.isEmpty() && user.getVersion() != null && session.createNativeQuery("SELECT count(*) FROM users WHERE id = :id", Long.class)
+                .setParameter("id", user.getId())
+                .getSingleResult() > 0) {
+            throw new UserVersionConflictException(user.getId(), user.getVersion());
+        }
+
+        return oldEmails;
+    }
+
+    @Override
+    public int delete(final Long id) throws UserDAOException {
+        final Logger log = OperationLog.DELETE.sample(logger, Level.DEBUG);
+
+        log.debug("Running session to delete a user from the database...");
+
+        try(Session session = openWriteSession()) {
+            Transaction transaction = session.beginTransaction();
+
+            try{
+                log.debug("Running the delete process for a user in the database.");
+
+                evictCachedUser(id);
+
+                final List<String> oldEmails = mutation(session, DELETE_USER)
+                        .setParameter("id", id)
+                        .getResultList();
+
+                transaction.commit();
+                this.router.recordWrite();
+
+                evictCachedUser(session, id, oldEmails);
+
+                if(log.isDebugEnabled()) {
+                    log.debug("Stopping the delete process for a user in the database: {} row(s) deleted.", oldEmails.size());
+                }
+
+                return oldEmails.size();
             }
             catch(HibernateException exception) {
                 transaction.rollback();
 
                 logger.info("Session could not delete user from the database: {}.", exception.getMessage());
-                throw new UserDAOException("Session could not delete user from the database");
+                throw new UserDAOException("Session could not delete user from the database", exception);
             }
 
         }
         catch(SessionException exception) {
             logger.error("Session could not run to delete user from the database: {}.", exception.getMessage());
-            throw new UserDAOException("Session could not run to delete user from the database");
+            throw new UserDAOException("Session could not run to delete user from the database", exception);
+        }
+    }
+
+    @Override
+    public int[] applyAll(final List<UserWrite> writes) throws UserDAOException {
+        logger.debug("Running session to apply {} writes in one transaction...", writes.size());
+
+        final int[] rows = new int[writes.size()];
+        final List<Long> touchedIds = new ArrayList<>();
+        final List<String> oldEmails = new ArrayList<>();
+
+        try(Session session = openWriteSession()) {
+            session.setJdbcBatchSize(BATCH_SIZE);
+            session.setCacheMode(CacheMode.IGNORE);
+
+            Transaction transaction = session.beginTransaction();
+
+            try {
+                int pending = 0;
+
+                for(int i = 0; i < rows.length; i++) {
+                    final UserWrite write = writes.get(i);
+
+                    if(write.kind() == UserWrite.Kind.CREATE) {
+                        session.persist(write.user());
+                        rows[i] = 1;
+
+                        if(++pending % BATCH_SIZE == 0) {
+                            session.flush();
+                            session.clear();
+                        }
+
+                        continue;
+                    }
+
+                    // Queued inserts go out first to keep the statements in the order they were given.
+                    if(pending > 0) {
+                        session.flush();
+                        session.clear();
+                        pending = 0;
+                    }
+
+                    evictCachedUser(write.id());
+                    touchedIds.add(write.id());
+
+                    final List<String> written = write.kind() == UserWrite.Kind.UPDATE
+                            ? updateVersioned(session, write.user())
+                            : mutation(session, DELETE_USER).setParameter("id", write.id()).getResultList();
+
+                    rows[i] = written.size();
+                    oldEmails.addAll(written);
+                }
+
+                transaction.commit();
+                this.router.recordWrite();
+
+                for(final Long id : touchedIds) {
+                    evictCachedUser(id);
+                }
+
+                evictCachedEmails(session, oldEmails);
+
+                logger.debug("Stopping the grouped write process for {} writes in the database.", rows.length);
+
+                return rows;
+            }
+            catch(UserVersionConflictException exception) {
+                transaction.rollback();
+
+                logger.info("Session did not apply a group of writes: {}.", exception.getMessage());
+                throw exception;
+            }
+            catch(HibernateException exception) {
+                transaction.rollback();
+
+                logger.error("Session could not apply a group of writes to the database: {}.", exception.getMessage());
+                throw new UserDAOException("Session could not apply a group of writes to the database", exception);
+            }
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to apply a group of writes to the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to apply a group of writes to the database", exception);
+        }
+    }
+
+    private static User findById(final SessionFactory factory, final Long id) {
+        try(Session session = factory.openSession()) {
+            return session.find(User.class, id);
+        }
+    }
+
+    private Session openWriteSession() {
+        final Session session = this.sessionFactory.openSession();
+
+        // Hibernate applies the hint to every query of the session, which covers the native mutations.
+        session.setProperty(SpecHints.HINT_SPEC_QUERY_TIMEOUT, this.writeTimeoutSeconds * 1_000);
+
+        return session;
+    }
+
+    private static NativeQuery<String> mutation(final Session session, final String sql) {
+        // The statements end in a SELECT of the old emails, so Hibernate runs them as queries: unlike executeUpdate(),
+        // that never drops whole cache regions, and the affected user is evicted by hand once it has committed.
+        return session.createNativeQuery(sql, String.class);
+    }
+
+    private void evictCachedUser(final Long id) {
+        // Called both before the statement and after the commit, so a concurrent load that read the old row
+        // can only re-cache it inside that short window.
+        this.sessionFactory.getCache().evictEntityData(User.class, id);
+    }
+
+    private void evictCachedUser(final Session session, final Long id, final Collection<String> oldEmails) {
+        evictCachedUser(id);
+        evictCachedEmails(session, oldEmails);
+    }
+
+    private void evictCachedEmails(final Session session, final Collection<String> oldEmails) {
+        final EntityPersister persister = this.sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel()
+                .getEntityDescriptor(User.class);
+
+        final NaturalIdDataAccess emailCache = persister.getNaturalIdCacheAccessStrategy();
+
+        if(emailCache == null) {
+            return;
+        }
+
+        final SharedSessionContractImplementor implementor = session.unwrap(SharedSessionContractImplementor.class);
+
+        // Only the key of the email the row had before is stale; a new email cannot be cached yet.
+        for(final String email : oldEmails) {
+            emailCache.evict(emailCache.generateCacheKey(email, persister, implementor));
+        }
+    }
+
+    @Override
+    public void close() {
+        this.partitionScans.shutdownNow();
+
+        try {
+            this.partitionScans.awaitTermination(this.readTimeoutSeconds + 1L, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
         }
     }
 }
@@ -0,0 +1,328 @@
+package edu.aston.userservice.dao;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionException;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.jdbc.ReturningWork;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// Moves an existing users table to a layout hash-partitioned on id, optionally under monthly or yearly ranges of
+// created_at so that old ranges can be detached for archival. The application keeps running while it works:
+//
+// 1. users_partitioned is created next to users, and a trigger on users mirrors every write into it.
+// 2. Existing rows are copied in short id-ordered batches. Each batch takes share locks on its source rows, so a row
+//    deleted during the copy cannot come back.
+// 3. Row counts are compared in one snapshot, then a single short transaction swaps the table and index names.
+//    The old table is kept as users_unpartitioned until it is dropped by hand.
+//
+// A unique index on a partitioned table must contain the partition key, so unique emails are enforced by triggers
+// that maintain the user_emails table. Restarting after a failure is safe: already copied rows are skipped.
+public class UserPartitionMigration {
+    private static final Logger logger = LoggerFactory.getLogger(UserPartitionMigration.class);
+
+    public enum RangeInterval { NONE, MONTH, YEAR }
+
+    public static final int DEFAULT_HASH_PARTITIONS = 16;
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+
+    private static final int RANGES_AHEAD = 3;
+
+    private static final String TARGET = "users_partitioned";
+    private static final String COLUMNS = "id, name, email, age, created_at, version";
+
+    // Index suffixes and definitions, shared by the old and the new table so the names can be swapped at cutover.
+    private static final List<String[]> INDEXES = List.of(
+            new String[] {"name_idx", "(name)"},
+            new String[] {"age_idx", "(age)"},
+            new String[] {"created_at_idx", "(created_at)"},
+            new String[] {"name_pattern_idx", "(name text_pattern_ops)"},
+            new String[] {"email_idx", "(email)"},
+            new String[] {"email_domain_idx", "(lower(split_part(email, '@', 2)))"});
+
+    private final SessionFactory sessionFactory;
+
+    private final int hashPartitions;
+
+    private final RangeInterval rangeInterval;
+
+    private final int batchSize;
+
+    private final long pauseMillis;
+
+    public UserPartitionMigration(final SessionFactory sessionFactory, final int hashPartitions, final RangeInterval rangeInterval,
+                                  final int batchSize, final long pauseMillis) {
+        if(hashPartitions < 1 || batchSize < 1 || pauseMillis < 0) {
+            throw new IllegalArgumentException("The partition count and the batch size must be positive and the pause must not be negative");
+        }
+
+        this.sessionFactory = sessionFactory;
+        this.hashPartitions = hashPartitions;
+        this.rangeInterval = rangeInterval;
+        this.batchSize = batchSize;
+        this.pauseMillis = pauseMillis;
+    }
+
+    public long run() throws UserDAOException {
+        if(inTransaction("check the users table", connection -> "p".equals(queryString(connection, "SELECT relkind::text FROM pg_class WHERE oid = 'users'::regclass")))) {
+            logger.info("The users table is already partitioned.");
+            return 0L;
+        }
+
+        if(inTransaction("check for an earlier migration", connection -> queryString(connection, "SELECT to_regclass('" + TARGET + "')::text") == null)) {
+            inTransaction("create the partitioned users table", connection -> {
+                createTarget(connection);
+                return null;
+            });
+
+            logger.info("Created {} with {} hash partitions and {} range partitioning; writes to users are now mirrored.",
+                    TARGET, this.hashPartitions, this.rangeInterval);
+        }
+        else {
+            logger.info("Resuming the migration into the existing {}.", TARGET);
+        }
+
+        final long copied = backfill();
+
+        final long[] counts = inTransaction("compare the row counts", connection -> {
+            try(Statement statement = connection.createStatement();
+                ResultSet resultSet = statement.executeQuery("SELECT (SELECT count(*) FROM users), (SELECT count(*) FROM " + TARGET + ")")) {
+                resultSet.next();
+
+                return new long[] {resultSet.getLong(1), resultSet.getLong(2)};
+            }
+        });
+
+        if(counts[0] != counts[1]) {
+            logger.error("The partitioned table has {} rows where users has {}; the cutover is skipped.", counts[1], counts[0]);
+            throw new UserDAOException("The partitioned users table does not match the original; the cutover is skipped");
+        }
+
+        inTransaction("swap in the partitioned users table", connection -> {
+            cutover(connection);
+            return null;
+        });
+
+        inTransaction("analyze the partitioned users table", connection -> {
+            execute(connection, "ANALYZE users");
+            return null;
+        });
+
+        logger.info("The users table is partitioned: {} rows copied; the old table remains as users_unpartitioned.", copied);
+
+        return copied;
+    }
+
+    private void createTarget(final Connection connection) throws SQLException {
+        final boolean ranged = this.rangeInterval != RangeInterval.NONE;
+
+        // Unique constraints on a partitioned table must include every partition key.
+        execute(connection, "CREATE TABLE " + TARGET + " (id bigint NOT NULL, name varchar(25) NOT NULL, email varchar(50) NOT NULL, " +
+                "age integer, created_at timestamp(6) NOT NULL, version bigint DEFAULT 0 NOT NULL, CONSTRAINT " + TARGET + "_pkey PRIMARY KEY (id" + (ranged ? ", created_at" : "") + ")) " +
+                (ranged ? "PARTITION BY RANGE (created_at)" : "PARTITION BY HASH (id)"));
+
+        if(ranged) {
+            createRanges(connection);
+        }
+        else {
+            createHashPartitions(connection, TARGET, "users");
+        }
+
+        for(final String[] index : INDEXES) {
+            execute(connection, "CREATE INDEX " + TARGET + "_" + index[0] + " ON " + TARGET + " " + index[1]);
+        }
+
+        execute(connection, "CREATE TABLE IF NOT EXISTS user_emails (email varchar(50) PRIMARY KEY, user_id bigint NOT NULL)");
+
+        execute(connection, "CREATE OR REPLACE FUNCTION users_email_guard() RETURNS trigger LANGUAGE plpgsql AS $$ BEGIN " +
+                "IF TG_OP = 'DELETE' OR (TG_OP = 'UPDATE' AND NEW.email IS DISTINCT FROM OLD.email) THEN " +
+                "DELETE FROM user_emails WHERE email = OLD.email; END IF; " +
+                "IF TG_OP = 'INSERT' OR (TG_OP = 'UPDATE' AND NEW.email IS DISTINCT FROM OLD.email) THEN " +
+                "INSERT INTO user_emails (email, user_id) VALUES (NEW.email, NEW.id); END IF; " +
+                "RETURN NULL; END $$");
+
+        execute(connection, "CREATE TRIGGER users_email_guard AFTER INSERT OR UPDATE OR DELETE ON " + TARGET +
+                " FOR EACH ROW EXECUTE FUNCTION users_email_guard()");
+
+        final String key = ranged ? "id = OLD.id AND created_at = OLD.created_at" : "id = OLD.id";
+
+        execute(connection, "CREATE OR REPLACE FUNCTION users_partition_sync() RETURNS trigger LANGUAGE plpgsql AS $$ BEGIN " +
+                "IF TG_OP = 'DELETE' THEN DELETE FROM " + TARGET + " WHERE " + key + "; RETURN NULL; END IF; " +
+                "INSERT INTO " + TARGET + " (" + COLUMNS + ") VALUES (NEW.id, NEW.name, NEW.email, NEW.age, NEW.created_at, NEW.version) " +
+                "ON CONFLICT (id" + (ranged ? ", created_at" : "") + ") DO UPDATE SET name = EXCLUDED.name, email = EXCLUDED.email, age = EXCLUDED.age, " +
+                "version = EXCLUDED.version; " +
+                "RETURN NULL; END $$");
+
+        execute(connection, "CREATE TRIGGER users_partition_sync AFTER INSERT OR UPDATE OR DELETE ON users " +
+                "FOR EACH ROW EXECUTE FUNCTION users_partition_sync()");
+    }
+
+    private void createRanges(final Connection connection) throws SQLException {
+        final String unit = this.rangeInterval.name().toLowerCase();
+
+        final Timestamp oldest = queryTimestamp(connection, "SELECT date_trunc('" + unit + "', min(created_at)) FROM users");
+
+        // An empty table starts at the current range, which for yearly ranges begins on the first of January.
+        final LocalDate today = LocalDate.now();
+        final LocalDate current = this.rangeInterval == RangeInterval.MONTH ? today.withDayOfMonth(1) : today.withDayOfYear(1);
+        final LocalDate last = this.rangeInterval == RangeInterval.MONTH ? current.plusMonths(RANGES_AHEAD) : current.plusYears(RANGES_AHEAD);
+
+        final DateTimeFormatter names = DateTimeFormatter.ofPattern(this.rangeInterval == RangeInterval.MONTH ? "yyyy_MM" : "yyyy");
+
+        for(LocalDate from = oldest == null ? current : oldest.toLocalDateTime().toLocalDate(); from.isBefore(last); ) {
+            final LocalDate to = this.rangeInterval == RangeInterval.MONTH ? from.plusMonths(1) : from.plusYears(1);
+            final String range = "users_" + from.format(names);
+
+            execute(connection, "CREATE TABLE " + range + " PARTITION OF " + TARGET +
+                    " FOR VALUES FROM ('" + from + "') TO ('" + to + "') PARTITION BY HASH (id)");
+            createHashPartitions(connection, range, range);
+
+            from = to;
+        }
+
+        // Rows outside the prepared ranges land here until a range is added for them.
+        execute(connection, "CREATE TABLE users_default PARTITION OF " + TARGET + " DEFAULT PARTITION BY HASH (id)");
+        createHashPartitions(connection, "users_default", "users_default");
+    }
+
+    private void createHashPartitions(final Connection connection, final String parent, final String prefix) throws SQLException {
+        for(int remainder = 0; remainder < this.hashPartitions; remainder++) {
+            execute(connection, "CREATE TABLE " + prefix + "_p" + remainder + " PARTITION OF " + parent +
+                    " FOR VALUES WITH (MODULUS " + this.hashPartitions + ", REMAINDER " + remainder + ")");
+        }
+    }
+
+    private long backfill() throws UserDAOException {
+        long copied = 0L;
+        long afterId = Long.MIN_VALUE;
+
+        while(true) {
+            final long from = afterId;
+
+            final long[] batch = inTransaction("copy a batch of users", connection -> {
+                final Long upTo;
+
+                try(PreparedStatement statement = connection.prepareStatement("SELECT max(id) FROM (SELECT id FROM users WHERE id > ? ORDER BY id LIMIT ?) batch")) {
+                    statement.setLong(1, from);
+                    statement.setInt(2, this.batchSize);
+
+                    try(ResultSet resultSet = statement.executeQuery()) {
+                        resultSet.next();
+                        upTo = resultSet.getObject(1, Long.class);
+                    }
+                }
+
+                if(upTo == null) {
+                    return null;
+                }
+
+                // Rows the trigger already mirrored are newer than the ones read here, so they are left as they are.
+                try(PreparedStatement statement = connection.prepareStatement("WITH batch AS (SELECT " + COLUMNS + " FROM users " +
+                        "WHERE id > ? AND id <= ? FOR SHARE) INSERT INTO " + TARGET + " (" + COLUMNS + ") SELECT " + COLUMNS + " FROM batch " +
+                        "ON CONFLICT DO NOTHING")) {
+                    statement.setLong(1, from);
+                    statement.setLong(2, upTo);
+
+                    return new long[] {upTo, statement.executeUpdate()};
+                }
+            });
+
+            if(batch == null) {
+                return copied;
+            }
+
+            afterId = batch[0];
+            copied += batch[1];
+
+            logger.debug("Copied users up to ID {} into {} ({} rows so far).", afterId, TARGET, copied);
+
+            if(this.pauseMillis > 0) {
+                try {
+                    Thread.sleep(this.pauseMillis);
+                }
+                catch(InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new UserDAOException("The users migration was interrupted after " + copied + " copied rows");
+                }
+            }
+        }
+    }
+
+    private static void cutover(final Connection connection) throws SQLException {
+        // Fails fast instead of queueing every other query behind the exclusive lock; the migration can be run again.
+        execute(connection, "SET LOCAL lock_timeout = '5s'");
+        execute(connection, "LOCK TABLE users IN ACCESS EXCLUSIVE MODE");
+
+        execute(connection, "DROP TRIGGER users_partition_sync ON users");
+        execute(connection, "DROP FUNCTION users_partition_sync()");
+
+        execute(connection, "ALTER TABLE users RENAME TO users_unpartitioned");
+        execute(connection, "ALTER INDEX IF EXISTS users_pkey RENAME TO users_unpartitioned_pkey");
+
+        for(final String[] index : INDEXES) {
+            execute(connection, "ALTER INDEX IF EXISTS users_" + index[0] + " RENAME TO users_unpartitioned_" + index[0]);
+        }
+
+        execute(connection, "ALTER TABLE " + TARGET + " RENAME TO users");
+        execute(connection, "ALTER INDEX " + TARGET + "_pkey RENAME TO users_pkey");
+
+        for(final String[] index : INDEXES) {
+            execute(connection, "ALTER INDEX " + TARGET + "_" + index[0] + " RENAME TO users_" + index[0]);
+        }
+    }
+
+    private <T> T inTransaction(final String step, final ReturningWork<T> work) throws UserDAOException {
+        try(Session session = this.sessionFactory.openSession()) {
+            final Transaction transaction = session.beginTransaction();
+
+            try {
+                final T result = session.doReturningWork(work);
+
+                transaction.commit();
+
+                return result;
+            }
+            catch(HibernateException exception) {
+                transaction.rollback();
+
+                logger.error("Session could not {} during the users migration: {}.", step, exception.getMessage());
+                throw new UserDAOException("Session could not " + step + " during the users migration");
+            }
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to {} during the users migration: {}.", step, exception.getMessage());
+            throw new UserDAOException("Session could not run to " + step + " during the users migration");
+        }
+    }
+
+    private static void execute(final Connection connection, final String sql) throws SQLException {
+        try(Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static String queryString(final Connection connection, final String sql) throws SQLException {
+        try(Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+
+    private static Timestamp queryTimestamp(final Connection connection, final String sql) throws SQLException {
+        try(Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+            return resultSet.next() ? resultSet.getTimestamp(1) : null;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package edu.aston.userservice.dao;
+
+// A partial update: null fields keep the value the row holds when the statement runs.
+public record UserPatch(long id, String name, String email, Integer age) {
+    public boolean isEmpty() {
+        return this.name == null && this.email == null && this.age == null;
+    }
+}
@@ -0,0 +1,183 @@
+package edu.aston.userservice.dao;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+public class UserQuery {
+    public static final int DEFAULT_LIMIT = 100;
+
+    public enum Field {
+        ID("id"), NAME("name"), EMAIL("email"), AGE("age"), CREATED_AT("createdAt");
+
+        private final String attribute;
+
+        Field(final String attribute) {
+            this.attribute = attribute;
+        }
+
+        public String attribute() {
+            return this.attribute;
+        }
+    }
+
+    private final String namePrefix;
+    private final String emailDomain;
+    private final Integer minAge;
+    private final Integer maxAge;
+    private final LocalDateTime createdFrom;
+    private final LocalDateTime createdTo;
+
+    private final Field sortBy;
+    private final boolean descending;
+
+    private final int offset;
+    private final int limit;
+
+    private final Set<Field> fields;
+
+    private UserQuery(final Builder builder) {
+        this.namePrefix = builder.namePrefix;
+        this.emailDomain = builder.emailDomain;
+        this.minAge = builder.minAge;
+        this.maxAge = builder.maxAge;
+        this.createdFrom = builder.createdFrom;
+        this.createdTo = builder.createdTo;
+        this.sortBy = builder.sortBy;
+        this.descending = builder.descending;
+        this.offset = builder.offset;
+        this.limit = builder.limit;
+        this.fields = Collections.unmodifiableSet(builder.fields.isEmpty() ? EnumSet.allOf(Field.class) : EnumSet.copyOf(builder.fields));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getNamePrefix() {
+        return this.namePrefix;
+    }
+
+    public String getEmailDomain() {
+        return this.emailDomain;
+    }
+
+    public Integer getMinAge() {
+        return this.minAge;
+    }
+
+    public Integer getMaxAge() {
+        return this.maxAge;
+    }
+
+    public LocalDateTime getCreatedFrom() {
+        return this.createdFrom;
+    }
+
+    public LocalDateTime getCreatedTo() {
+        return this.createdTo;
+    }
+
+    public Field getSortBy() {
+        return this.sortBy;
+    }
+
+    public boolean isDescending() {
+        return this.descending;
+    }
+
+    public int getOffset() {
+        return this.offset;
+    }
+
+    public int getLimit() {
+        return this.limit;
+    }
+
+    public Set<Field> getFields() {
+        return this.fields;
+    }
+
+    @Override
+    public String toString() {
+        return "UserQuery{" +
+                "namePrefix='" + this.namePrefix + '\'' +
+                ", emailDomain='" + this.emailDomain + '\'' +
+                ", age=" + this.minAge + ".." + this.maxAge +
+                ", createdAt=" + this.createdFrom + ".." + this.createdTo +
+                ", sortBy=" + this.sortBy + (this.descending ? " DESC" : " ASC") +
+                ", offset=" + this.offset +
+                ", limit=" + this.limit +
+                ", fields=" + this.fields +
+                '}';
+    }
+
+    public static class Builder {
+        private String namePrefix;
+        private String emailDomain;
+        private Integer minAge;
+        private Integer maxAge;
+        private LocalDateTime createdFrom;
+        private LocalDateTime createdTo;
+
+        private Field sortBy = Field.ID;
+        private boolean descending;
+
+        private int offset;
+        private int limit = DEFAULT_LIMIT;
+
+        private final Set<Field> fields = EnumSet.noneOf(Field.class);
+
+        private Builder() {}
+
+        public Builder namePrefix(final String namePrefix) {
+            this.namePrefix = namePrefix;
+            return this;
+        }
+
+        public Builder emailDomain(final String emailDomain) {
+            this.emailDomain = emailDomain;
+            return this;
+        }
+
+        public Builder age(final Integer minAge, final Integer maxAge) {
+            this.minAge = minAge;
+            this.maxAge = maxAge;
+            return this;
+        }
+
+        // The lower bound is inclusive and the upper bound exclusive.
+        public Builder createdAt(final LocalDateTime createdFrom, final LocalDateTime createdTo) {
+            this.createdFrom = createdFrom;
+            this.createdTo = createdTo;
+            return this;
+        }
+
+        public Builder sortBy(final Field sortBy, final boolean descending) {
+            this.sortBy = sortBy;
+            this.descending = descending;
+            return this;
+        }
+
+        public Builder offset(final int offset) {
+            this.offset = offset;
+            return this;
+        }
+
+        public Builder limit(final int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public Builder fields(final Set<Field> fields) {
+            this.fields.clear();
+            this.fields.addAll(fields);
+            return this;
+        }
+
+        public UserQuery build() {
+            return new UserQuery(this);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package edu.aston.userservice.dao;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UserStatsDAO {
+    enum Period { DAY, WEEK, MONTH }
+
+    long countUsers() throws UserDAOException;
+    List<AgeBucket> ageDistribution(final int minAge, final int maxAge, final int buckets) throws UserDAOException;
+    List<SignupCount> signups(final Period period, final LocalDateTime from, final LocalDateTime to) throws UserDAOException;
+}
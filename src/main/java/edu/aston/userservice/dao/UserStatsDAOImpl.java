@@ -0,0 +1,124 @@
+package edu.aston.userservice.dao;
+
+import org.hibernate.HibernateException;
+import org.hibernate.SessionException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.persistence.Tuple;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class UserStatsDAOImpl implements UserStatsDAO {
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsDAOImpl.class);
+
+    private final ReplicaRouter router;
+
+    public UserStatsDAOImpl(final SessionFactory sessionFactory) {
+        this(ReplicaRouter.primaryOnly(sessionFactory));
+    }
+
+    public UserStatsDAOImpl(final ReplicaRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public long countUsers() throws UserDAOException {
+        // Always the primary: the count is the baseline callers add their own writes to, so it must not lag behind them.
+        try(StatelessSession session = this.router.primary().openStatelessSession()) {
+            return session.createNativeQuery("SELECT count(*) AS users FROM users", Long.class)
+                    .getSingleResult();
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to count users in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to count users in the database", exception);
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not count users in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not count users in the database", exception);
+        }
+    }
+
+    @Override
+    public List<AgeBucket> ageDistribution(final int minAge, final int maxAge, final int buckets) throws UserDAOException {
+        try {
+            final List<Tuple> rows = this.router.read(factory -> {
+                try(StatelessSession session = factory.openStatelessSession()) {
+                    // width_bucket splits [minAge, maxAge + 1) into equal buckets numbered from 1; 0 and buckets + 1 catch the rest.
+                    return session.createNativeQuery(
+                                    "SELECT width_bucket(age, :low, :high, :buckets) AS bucket, count(*) AS users " +
+                                    "FROM users WHERE age IS NOT NULL GROUP BY bucket ORDER BY bucket", Tuple.class)
+                            .setParameter("low", minAge)
+                            .setParameter("high", maxAge + 1)
+                            .setParameter("buckets", buckets)
+                            .addScalar("bucket", Integer.class)
+                            .addScalar("users", Long.class)
+                            .getResultList();
+                }
+            });
+
+            final double width = (maxAge + 1 - minAge) / (double) buckets;
+
+            final List<AgeBucket> distribution = new ArrayList<>(rows.size());
+
+            for(final Tuple row : rows) {
+                final int bucket = row.get("bucket", Integer.class);
+
+                final Integer fromAge = bucket == 0 ? null : minAge + (int) Math.ceil((bucket - 1) * width);
+                final Integer toAge = bucket > buckets ? null : minAge + (int) Math.ceil(bucket * width) - 1;
+
+                distribution.add(new AgeBucket(bucket, fromAge, toAge, row.get("users", Long.class)));
+            }
+
+            return distribution;
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to compute the age distribution: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to compute the age distribution", exception);
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not compute the age distribution: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not compute the age distribution", exception);
+        }
+    }
+
+    @Override
+    public List<SignupCount> signups(final Period period, final LocalDateTime from, final LocalDateTime to) throws UserDAOException {
+        try {
+            final List<Tuple> rows = this.router.read(factory -> {
+                try(StatelessSession session = factory.openStatelessSession()) {
+                    return session.createNativeQuery(
+                                    "SELECT date_trunc(:unit, created_at) AS period, count(*) AS users FROM users " +
+                                    "WHERE created_at >= :from AND created_at < :to GROUP BY period ORDER BY period", Tuple.class)
+                            .setParameter("unit", period.name().toLowerCase())
+                            .setParameter("from", from)
+                            .setParameter("to", to)
+                            .addScalar("period", LocalDateTime.class)
+                            .addScalar("users", Long.class)
+                            .getResultList();
+                }
+            });
+
+            final List<SignupCount> signups = new ArrayList<>(rows.size());
+
+            for(final Tuple row : rows) {
+                signups.add(new SignupCount(row.get("period", LocalDateTime.class), row.get("users", Long.class)));
+            }
+
+            return signups;
+        }
+        catch(SessionException exception) {
+            logger.error("Session could not run to count sign-ups in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not run to count sign-ups in the database", exception);
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not count sign-ups in the database: {}.", exception.getMessage());
+            throw new UserDAOException("Session could not count sign-ups in the database", exception);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package edu.aston.userservice.dao;
+
+public class UserVersionConflictException extends UserDAOException {
+    private final long id;
+
+    private final long expectedVersion;
+
+    public UserVersionConflictException(final long id, final long expectedVersion) {
+        super("The user with ID " + id + " has changed since version " + expectedVersion);
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public long getId() {
+        return this.id;
+    }
+
+    public long getExpectedVersion() {
+        return this.expectedVersion;
+    }
+}
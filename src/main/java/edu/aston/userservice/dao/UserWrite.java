@@ -0,0 +1,19 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.model.User;
+
+public record UserWrite(Kind kind, long id, User user) {
+    public enum Kind { CREATE, UPDATE, DELETE }
+
+    public static UserWrite create(final User user) {
+        return new UserWrite(Kind.CREATE, 0L, user);
+    }
+
+    public static UserWrite update(final User user) {
+        return new UserWrite(Kind.UPDATE, user.getId(), user);
+    }
+
+    public static UserWrite delete(final long id) {
+        return new UserWrite(Kind.DELETE, id, null);
+    }
+}
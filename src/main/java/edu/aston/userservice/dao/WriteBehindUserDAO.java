@@ -0,0 +1,345 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserView;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Buffers creates and updates in memory and writes them in groups from a background thread. A write is
+// acknowledged once it is queued, so created users have no ID yet and updates of missing IDs are not reported.
+// Reads are passed through and may not see buffered writes for up to one flush interval.
+public final class WriteBehindUserDAO implements UserDAO, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindUserDAO.class);
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200L;
+    public static final long DEFAULT_OFFER_TIMEOUT_MILLIS = 30_000L;
+
+    private final UserDAO userDAO;
+
+    private final int capacity;
+    private final int batchSize;
+    private final long offerTimeoutMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = this.lock.newCondition();
+
+    // Serialises flushes so groups reach the database in the order they were queued.
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private List<UserWrite> pending;
+    private Map<Long, Integer> pendingUpdates;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("user-write-behind").daemon(true).factory());
+
+    private final AtomicLong flushed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public WriteBehindUserDAO(final UserDAO userDAO) {
+        this(userDAO, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public WriteBehindUserDAO(final UserDAO userDAO, final int capacity, final int batchSize, final long flushIntervalMillis) {
+        if(capacity < 1 || batchSize < 1 || batchSize > capacity || flushIntervalMillis < 1) {
+            throw new IllegalArgumentException("The write-behind capacity, batch size and flush interval must be positive, with the batch size within the capacity");
+        }
+
+        this.userDAO = userDAO;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.offerTimeoutMillis = DEFAULT_OFFER_TIMEOUT_MILLIS;
+
+        this.pending = new ArrayList<>(batchSize);
+        this.pendingUpdates = new HashMap<>();
+
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public User create(final User user) throws UserDAOException {
+        enqueue(UserWrite.create(user));
+
+        return user;
+    }
+
+    @Override
+    public int update(final User user) throws UserDAOException {
+        // A versioned update has to report its conflict to the caller, so it cannot be acknowledged from the queue.
+        if(user.getVersion() != null) {
+            flush();
+
+            return this.userDAO.update(user);
+        }
+
+        enqueue(UserWrite.update(user));
+
+        return 1;
+    }
+
+    @Override
+    public int patch(final UserPatch patch) throws UserDAOException {
+        // A patch merges with the stored row, so buffered writes of that row have to land first.
+        flush();
+
+        return this.userDAO.patch(patch);
+    }
+
+    @Override
+    public int delete(final Long id) throws UserDAOException {
+        // A delete overtaking a buffered create or update of the same row would be undone by it.
+        flush();
+
+        return this.userDAO.delete(id);
+    }
+
+    @Override
+    public int createAll(final Collection<User> users) throws UserDAOException {
+        flush();
+
+        return this.userDAO.createAll(users);
+    }
+
+    @Override
+    public int copyAll(final Collection<User> users) throws UserDAOException {
+        flush();
+
+        return this.userDAO.copyAll(users);
+    }
+
+    @Override
+    public int[] applyAll(final List<UserWrite> writes) throws UserDAOException {
+        flush();
+
+        return this.userDAO.applyAll(writes);
+    }
+
+    @Override
+    public List<User> read() throws UserDAOException {
+        return this.userDAO.read();
+    }
+
+    @Override
+    public List<User> read(final long afterId, final int limit) throws UserDAOException {
+        return this.userDAO.read(afterId, limit);
+    }
+
+    @Override
+    public Stream<User> stream(final int fetchSize) throws UserDAOException {
+        return this.userDAO.stream(fetchSize);
+    }
+
+    @Override
+    public Optional<User> read(final Long id) throws UserDAOException {
+        return this.userDAO.read(id);
+    }
+
+    @Override
+    public Optional<User> readLatest(final Long id) throws UserDAOException {
+        // The caller writes back what it reads, so a buffered write of the row has to land first.
+        flush();
+
+        return this.userDAO.readLatest(id);
+    }
+
+    @Override
+    public Map<Long, User> read(final Collection<Long> ids) throws UserDAOException {
+        return this.userDAO.read(ids);
+    }
+
+    @Override
+    public Optional<User> readByEmail(final String email) throws UserDAOException {
+        return this.userDAO.readByEmail(email);
+    }
+
+    @Override
+    public List<UserView> find(final UserQuery query) throws UserDAOException {
+        return this.userDAO.find(query);
+    }
+
+    public int getPending() {
+        this.lock.lock();
+
+        try {
+            return this.pending.size();
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    public long getFlushed() {
+        return this.flushed.get();
+    }
+
+    public long getCoalesced() {
+        return this.coalesced.get();
+    }
+
+    public long getDropped() {
+        return this.dropped.get();
+    }
+
+    private void enqueue(final UserWrite write) throws UserDAOException {
+        boolean full;
+
+        this.lock.lock();
+
+        try {
+            if(this.closed) {
+                throw new UserDAOException("The write-behind buffer is closed");
+            }
+
+            // Only the latest state of a row matters, so a second update to a buffered ID takes the first one's slot.
+            if(write.kind() == UserWrite.Kind.UPDATE) {
+                final Integer slot = this.pendingUpdates.get(write.id());
+
+                if(slot != null) {
+                    this.pending.set(slot, write);
+                    this.coalesced.incrementAndGet();
+                    return;
+                }
+            }
+
+            long remaining = TimeUnit.MILLISECONDS.toNanos(this.offerTimeoutMillis);
+
+            // Writers wait here while the buffer is full, which slows them down to the speed of the database.
+            while(this.pending.size() >= this.capacity) {
+                if(remaining <= 0L) {
+                    throw new UserDAOException("The write-behind buffer stayed full for " + this.offerTimeoutMillis + " ms");
+                }
+
+                remaining = this.notFull.awaitNanos(remaining);
+            }
+
+            if(write.kind() == UserWrite.Kind.UPDATE) {
+                this.pendingUpdates.put(write.id(), this.pending.size());
+            }
+
+            this.pending.add(write);
+
+            full = this.pending.size() % this.batchSize == 0;
+        }
+        catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new UserDAOException("Interrupted while waiting for space in the write-behind buffer");
+        }
+        finally {
+            this.lock.unlock();
+        }
+
+        if(full) {
+            this.flusher.execute(this::flushQuietly);
+        }
+    }
+
+    public void flush() {
+        this.flushLock.lock();
+
+        try {
+            final List<UserWrite> writes = drain();
+
+            for(int from = 0; from < writes.size(); from += this.batchSize) {
+                write(writes.subList(from, Math.min(from + this.batchSize, writes.size())));
+            }
+        }
+        finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    private List<UserWrite> drain() {
+        this.lock.lock();
+
+        try {
+            final List<UserWrite> writes = this.pending;
+
+            this.pending = new ArrayList<>(this.batchSize);
+            this.pendingUpdates = new HashMap<>();
+
+            this.notFull.signalAll();
+
+            return writes;
+        }
+        finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void write(final List<UserWrite> group) {
+        try {
+            this.userDAO.applyAll(group);
+            this.flushed.addAndGet(group.size());
+        }
+        catch(UserDAOException exception) {
+            // The group was rolled back as a whole; one transaction per write keeps the valid ones.
+            logger.warn("A write-behind group of {} writes failed and is retried one by one: {}.", group.size(), exception.getMessage());
+
+            for(final UserWrite write : group) {
+                try {
+                    this.userDAO.applyAll(List.of(write));
+                    this.flushed.incrementAndGet();
+                }
+                catch(UserDAOException singleException) {
+                    this.dropped.incrementAndGet();
+
+                    logger.error("Dropped a buffered {} of user [id={}]: {}.", write.kind(), write.id(), singleException.getMessage());
+                }
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        }
+        catch(RuntimeException exception) {
+            logger.error("Failed to flush the write-behind buffer: {}.", exception.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        this.lock.lock();
+
+        try {
+            this.closed = true;
+        }
+        finally {
+            this.lock.unlock();
+        }
+
+        this.flusher.shutdown();
+
+        try {
+            this.flusher.awaitTermination(DEFAULT_OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+
+        logger.info("Write-behind buffer was closed: {} writes flushed, {} coalesced, {} dropped.",
+                this.flushed.get(), this.coalesced.get(), this.dropped.get());
+    }
+}
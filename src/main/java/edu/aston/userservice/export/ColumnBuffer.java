@@ -0,0 +1,83 @@
+package edu.aston.userservice.export;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Growable little-endian byte buffer for one encoded column chunk or the footer.
+final class ColumnBuffer {
+    private byte[] bytes;
+    private int size;
+
+    ColumnBuffer(final int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    void clear() {
+        this.size = 0;
+    }
+
+    void putByte(final int value) {
+        ensure(1);
+        this.bytes[this.size++] = (byte) value;
+    }
+
+    void putInt(final int value) {
+        ensure(Integer.BYTES);
+
+        for(int shift = 0; shift < Integer.SIZE; shift += Byte.SIZE) {
+            this.bytes[this.size++] = (byte) (value >>> shift);
+        }
+    }
+
+    void putLong(final long value) {
+        ensure(Long.BYTES);
+
+        for(int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            this.bytes[this.size++] = (byte) (value >>> shift);
+        }
+    }
+
+    // Zigzag varint: small magnitudes of either sign take one or two bytes.
+    void putVarLong(final long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+
+        ensure(10);
+
+        while((zigzag & ~0x7FL) != 0) {
+            this.bytes[this.size++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+
+        this.bytes[this.size++] = (byte) zigzag;
+    }
+
+    void putBytes(final byte[] value) {
+        ensure(value.length);
+        System.arraycopy(value, 0, this.bytes, this.size, value.length);
+        this.size += value.length;
+    }
+
+    void putBytes(final byte[] value, final int length) {
+        ensure(length);
+        System.arraycopy(value, 0, this.bytes, this.size, length);
+        this.size += length;
+    }
+
+    void put(final ColumnBuffer other) {
+        putBytes(other.bytes, other.size);
+    }
+
+    ByteBuffer buffer() {
+        return ByteBuffer.wrap(this.bytes, 0, this.size);
+    }
+
+    private void ensure(final int extra) {
+        if(this.size + extra > this.bytes.length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(this.size + extra, this.bytes.length * 2));
+        }
+    }
+}
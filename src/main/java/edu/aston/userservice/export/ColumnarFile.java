@@ -0,0 +1,119 @@
+package edu.aston.userservice.export;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Layout, all numbers little-endian:
+//
+//   "USRCOL01" | row group* | footer | footer length (int32) | "USRCOL01"
+//   footer = row group count (int32), then one RowGroup summary per group in ID order
+//
+// Several range scans append to the same file: each reserves its byte range with one atomic add and then writes
+// it with positional writes, so groups land in completion order while the footer lists them by ID.
+final class ColumnarFile implements AutoCloseable {
+    private static final byte[] MAGIC = "USRCOL01".getBytes(StandardCharsets.US_ASCII);
+
+    private record Entry(long minId, ColumnBuffer summary) {}
+
+    private final FileChannel channel;
+
+    private final AtomicLong position = new AtomicLong(MAGIC.length);
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    private ColumnarFile(final FileChannel channel) {
+        this.channel = channel;
+    }
+
+    static ColumnarFile create(final Path file) throws IOException {
+        final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        try {
+            writeFully(channel, ByteBuffer.wrap(MAGIC), 0L);
+        }
+        catch(IOException exception) {
+            channel.close();
+            throw exception;
+        }
+
+        return new ColumnarFile(channel);
+    }
+
+    void append(final RowGroup group) throws IOException {
+        final ColumnBuffer[] columns = group.columns();
+
+        final long[] offsets = new long[RowGroup.COLUMNS];
+        final int[] lengths = new int[RowGroup.COLUMNS];
+
+        long total = 0L;
+
+        for(int column = 0; column < RowGroup.COLUMNS; column++) {
+            lengths[column] = columns[column].size();
+            total += lengths[column];
+        }
+
+        long offset = this.position.getAndAdd(total);
+
+        for(int column = 0; column < RowGroup.COLUMNS; column++) {
+            offsets[column] = offset;
+            writeFully(this.channel, columns[column].buffer(), offset);
+            offset += lengths[column];
+        }
+
+        final ColumnBuffer summary = new ColumnBuffer(256);
+
+        group.writeSummary(summary, offsets, lengths);
+
+        synchronized(this.entries) {
+            this.entries.add(new Entry(group.minId(), summary));
+        }
+    }
+
+    long finish() throws IOException {
+        final ColumnBuffer footer = new ColumnBuffer(4096);
+
+        synchronized(this.entries) {
+            this.entries.sort(Comparator.comparingLong(Entry::minId));
+
+            footer.putInt(this.entries.size());
+
+            for(final Entry entry : this.entries) {
+                footer.put(entry.summary());
+            }
+        }
+
+        final int length = footer.size();
+
+        footer.putInt(length);
+        footer.putBytes(MAGIC);
+
+        final long start = this.position.getAndAdd(footer.size());
+
+        writeFully(this.channel, footer.buffer(), start);
+
+        this.channel.force(false);
+
+        return start + footer.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        long offset = position;
+
+        while(buffer.hasRemaining()) {
+            offset += channel.write(buffer, offset);
+        }
+    }
+}
@@ -0,0 +1,3 @@
+package edu.aston.userservice.export;
+
+public enum ExportFormat { CSV, COLUMNAR }
@@ -0,0 +1,11 @@
+package edu.aston.userservice.export;
+
+import java.nio.file.Path;
+
+public record ExportResult(ExportFormat format, Path file, long rows, long bytes, int ranges, long millis) {
+    @Override
+    public String toString() {
+        return "Exported " + this.rows + " users to " + this.file + " (" + this.format + ", " + this.bytes + " bytes, "
+                + this.ranges + " id range(s)) in " + this.millis + " ms";
+    }
+}
@@ -0,0 +1,180 @@
+package edu.aston.userservice.export;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+// Encodes up to a fixed number of rows column by column while they are read, keeping min/max per column.
+// IDs and creation times are zigzag varint deltas from the previous row; strings are a varint length
+// followed by UTF-8; ages are a presence bitmap followed by zigzag varints of the present values.
+final class RowGroup {
+    static final int DEFAULT_ROWS = 65_536;
+
+    static final int COLUMNS = 5;
+
+    private final int capacity;
+
+    private final ColumnBuffer ids = new ColumnBuffer(64 * 1024);
+    private final ColumnBuffer names = new ColumnBuffer(256 * 1024);
+    private final ColumnBuffer emails = new ColumnBuffer(512 * 1024);
+    private final ColumnBuffer ages = new ColumnBuffer(64 * 1024);
+    private final ColumnBuffer createdAts = new ColumnBuffer(128 * 1024);
+
+    private final byte[] agePresent;
+
+    private int rows;
+    private int missingAges;
+
+    private long previousId;
+    private long previousCreatedAt;
+
+    private long minId;
+    private long maxId;
+    private String minName;
+    private String maxName;
+    private String minEmail;
+    private String maxEmail;
+    private int minAge;
+    private int maxAge;
+    private long minCreatedAt;
+    private long maxCreatedAt;
+
+    RowGroup(final int capacity) {
+        this.capacity = capacity;
+        this.agePresent = new byte[(capacity + 7) / 8];
+
+        clear();
+    }
+
+    int rows() {
+        return this.rows;
+    }
+
+    boolean isFull() {
+        return this.rows == this.capacity;
+    }
+
+    long minId() {
+        return this.minId;
+    }
+
+    void add(final long id, final String name, final String email, final Integer age, final LocalDateTime createdAt) {
+        final long micros = createdAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + createdAt.getNano() / 1_000;
+
+        this.ids.putVarLong(id - this.previousId);
+        this.createdAts.putVarLong(micros - this.previousCreatedAt);
+
+        this.previousId = id;
+        this.previousCreatedAt = micros;
+
+        putString(this.names, name);
+        putString(this.emails, email);
+
+        if(age == null) {
+            this.missingAges++;
+        }
+        else {
+            this.agePresent[this.rows >>> 3] |= (byte) (1 << (this.rows & 7));
+            this.ages.putVarLong(age);
+
+            this.minAge = Math.min(this.minAge, age);
+            this.maxAge = Math.max(this.maxAge, age);
+        }
+
+        this.minId = Math.min(this.minId, id);
+        this.maxId = Math.max(this.maxId, id);
+        this.minCreatedAt = Math.min(this.minCreatedAt, micros);
+        this.maxCreatedAt = Math.max(this.maxCreatedAt, micros);
+
+        if(this.minName == null || name.compareTo(this.minName) < 0) {
+            this.minName = name;
+        }
+
+        if(this.maxName == null || name.compareTo(this.maxName) > 0) {
+            this.maxName = name;
+        }
+
+        if(this.minEmail == null || email.compareTo(this.minEmail) < 0) {
+            this.minEmail = email;
+        }
+
+        if(this.maxEmail == null || email.compareTo(this.maxEmail) > 0) {
+            this.maxEmail = email;
+        }
+
+        this.rows++;
+    }
+
+    // Column chunks in file order: id, name, email, age, created_at. Valid until the next clear().
+    ColumnBuffer[] columns() {
+        final ColumnBuffer agesWithBitmap = new ColumnBuffer((this.rows + 7) / 8 + this.ages.size());
+
+        agesWithBitmap.putBytes(this.agePresent, (this.rows + 7) / 8);
+        agesWithBitmap.put(this.ages);
+
+        return new ColumnBuffer[] {this.ids, this.names, this.emails, agesWithBitmap, this.createdAts};
+    }
+
+    // Footer entry: row count, then per column its offset, length and null count, then its min and max.
+    void writeSummary(final ColumnBuffer footer, final long[] offsets, final int[] lengths) {
+        footer.putInt(this.rows);
+
+        for(int column = 0; column < COLUMNS; column++) {
+            footer.putLong(offsets[column]);
+            footer.putInt(lengths[column]);
+            footer.putInt(column == 3 ? this.missingAges : 0);
+        }
+
+        footer.putLong(this.minId);
+        footer.putLong(this.maxId);
+        putFooterString(footer, this.minName);
+        putFooterString(footer, this.maxName);
+        putFooterString(footer, this.minEmail);
+        putFooterString(footer, this.maxEmail);
+        footer.putInt(this.missingAges == this.rows ? 0 : this.minAge);
+        footer.putInt(this.missingAges == this.rows ? 0 : this.maxAge);
+        footer.putLong(this.minCreatedAt);
+        footer.putLong(this.maxCreatedAt);
+    }
+
+    void clear() {
+        this.ids.clear();
+        this.names.clear();
+        this.emails.clear();
+        this.ages.clear();
+        this.createdAts.clear();
+
+        Arrays.fill(this.agePresent, (byte) 0);
+
+        this.rows = 0;
+        this.missingAges = 0;
+        this.previousId = 0L;
+        this.previousCreatedAt = 0L;
+
+        this.minId = Long.MAX_VALUE;
+        this.maxId = Long.MIN_VALUE;
+        this.minName = null;
+        this.maxName = null;
+        this.minEmail = null;
+        this.maxEmail = null;
+        this.minAge = Integer.MAX_VALUE;
+        this.maxAge = Integer.MIN_VALUE;
+        this.minCreatedAt = Long.MAX_VALUE;
+        this.maxCreatedAt = Long.MIN_VALUE;
+    }
+
+    private static void putString(final ColumnBuffer column, final String value) {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+        column.putVarLong(bytes.length);
+        column.putBytes(bytes);
+    }
+
+    private static void putFooterString(final ColumnBuffer footer, final String value) {
+        final byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+
+        footer.putInt(bytes.length);
+        footer.putBytes(bytes);
+    }
+}
@@ -0,0 +1,11 @@
+package edu.aston.userservice.export;
+
+public class UserExportException extends Exception {
+    public UserExportException(final String message) {
+        super(message);
+    }
+
+    public UserExportException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
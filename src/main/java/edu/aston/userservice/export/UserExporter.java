@@ -0,0 +1,376 @@
+package edu.aston.userservice.export;
+
+import edu.aston.userservice.dao.ReplicaRouter;
+
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.jdbc.ReturningWork;
+
+import org.postgresql.PGConnection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Streams the users table to a file without materialising it: CSV goes through COPY TO STDOUT, the columnar
+// format through a server-side cursor. The ID span can be split into ranges exported in parallel; CSV ranges
+// go to part files that are appended in order with transferTo, columnar ranges share one file. A coordinating
+// transaction exports its snapshot and every range imports it, so the parallel ranges together read the table as
+// of one instant, just like a single scan would.
+public class UserExporter {
+    private static final Logger logger = LoggerFactory.getLogger(UserExporter.class);
+
+    public static final int DEFAULT_PARALLELISM = 4;
+    public static final int DEFAULT_FETCH_SIZE = 10_000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String SELECT_RANGE = "SELECT id, name, email, age, created_at FROM users WHERE id >= %d AND id < %d ORDER BY id";
+
+    private interface RangeTask { long run(int index, long[] range) throws UserExportException; }
+
+    // Holds the transaction whose snapshot the ranges import open until they are done; an exported snapshot can
+    // only be imported while the transaction that exported it is still running, and only on the same server.
+    private static final class Snapshot implements AutoCloseable {
+        private final SessionFactory factory;
+        private final StatelessSession session;
+        private final Transaction transaction;
+        private final String id;
+
+        private Snapshot(final SessionFactory factory) {
+            this.factory = factory;
+            this.session = factory.openStatelessSession();
+
+            try {
+                this.transaction = this.session.beginTransaction();
+                this.id = this.session.doReturningWork(connection -> {
+                    try(Statement statement = connection.createStatement()) {
+                        statement.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY");
+
+                        try(ResultSet resultSet = statement.executeQuery("SELECT pg_export_snapshot()")) {
+                            resultSet.next();
+
+                            return resultSet.getString(1);
+                        }
+                    }
+                });
+            }
+            catch(RuntimeException exception) {
+                this.session.close();
+                throw exception;
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                this.transaction.rollback();
+            }
+            finally {
+                this.session.close();
+            }
+        }
+    }
+
+    private final ReplicaRouter router;
+
+    private final int parallelism;
+
+    private final int fetchSize;
+
+    public UserExporter(final ReplicaRouter router) {
+        this(router, DEFAULT_PARALLELISM, DEFAULT_FETCH_SIZE);
+    }
+
+    public UserExporter(final ReplicaRouter router, final int parallelism, final int fetchSize) {
+        if(parallelism < 1 || fetchSize < 1) {
+            throw new IllegalArgumentException("The export parallelism and fetch size must be positive");
+        }
+
+        this.router = router;
+        this.parallelism = parallelism;
+        this.fetchSize = fetchSize;
+    }
+
+    public ExportResult export(final Path file, final ExportFormat format) throws UserExportException {
+        logger.info("Start exporting users to {} as {}.", file, format);
+
+        final long start = System.nanoTime();
+
+        final List<long[]> ranges;
+        final long rows;
+
+        try(Snapshot snapshot = snapshot()) {
+            ranges = ranges(snapshot);
+
+            rows = switch(format) {
+                case CSV -> exportCsv(snapshot, file, ranges);
+                case COLUMNAR -> exportColumnar(snapshot, file, ranges);
+            };
+        }
+
+        try {
+            final ExportResult result = new ExportResult(format, file, rows, Files.size(file), ranges.size(), (System.nanoTime() - start) / 1_000_000L);
+
+            logger.info("{}.", result);
+
+            return result;
+        }
+        catch(IOException exception) {
+            throw new UserExportException("Could not read the size of the export file: " + exception.getMessage(), exception);
+        }
+    }
+
+    private Snapshot snapshot() throws UserExportException {
+        try {
+            return this.router.read(Snapshot::new);
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not export a snapshot of the users table: {}.", exception.getMessage());
+            throw new UserExportException("Session could not export a snapshot of the users table", exception);
+        }
+    }
+
+    private List<long[]> ranges(final Snapshot snapshot) throws UserExportException {
+        final Object[] bounds;
+
+        try {
+            // Inside the snapshot, so the span matches the rows the ranges will see.
+            bounds = snapshot.session.createNativeQuery("SELECT min(id), max(id) FROM users", Object[].class).getSingleResult();
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not read the ID span of the users table: {}.", exception.getMessage());
+            throw new UserExportException("Session could not read the ID span of the users table", exception);
+        }
+
+        final List<long[]> ranges = new ArrayList<>();
+
+        if(bounds[0] == null) {
+            ranges.add(new long[] {0L, 0L});
+            return ranges;
+        }
+
+        final long min = ((Number) bounds[0]).longValue();
+        final long end = ((Number) bounds[1]).longValue() + 1;
+
+        // Equal-width ranges: sequence IDs are dense enough that the row counts come out close.
+        final long step = Math.max(1L, (end - min + this.parallelism - 1) / this.parallelism);
+
+        for(long from = min; from < end; from += step) {
+            ranges.add(new long[] {from, Math.min(end, from + step)});
+        }
+
+        return ranges;
+    }
+
+    private long exportCsv(final Snapshot snapshot, final Path file, final List<long[]> ranges) throws UserExportException {
+        if(ranges.size() == 1) {
+            return copyOut(snapshot, file, ranges.get(0), true);
+        }
+
+        final List<Path> parts = new ArrayList<>(ranges.size());
+
+        for(int i = 0; i < ranges.size(); i++) {
+            parts.add(file.resolveSibling(file.getFileName() + ".part" + i));
+        }
+
+        try {
+            final long rows = runRanges(ranges, (index, range) -> copyOut(snapshot, parts.get(index), range, index == 0));
+
+            try(FileChannel target = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                for(final Path part : parts) {
+                    try(FileChannel source = FileChannel.open(part, StandardOpenOption.READ)) {
+                        final long size = source.size();
+
+                        for(long position = 0L; position < size; ) {
+                            position += source.transferTo(position, size - position, target);
+                        }
+                    }
+                }
+            }
+
+            return rows;
+        }
+        catch(IOException exception) {
+            throw new UserExportException("Could not write the export file: " + exception.getMessage(), exception);
+        }
+        finally {
+            for(final Path part : parts) {
+                try {
+                    Files.deleteIfExists(part);
+                }
+                catch(IOException exception) {
+                    logger.warn("Could not delete the export part {}: {}.", part, exception.getMessage());
+                }
+            }
+        }
+    }
+
+    private long copyOut(final Snapshot snapshot, final Path target, final long[] range, final boolean header) throws UserExportException {
+        final String sql = "COPY (" + String.format(SELECT_RANGE, range[0], range[1]) + ") TO STDOUT WITH (FORMAT csv" + (header ? ", HEADER" : "") + ")";
+
+        try {
+            return inSnapshot(snapshot, connection -> {
+                try(FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                    OutputStream output = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+                    return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, output);
+                }
+                catch(IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        }
+        catch(UncheckedIOException exception) {
+            throw new UserExportException("Could not write the export file: " + exception.getCause().getMessage(), exception.getCause());
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not copy users out of the database: {}.", exception.getMessage());
+            throw new UserExportException("Session could not copy users out of the database", exception);
+        }
+    }
+
+    private long exportColumnar(final Snapshot snapshot, final Path file, final List<long[]> ranges) throws UserExportException {
+        try(ColumnarFile output = ColumnarFile.create(file)) {
+            final long rows = runRanges(ranges, (index, range) -> scan(snapshot, output, range));
+
+            output.finish();
+
+            return rows;
+        }
+        catch(IOException exception) {
+            throw new UserExportException("Could not write the export file: " + exception.getMessage(), exception);
+        }
+    }
+
+    private long scan(final Snapshot snapshot, final ColumnarFile output, final long[] range) throws UserExportException {
+        try {
+            // The fetch size only opens a server-side cursor inside a transaction, which the snapshot import provides.
+            return inSnapshot(snapshot, connection -> {
+                try(PreparedStatement statement = connection.prepareStatement(String.format(SELECT_RANGE, range[0], range[1]))) {
+                    statement.setFetchSize(this.fetchSize);
+
+                    try(ResultSet resultSet = statement.executeQuery()) {
+                        final RowGroup group = new RowGroup(RowGroup.DEFAULT_ROWS);
+
+                        long count = 0L;
+
+                        while(resultSet.next()) {
+                            group.add(resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3),
+                                    resultSet.getObject(4, Integer.class), resultSet.getObject(5, LocalDateTime.class));
+                            count++;
+
+                            if(group.isFull()) {
+                                append(output, group);
+                            }
+                        }
+
+                        if(group.rows() > 0) {
+                            append(output, group);
+                        }
+
+                        return count;
+                    }
+                }
+            });
+        }
+        catch(UncheckedIOException exception) {
+            throw new UserExportException("Could not write the export file: " + exception.getCause().getMessage(), exception.getCause());
+        }
+        catch(HibernateException exception) {
+            logger.error("Session could not read users for the export: {}.", exception.getMessage());
+            throw new UserExportException("Session could not read users for the export", exception);
+        }
+    }
+
+    private static <T> T inSnapshot(final Snapshot snapshot, final ReturningWork<T> work) {
+        try(StatelessSession session = snapshot.factory.openStatelessSession()) {
+            final Transaction transaction = session.beginTransaction();
+
+            try {
+                final T result = session.doReturningWork(connection -> {
+                    try(Statement statement = connection.createStatement()) {
+                        statement.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ, READ ONLY");
+                        statement.execute("SET TRANSACTION SNAPSHOT '" + snapshot.id + "'");
+                    }
+
+                    return work.execute(connection);
+                });
+
+                transaction.commit();
+
+                return result;
+            }
+            catch(RuntimeException exception) {
+                transaction.rollback();
+                throw exception;
+            }
+        }
+    }
+
+    private static void append(final ColumnarFile output, final RowGroup group) {
+        try {
+            output.append(group);
+            group.clear();
+        }
+        catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private long runRanges(final List<long[]> ranges, final RangeTask task) throws UserExportException {
+        if(ranges.size() == 1) {
+            return task.run(0, ranges.get(0));
+        }
+
+        // One connection per range; the parallelism setting keeps this well below the pool size.
+        try(ExecutorService executor = Executors.newFixedThreadPool(ranges.size(), Thread.ofPlatform().name("user-export-", 0).factory())) {
+            final List<Future<Long>> results = new ArrayList<>(ranges.size());
+
+            for(int i = 0; i < ranges.size(); i++) {
+                final int index = i;
+
+                results.add(executor.submit(() -> task.run(index, ranges.get(index))));
+            }
+
+            long rows = 0L;
+
+            for(final Future<Long> result : results) {
+                rows += result.get();
+            }
+
+            return rows;
+        }
+        catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new UserExportException("Interrupted while exporting users", exception);
+        }
+        catch(ExecutionException exception) {
+            if(exception.getCause() instanceof UserExportException cause) {
+                throw cause;
+            }
+
+            throw new UserExportException("Could not export users: " + exception.getCause().getMessage(), exception.getCause());
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package edu.aston.userservice.gui;
+
+import edu.aston.userservice.dao.UserWrite;
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.service.AsyncUserService;
+import edu.aston.userservice.service.UserLookupResult;
+import edu.aston.userservice.service.UserService;
+import edu.aston.userservice.service.UserServiceException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+public class BatchRunner {
+    private static final Logger logger = LoggerFactory.getLogger(BatchRunner.class);
+
+    public static final int DEFAULT_GROUP_SIZE = 500;
+    public static final int DEFAULT_READ_WINDOW = 32;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int STREAM_FETCH_SIZE = 1_000;
+    private static final int MAX_REPORTED_FAILURES = 50;
+
+    private static final byte[] CREATE = "create".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] READ = "read".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UPDATE = "update".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] DELETE = "delete".getBytes(StandardCharsets.US_ASCII);
+
+    public record Failure(long line, String message) {}
+
+    public record Report(long commands, long succeeded, long failed, List<Failure> failures, long elapsedNanos) {
+        @Override
+        public String toString() {
+            final double seconds = Math.max(this.elapsedNanos, 1L) / 1_000_000_000.0;
+
+            final StringBuilder builder = new StringBuilder(String.format(
+                    "BATCH %d commands in %.2f s (%.0f commands/sec): %d succeeded, %d failed",
+                    this.commands, seconds, this.commands / seconds, this.succeeded, this.failed));
+
+            for(final Failure failure : this.failures) {
+                builder.append("\nline ").append(failure.line()).append(": ").append(failure.message());
+            }
+
+            if(this.failed > this.failures.size()) {
+                builder.append("\n... and ").append(this.failed - this.failures.size()).append(" more failed lines");
+            }
+
+            return builder.toString();
+        }
+    }
+
+    private record PendingWrite(long line, UserWrite write) {}
+
+    private record PendingRead(long line, CompletableFuture<?> result) {}
+
+    private final UserService userService;
+
+    private final int groupSize;
+    private final int readWindow;
+
+    private final CommandTokenizer tokenizer = new CommandTokenizer();
+
+    private final List<PendingWrite> writes = new ArrayList<>();
+    private final Deque<PendingRead> reads = new ArrayDeque<>();
+
+    private final List<Failure> failures = new ArrayList<>();
+
+    private AsyncUserService asyncUserService;
+
+    private long commands;
+    private long succeeded;
+    private long failed;
+
+    public BatchRunner(final UserService userService) {
+        this(userService, DEFAULT_GROUP_SIZE, DEFAULT_READ_WINDOW);
+    }
+
+    public BatchRunner(final UserService userService, final int groupSize, final int readWindow) {
+        if(groupSize < 1 || readWindow < 1) {
+            throw new IllegalArgumentException("The group size and the read window must be greater than 0");
+        }
+
+        this.userService = userService;
+        this.groupSize = groupSize;
+        this.readWindow = readWindow;
+    }
+
+    public Report run(final Path file) throws IOException {
+        final long start = System.nanoTime();
+
+        this.commands = 0L;
+        this.succeeded = 0L;
+        this.failed = 0L;
+        this.failures.clear();
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            AsyncUserService asyncUserService = new AsyncUserService(this.userService, this.readWindow, AsyncUserService.DEFAULT_ACQUIRE_TIMEOUT_MILLIS)) {
+            this.asyncUserService = asyncUserService;
+
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            final byte[] bytes = buffer.array();
+
+            long line = 0L;
+            int scanFrom = 0;
+            boolean endOfFile = false;
+
+            while(!endOfFile) {
+                endOfFile = channel.read(buffer) < 0;
+
+                final int limit = buffer.position();
+
+                int lineStart = 0;
+
+                for(int i = scanFrom; i < limit; i++) {
+                    if(bytes[i] == '\n') {
+                        execute(++line, bytes, lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+
+                if(endOfFile && lineStart < limit) {
+                    execute(++line, bytes, lineStart, limit);
+                    lineStart = limit;
+                }
+
+                if(lineStart == 0 && limit == bytes.length) {
+                    throw new IOException("Line " + (line + 1) + " is longer than " + BUFFER_SIZE + " bytes");
+                }
+
+                // The unfinished tail moves to the front and the next read appends to it.
+                System.arraycopy(bytes, lineStart, bytes, 0, limit - lineStart);
+                buffer.position(limit - lineStart);
+                scanFrom = limit - lineStart;
+            }
+
+            flushWrites();
+            drainReads();
+        }
+        finally {
+            this.asyncUserService = null;
+        }
+
+        // Pipelined reads settle after the writes around them, so failures are put back into file order.
+        this.failures.sort(Comparator.comparingLong(Failure::line));
+
+        final Report report = new Report(this.commands, this.succeeded, this.failed, List.copyOf(this.failures), System.nanoTime() - start);
+
+        logger.info("Batch {} finished: {} commands, {} failed.", file, report.commands(), report.failed());
+
+        return report;
+    }
+
+    private void execute(final long line, final byte[] bytes, final int start, final int end) {
+        this.tokenizer.reset(bytes, start, end);
+
+        // A comment may be indented, so the marker is looked for on the first token rather than the first byte.
+        if(!this.tokenizer.next() || this.tokenizer.startsWith((byte) '#')) {
+            return;
+        }
+
+        this.commands++;
+
+        try {
+            if(this.tokenizer.is(CREATE)) {
+                final String name = nextText();
+                final String email = nextText();
+
+                addWrite(line, UserWrite.create(new User(name, email, nextInt())));
+            }
+            else if(this.tokenizer.is(UPDATE)) {
+                final long id = nextLong();
+                final String name = nextText();
+                final String email = nextText();
+
+                addWrite(line, UserWrite.update(new User(id, name, email, nextInt())));
+            }
+            else if(this.tokenizer.is(DELETE)) {
+                addWrite(line, UserWrite.delete(nextLong()));
+            }
+            else if(this.tokenizer.is(READ)) {
+                read(line);
+            }
+            else {
+                fail(line, "Unsupported command in batch mode: " + this.tokenizer.text());
+            }
+        }
+        catch(IllegalArgumentException exception) {
+            fail(line, "Incorrect input: " + exception.getMessage());
+        }
+    }
+
+    private void addWrite(final long line, final UserWrite write) {
+        // A read that came earlier in the file must not observe this write.
+        drainReads();
+
+        this.writes.add(new PendingWrite(line, write));
+
+        if(this.writes.size() >= this.groupSize) {
+            flushWrites();
+        }
+    }
+
+    private void read(final long line) {
+        // A read that comes later in the file must observe every earlier write.
+        flushWrites();
+
+        if(this.reads.size() >= this.readWindow) {
+            completeOldestRead();
+        }
+
+        if(!this.tokenizer.next()) {
+            drainReads();
+            countAll(line);
+            return;
+        }
+
+        final CompletableFuture<?> result;
+
+        if(this.tokenizer.contains((byte) '@')) {
+            result = this.asyncUserService.findByEmail(this.tokenizer.text());
+        }
+        else if(this.tokenizer.contains((byte) ',')) {
+            final List<Long> ids = new ArrayList<>();
+
+            this.tokenizer.forEachLong(ids::add);
+
+            result = this.asyncUserService.findByIds(ids);
+        }
+        else {
+            result = this.asyncUserService.findById(this.tokenizer.longValue());
+        }
+
+        this.reads.addLast(new PendingRead(line, result));
+    }
+
+    private void countAll(final long line) {
+        try(Stream<User> users = this.userService.streamAll(STREAM_FETCH_SIZE)) {
+            users.count();
+            this.succeeded++;
+        }
+        catch(UserServiceException exception) {
+            fail(line, describe(exception));
+        }
+    }
+
+    private void flushWrites() {
+        if(this.writes.isEmpty()) {
+            return;
+        }
+
+        final List<UserWrite> group = new ArrayList<>(this.writes.size());
+
+        for(final PendingWrite pending : this.writes) {
+            group.add(pending.write());
+        }
+
+        try {
+            account(this.writes, this.userService.applyWrites(group));
+        }
+        catch(UserServiceException exception) {
+            // The group was rolled back as a whole; replaying it one write per transaction pins the failure to its lines.
+            logger.warn("A group of {} writes failed and is replayed line by line: {}.", group.size(), exception.getMessage());
+
+            for(final PendingWrite pending : this.writes) {
+                try {
+                    account(List.of(pending), this.userService.applyWrites(List.of(pending.write())));
+                }
+                catch(UserServiceException singleException) {
+                    fail(pending.line(), describe(singleException));
+                }
+            }
+        }
+
+        this.writes.clear();
+    }
+
+    private void account(final List<PendingWrite> pending, final int[] rows) {
+        for(int i = 0; i < rows.length; i++) {
+            if(rows[i] > 0) {
+                this.succeeded++;
+            }
+            else {
+                fail(pending.get(i).line(), "No user with ID " + pending.get(i).write().id() + " in the database");
+            }
+        }
+    }
+
+    private void drainReads() {
+        while(!this.reads.isEmpty()) {
+            completeOldestRead();
+        }
+    }
+
+    private void completeOldestRead() {
+        final PendingRead pending = this.reads.removeFirst();
+
+        try {
+            if(pending.result().join() instanceof UserLookupResult result && !result.missingIds().isEmpty()) {
+                fail(pending.line(), "Not found: " + result.missingIds());
+            }
+            else {
+                this.succeeded++;
+            }
+        }
+        catch(CompletionException exception) {
+            fail(pending.line(), exception.getCause() instanceof UserServiceException cause ? describe(cause) : exception.getMessage());
+        }
+    }
+
+    private void fail(final long line, final String message) {
+        this.failed++;
+
+        if(this.failures.size() < MAX_REPORTED_FAILURES) {
+            this.failures.add(new Failure(line, message));
+        }
+    }
+
+    private String nextText() {
+        requireNext();
+        return this.tokenizer.text();
+    }
+
+    private long nextLong() {
+        requireNext();
+        return this.tokenizer.longValue();
+    }
+
+    private int nextInt() {
+        requireNext();
+        return this.tokenizer.intValue();
+    }
+
+    private void requireNext() {
+        if(!this.tokenizer.next()) {
+            throw new IllegalArgumentException("missing argument");
+        }
+    }
+
+    private static String describe(final UserServiceException exception) {
+        return exception.getCause() instanceof UserServiceException cause ? cause.getMessage() : exception.getMessage();
+    }
+}
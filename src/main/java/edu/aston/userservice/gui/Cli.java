@@ -1,30 +1,87 @@
 package edu.aston.userservice.gui;
 
+import edu.aston.userservice.dao.AgeBucket;
+import edu.aston.userservice.dao.SignupCount;
+import edu.aston.userservice.dao.UserQuery;
+import edu.aston.userservice.dao.UserStatsDAO;
+import edu.aston.userservice.export.ExportFormat;
+import edu.aston.userservice.export.UserExporter;
+import edu.aston.userservice.metrics.MetricsRegistry;
+import edu.aston.userservice.metrics.MetricsReport;
 import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserChange;
+import edu.aston.userservice.model.UserView;
+import edu.aston.userservice.service.UserChangeFeed;
+import edu.aston.userservice.service.UserChangeFeedImpl;
+import edu.aston.userservice.service.UserLookupResult;
 import edu.aston.userservice.service.UserService;
-
+import edu.aston.userservice.service.UserStatsService;
+import edu.aston.userservice.util.CacheStats;
+import edu.aston.userservice.util.HibernateUtil;
+import edu.aston.userservice.util.OperationLog;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Scanner;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
 
 public class Cli {
     private static final Logger logger = LoggerFactory.getLogger(Cli.class);
 
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    private static final int IMPORT_CHUNK_SIZE = 10_000;
+
+    private static final int STATS_MIN_AGE = 20;
+    private static final int STATS_MAX_AGE = 99;
+    private static final int STATS_AGE_BUCKETS = 8;
+    private static final int STATS_SIGNUP_DAYS = 30;
+
     private String[] userInput;
 
-    private final List<String> commands = List.of("create", "read", "update", "delete", "help");
+    private final List<String> commands = List.of("create", "read", "update", "delete", "find", "import", "pool", "cache", "log", "stats", "changes", "export", "help");
 
     private interface Method { String method(); }
 
-    final Method[] consoleMethods = {this::create, this::read, this::update, this::delete, this::help};
+    final Method[] consoleMethods = {this::create, this::read, this::update, this::delete, this::find, this::importUsers, this::pool, this::cache, this::log, this::stats, this::changes, this::exportUsers, this::help};
 
     private final UserService userService;
 
+    private final MetricsRegistry metrics;
+
+    private final int pageSize;
+
+    private final UserStatsService userStatsService;
+
+    private final UserChangeFeed userChangeFeed;
+
+    private final UserExporter userExporter;
+
     public Cli(final UserService userService) {
+        this(userService, MetricsRegistry.getDefault(), DEFAULT_PAGE_SIZE, null, null, null);
+    }
+
+    // The statistics, change feed and exporter may be null; their commands then answer that they are not available.
+    public Cli(final UserService userService, final MetricsRegistry metrics, final int pageSize, final UserStatsService userStatsService,
+               final UserChangeFeed userChangeFeed, final UserExporter userExporter) {
         this.userService = userService;
+        this.metrics = metrics;
+        this.pageSize = pageSize;
+        this.userStatsService = userStatsService;
+        this.userChangeFeed = userChangeFeed;
+        this.userExporter = userExporter;
     }
 
     public void run() {
@@ -46,11 +103,25 @@ public class Cli {
             if(index > -1 && index < this.consoleMethods.length) {
                 logger.info("User input: {}", Arrays.toString(userInput));
 
-                System.out.println(consoleMethods[index].method());
+                System.out.println(this.metrics.time("cli." + this.userInput[0], consoleMethods[index]::method));
             }
         }
     }
 
+    public String runBatch(final Path file, final int groupSize, final int readWindow) {
+        final BatchRunner runner = new BatchRunner(this.userService, groupSize, readWindow);
+
+        return this.metrics.time("cli.batch", () -> {
+            try {
+                return runner.run(file).toString();
+            }
+            catch(IOException exception) {
+                logger.info("Could not read the batch file: {}.", exception.getMessage());
+                return "Could not read the batch file: " + exception.getMessage();
+            }
+        });
+    }
+
     private String create() {
         if(userInput.length < 4) {
             logger.warn("Incorrect user input for creating a new user in the database.");
@@ -76,20 +147,82 @@ public class Cli {
     }
 
     private String read() {
+        if(userInput.length > 1 && userInput[1].contains("@")) {
+            return readByEmail();
+        }
+
+        if(userInput.length > 1 && userInput[1].contains(",")) {
+            return readByIds();
+        }
+
         return userInput.length > 1 ? readById() : readAll();
     }
 
-    private String readAll() {
+    private String readByIds() {
         try {
-            final List<User> list = this.userService.findAll();
+            final List<Long> ids = new ArrayList<>();
+
+            for(final String id : userInput[1].split(",")) {
+                if(!id.isBlank()) {
+                    ids.add(Long.parseLong(id.trim()));
+                }
+            }
+
+            final UserLookupResult result = this.userService.findByIds(ids);
 
-            StringBuilder builder = new StringBuilder();
+            final StringBuilder builder = new StringBuilder("READ");
 
-            for(final User user : list) {
-                builder.append(user.toString()).append("\n");
+            for(final User user : result.users()) {
+                builder.append("\n").append(user);
             }
 
-            return "READ\n" + builder;
+            if(!result.missingIds().isEmpty()) {
+                builder.append("\nNot found: ").append(result.missingIds());
+            }
+
+            return builder.toString();
+        }
+        catch(NumberFormatException exception) {
+            logger.info("Incorrect number format to read by IDs: {}.", exception.getMessage());
+            return "Incorrect number format to read by IDs: " + exception.getMessage();
+        }
+        catch (Exception exception) {
+            return exception.getMessage();
+        }
+    }
+
+    private String readByEmail() {
+        try {
+            return "READ\n" + this.userService.findByEmail(userInput[1]);
+        }
+        catch (Exception exception) {
+            return exception.getMessage();
+        }
+    }
+
+    private String readAll() {
+        try {
+            System.out.println("READ");
+
+            long afterId = 0L;
+            long total = 0L;
+
+            List<User> page;
+
+            do {
+                page = this.userService.findPage(afterId, this.pageSize);
+
+                for(final User user : page) {
+                    System.out.println(user);
+                }
+
+                if(!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                    total += page.size();
+                }
+            } while(page.size() == this.pageSize);
+
+            return "Total: " + total;
         }
         catch (Exception exception) {
             return exception.getMessage();
@@ -130,9 +263,7 @@ public class Cli {
             final String email = userInput[3];
             final int age = Integer.parseInt(userInput[4]);
 
-            this.userService.updateUser(id, name, email, age);
-
-            return "UPDATED";
+            return this.userService.updateUser(id, name, email, age) ? "UPDATED" : "No user with ID " + id + " in the database";
         }
         catch(NumberFormatException exception) {
             logger.info("Incorrect number format to update user information: {}.", exception.getMessage());
@@ -163,12 +294,318 @@ public class Cli {
         }
     }
 
+    private String find() {
+        try {
+            final UserQuery.Builder builder = UserQuery.builder();
+
+            for(int i = 1; i < userInput.length; i++) {
+                final int separator = userInput[i].indexOf('=');
+
+                if(separator < 1) {
+                    return "Incorrect query argument: " + userInput[i];
+                }
+
+                final String value = userInput[i].substring(separator + 1);
+
+                switch(userInput[i].substring(0, separator)) {
+                    case "name" -> builder.namePrefix(value);
+                    case "domain" -> builder.emailDomain(value);
+                    case "age" -> {
+                        final String[] bounds = value.split("-", -1);
+
+                        builder.age(bounds[0].isEmpty() ? null : Integer.valueOf(bounds[0]),
+                                bounds.length < 2 || bounds[1].isEmpty() ? null : Integer.valueOf(bounds[1]));
+                    }
+                    case "created" -> {
+                        final String[] bounds = value.split("\\.\\.", -1);
+
+                        builder.createdAt(bounds[0].isEmpty() ? null : LocalDate.parse(bounds[0]).atStartOfDay(),
+                                bounds.length < 2 || bounds[1].isEmpty() ? null : LocalDate.parse(bounds[1]).atStartOfDay());
+                    }
+                    case "sort" -> {
+                        final String[] sort = value.split(":");
+
+                        builder.sortBy(parseField(sort[0]), sort.length > 1 && "desc".equalsIgnoreCase(sort[1]));
+                    }
+                    case "offset" -> builder.offset(Integer.parseInt(value));
+                    case "limit" -> builder.limit(Integer.parseInt(value));
+                    case "fields" -> {
+                        final Set<UserQuery.Field> fields = EnumSet.noneOf(UserQuery.Field.class);
+
+                        for(final String field : value.split(",")) {
+                            fields.add(parseField(field));
+                        }
+
+                        builder.fields(fields);
+                    }
+                    default -> {
+                        return "Unknown query argument: " + userInput[i];
+                    }
+                }
+            }
+
+            final List<UserView> views = this.userService.find(builder.build());
+
+            final StringBuilder result = new StringBuilder("FOUND ").append(views.size());
+
+            for(final UserView view : views) {
+                result.append("\n").append(view);
+            }
+
+            return result.toString();
+        }
+        catch(IllegalArgumentException | DateTimeParseException exception) {
+            logger.info("Incorrect user input for a user query: {}.", exception.getMessage());
+            return "Incorrect user input for a user query: " + exception.getMessage();
+        }
+        catch (Exception exception) {
+            return exception.getMessage();
+        }
+    }
+
+    private static UserQuery.Field parseField(final String field) {
+        return "createdAt".equalsIgnoreCase(field) ? UserQuery.Field.CREATED_AT : UserQuery.Field.valueOf(field.toUpperCase());
+    }
+
+    private String importUsers() {
+        if(userInput.length < 2) {
+            logger.warn("Incorrect user input for importing users into the database.");
+            return "Incorrect user input for importing users into the database";
+        }
+
+        final boolean useCopy = userInput.length > 2 && "copy".equals(userInput[2]);
+
+        final long start = System.nanoTime();
+
+        long lines = 0L;
+        long imported = 0L;
+
+        try(BufferedReader reader = Files.newBufferedReader(Path.of(userInput[1]))) {
+            final List<User> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+
+            String line;
+
+            while((line = reader.readLine()) != null) {
+                if(line.isBlank()) {
+                    continue;
+                }
+
+                lines++;
+
+                final User user = parseCsvUser(line);
+
+                if(user != null) {
+                    chunk.add(user);
+                }
+
+                if(chunk.size() == IMPORT_CHUNK_SIZE) {
+                    imported += this.userService.importUsers(chunk, useCopy);
+                    chunk.clear();
+                }
+            }
+
+            if(!chunk.isEmpty()) {
+                imported += this.userService.importUsers(chunk, useCopy);
+            }
+        }
+        catch(IOException exception) {
+            logger.info("Could not read the import file: {}.", exception.getMessage());
+            return "Could not read the import file: " + exception.getMessage();
+        }
+        catch (Exception exception) {
+            return exception.getMessage() + " (imported " + imported + " users before the failure)";
+        }
+
+        final double seconds = Math.max(System.nanoTime() - start, 1L) / 1_000_000_000.0;
+
+        return String.format("IMPORTED %d of %d rows in %.2f s (%.0f rows/sec)", imported, lines, seconds, imported / seconds);
+    }
+
+    private static User parseCsvUser(final String line) {
+        final int first = line.indexOf(',');
+        final int second = first < 0 ? -1 : line.indexOf(',', first + 1);
+
+        if(second < 0) {
+            return null;
+        }
+
+        try {
+            final int age = Integer.parseInt(line.substring(second + 1).trim());
+
+            return new User(line.substring(0, first).trim(), line.substring(first + 1, second).trim(), age);
+        }
+        catch(NumberFormatException exception) {
+            // Header rows and rows with a malformed age are skipped.
+            return null;
+        }
+    }
+
+    private String pool() {
+        try {
+            return "POOL\n" + HibernateUtil.getPoolStats();
+        }
+        catch (Exception exception) {
+            return exception.getMessage();
+        }
+    }
+
+    private String cache() {
+        try {
+            final StringBuilder builder = new StringBuilder("CACHE");
+
+            for(final CacheStats stats : HibernateUtil.getCacheStats()) {
+                builder.append("\n").append(stats);
+            }
+
+            return builder.toString();
+        }
+        catch (Exception exception) {
+            return exception.getMessage();
+        }
+    }
+
+    private String log() {
+        if(userInput.length < 3) {
+            return "LOG\n" + Arrays.toString(OperationLog.values());
+        }
+
+        try {
+            final OperationLog operation = OperationLog.valueOf(userInput[1].toUpperCase());
+
+            operation.setLevel(Level.valueOf(userInput[2].toUpperCase()));
+
+            if(userInput.length > 3) {
+                operation.setSampleRate(Integer.parseInt(userInput[3]));
+            }
+
+            return "LOG\n" + operation;
+        }
+        catch(IllegalArgumentException exception) {
+            logger.info("Incorrect user input for changing the log settings: {}.", exception.getMessage());
+            return "Incorrect user input for changing the log settings: " + exception.getMessage();
+        }
+    }
+
+    private String stats() {
+        if(userInput.length > 1 && "users".equals(userInput[1])) {
+            return userStats();
+        }
+
+        try {
+            return "STATS\n" + MetricsReport.text(this.metrics, HibernateUtil.getSessionFactory()) + "\nPOOL\n" + HibernateUtil.getPoolStats();
+        }
+        catch (Exception exception) {
+            return exception.getMessage();
+        }
+    }
+
+    private String userStats() {
+        if(this.userStatsService == null) {
+            return "User statistics are not available";
+        }
+
+        try {
+            final StringBuilder builder = new StringBuilder("USERS\nTotal: ").append(this.userStatsService.countUsers());
+
+            builder.append("\nAge distribution:");
+
+            for(final AgeBucket bucket : this.userStatsService.ageDistribution(STATS_MIN_AGE, STATS_MAX_AGE, STATS_AGE_BUCKETS)) {
+                builder.append("\n  ")
+                        .append(bucket.fromAge() == null ? "" : bucket.fromAge())
+                        .append("..")
+                        .append(bucket.toAge() == null ? "" : bucket.toAge())
+                        .append(": ")
+                        .append(bucket.count());
+            }
+
+            final LocalDate today = LocalDate.now();
+
+            builder.append("\nSign-ups in the last ").append(STATS_SIGNUP_DAYS).append(" days:");
+
+            for(final SignupCount signups : this.userStatsService.signups(UserStatsDAO.Period.DAY,
+                    today.minusDays(STATS_SIGNUP_DAYS - 1).atStartOfDay(), today.plusDays(1).atStartOfDay())) {
+                builder.append("\n  ").append(signups.period().toLocalDate()).append(": ").append(signups.count());
+            }
+
+            return builder.toString();
+        }
+        catch (Exception exception) {
+            return exception.getMessage();
+        }
+    }
+
+    private String changes() {
+        if(this.userChangeFeed == null) {
+            return "The change feed is not available";
+        }
+
+        if(userInput.length < 2) {
+            logger.warn("Incorrect user input for reading user changes.");
+            return "Incorrect user input for reading user changes";
+        }
+
+        try {
+            final long since = Long.parseLong(userInput[1]);
+            final int limit = userInput.length > 2 ? Integer.parseInt(userInput[2]) : UserChangeFeedImpl.DEFAULT_BATCH_SIZE;
+
+            final List<UserChange> changes = this.userChangeFeed.poll(since, limit);
+
+            final StringBuilder builder = new StringBuilder("CHANGES");
+
+            for(final UserChange change : changes) {
+                builder.append("\n").append(change);
+            }
+
+            // The next poll continues from the last change shown here.
+            return builder.append("\nNext: ").append(changes.isEmpty() ? since : changes.get(changes.size() - 1).getSequence()).toString();
+        }
+        catch(NumberFormatException exception) {
+            logger.info("Incorrect user input for reading user changes: {}.", exception.getMessage());
+            return "Incorrect user input for reading user changes: " + exception.getMessage();
+        }
+        catch (Exception exception) {
+            return exception.getMessage();
+        }
+    }
+
+    private String exportUsers() {
+        if(this.userExporter == null) {
+            return "The export is not available";
+        }
+
+        if(userInput.length < 2) {
+            logger.warn("Incorrect user input for exporting users.");
+            return "Incorrect user input for exporting users";
+        }
+
+        try {
+            final ExportFormat format = userInput.length > 2 ? ExportFormat.valueOf(userInput[2].toUpperCase()) : ExportFormat.CSV;
+
+            return this.userExporter.export(Path.of(userInput[1]), format).toString();
+        }
+        catch(IllegalArgumentException exception) {
+            logger.info("Incorrect user input for exporting users: {}.", exception.getMessage());
+            return "Incorrect user input for exporting users: " + exception.getMessage();
+        }
+        catch (Exception exception) {
+            return exception.getMessage();
+        }
+    }
+
     private String help() {
         return "COMMANDS:\n" +
                 "* create <name> <email> <age>\n" +
-                "* read (or) read <id>\n" +
-                "* update <id> <name> <email> <age>\n" +
+                "* read (or) read <id> (or) read <id>,<id>,... (or) read <email>\n" +
+                "* update <id> <name> <email> <age> (unconditional: the last writer wins)\n" +
                 "* delete <id>\n" +
+                "* find [name=<prefix>] [domain=<domain>] [age=<min>-<max>] [created=<from>..<to>] [sort=<field>[:desc]] [offset=<n>] [limit=<n>] [fields=<field>,...]\n" +
+                "* import <file.csv> [copy]\n" +
+                "* pool\n" +
+                "* cache\n" +
+                "* log (or) log <operation> <level> [sample rate]\n" +
+                "* stats (or) stats users\n" +
+                "* changes <since> [limit]\n" +
+                "* export <file> [csv|columnar]\n" +
                 "* help\n" +
                 "* exit";
     }
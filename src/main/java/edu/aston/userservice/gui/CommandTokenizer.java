@@ -0,0 +1,136 @@
+package edu.aston.userservice.gui;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongConsumer;
+
+// Walks the space-separated tokens of one line in place, straight out of the read buffer.
+// Only values that must become objects (names, emails) are ever decoded into Strings.
+class CommandTokenizer {
+    private byte[] buffer;
+    private int position;
+    private int end;
+
+    private int tokenStart;
+    private int tokenEnd;
+
+    void reset(final byte[] buffer, final int start, final int end) {
+        this.buffer = buffer;
+        this.position = start;
+        this.end = end;
+        this.tokenStart = start;
+        this.tokenEnd = start;
+    }
+
+    boolean next() {
+        while(this.position < this.end && isSeparator(this.buffer[this.position])) {
+            this.position++;
+        }
+
+        if(this.position == this.end) {
+            return false;
+        }
+
+        this.tokenStart = this.position;
+
+        while(this.position < this.end && !isSeparator(this.buffer[this.position])) {
+            this.position++;
+        }
+
+        this.tokenEnd = this.position;
+
+        return true;
+    }
+
+    boolean is(final byte[] literal) {
+        if(this.tokenEnd - this.tokenStart != literal.length) {
+            return false;
+        }
+
+        for(int i = 0; i < literal.length; i++) {
+            if(this.buffer[this.tokenStart + i] != literal[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    boolean startsWith(final byte symbol) {
+        return this.tokenEnd > this.tokenStart && this.buffer[this.tokenStart] == symbol;
+    }
+
+    boolean contains(final byte symbol) {
+        for(int i = this.tokenStart; i < this.tokenEnd; i++) {
+            if(this.buffer[i] == symbol) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    String text() {
+        return new String(this.buffer, this.tokenStart, this.tokenEnd - this.tokenStart, StandardCharsets.UTF_8);
+    }
+
+    long longValue() {
+        return parseLong(this.tokenStart, this.tokenEnd);
+    }
+
+    int intValue() {
+        final long value = longValue();
+
+        if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range: " + text());
+        }
+
+        return (int) value;
+    }
+
+    // Splits the current token on commas and hands each part to the consumer as a long.
+    void forEachLong(final LongConsumer consumer) {
+        int start = this.tokenStart;
+
+        for(int i = this.tokenStart; i <= this.tokenEnd; i++) {
+            if(i == this.tokenEnd || this.buffer[i] == ',') {
+                if(i > start) {
+                    consumer.accept(parseLong(start, i));
+                }
+
+                start = i + 1;
+            }
+        }
+    }
+
+    private long parseLong(final int from, final int to) {
+        if(from == to) {
+            throw new NumberFormatException("Empty number");
+        }
+
+        final boolean negative = this.buffer[from] == '-';
+
+        int i = negative ? from + 1 : from;
+
+        if(i == to || to - i > 18) {
+            throw new NumberFormatException("Not a number: " + new String(this.buffer, from, to - from, StandardCharsets.UTF_8));
+        }
+
+        long value = 0L;
+
+        for(; i < to; i++) {
+            final int digit = this.buffer[i] - '0';
+
+            if(digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a number: " + new String(this.buffer, from, to - from, StandardCharsets.UTF_8));
+            }
+
+            value = value * 10 + digit;
+        }
+
+        return negative ? -value : value;
+    }
+
+    private static boolean isSeparator(final byte symbol) {
+        return symbol == ' ' || symbol == '\t' || symbol == '\r';
+    }
+}
@@ -0,0 +1,102 @@
+package edu.aston.userservice.metrics;
+
+import edu.aston.userservice.dao.UserDAO;
+import edu.aston.userservice.dao.UserDAOException;
+import edu.aston.userservice.dao.UserPatch;
+import edu.aston.userservice.dao.UserQuery;
+import edu.aston.userservice.dao.UserWrite;
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserView;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class InstrumentedUserDAO implements UserDAO {
+    private final UserDAO userDAO;
+
+    private final MetricsRegistry metrics;
+
+    public InstrumentedUserDAO(final UserDAO userDAO, final MetricsRegistry metrics) {
+        this.userDAO = userDAO;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public User create(final User user) throws UserDAOException {
+        return this.metrics.time("dao.create", () -> this.userDAO.create(user));
+    }
+
+    @Override
+    public int createAll(final Collection<User> users) throws UserDAOException {
+        return this.metrics.time("dao.createAll", () -> this.userDAO.createAll(users));
+    }
+
+    @Override
+    public int copyAll(final Collection<User> users) throws UserDAOException {
+        return this.metrics.time("dao.copyAll", () -> this.userDAO.copyAll(users));
+    }
+
+    @Override
+    public List<User> read() throws UserDAOException {
+        return this.metrics.time("dao.readAll", this.userDAO::read);
+    }
+
+    @Override
+    public List<User> read(final long afterId, final int limit) throws UserDAOException {
+        return this.metrics.time("dao.readPage", () -> this.userDAO.read(afterId, limit));
+    }
+
+    @Override
+    public Stream<User> stream(final int fetchSize) throws UserDAOException {
+        // Only opening the cursor is timed; consumption happens at the caller's pace.
+        return this.metrics.time("dao.stream", () -> this.userDAO.stream(fetchSize));
+    }
+
+    @Override
+    public Optional<User> read(final Long id) throws UserDAOException {
+        return this.metrics.time("dao.readById", () -> this.userDAO.read(id));
+    }
+
+    @Override
+    public Optional<User> readLatest(final Long id) throws UserDAOException {
+        return this.metrics.time("dao.readLatest", () -> this.userDAO.readLatest(id));
+    }
+
+    @Override
+    public Map<Long, User> read(final Collection<Long> ids) throws UserDAOException {
+        return this.metrics.time("dao.readByIds", () -> this.userDAO.read(ids));
+    }
+
+    @Override
+    public Optional<User> readByEmail(final String email) throws UserDAOException {
+        return this.metrics.time("dao.readByEmail", () -> this.userDAO.readByEmail(email));
+    }
+
+    @Override
+    public List<UserView> find(final UserQuery query) throws UserDAOException {
+        return this.metrics.time("dao.find", () -> this.userDAO.find(query));
+    }
+
+    @Override
+    public int update(final User user) throws UserDAOException {
+        return this.metrics.time("dao.update", () -> this.userDAO.update(user));
+    }
+
+    @Override
+    public int patch(final UserPatch patch) throws UserDAOException {
+        return this.metrics.time("dao.patch", () -> this.userDAO.patch(patch));
+    }
+
+    @Override
+    public int delete(final Long id) throws UserDAOException {
+        return this.metrics.time("dao.delete", () -> this.userDAO.delete(id));
+    }
+
+    @Override
+    public int[] applyAll(final List<UserWrite> writes) throws UserDAOException {
+        return this.metrics.time("dao.applyAll", () -> this.userDAO.applyAll(writes));
+    }
+}
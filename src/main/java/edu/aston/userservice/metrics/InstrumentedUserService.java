@@ -0,0 +1,100 @@
+package edu.aston.userservice.metrics;
+
+import edu.aston.userservice.dao.UserQuery;
+import edu.aston.userservice.dao.UserWrite;
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserView;
+import edu.aston.userservice.service.UserLookupResult;
+import edu.aston.userservice.service.UserService;
+import edu.aston.userservice.service.UserServiceException;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+public class InstrumentedUserService implements UserService {
+    private final UserService userService;
+
+    private final MetricsRegistry metrics;
+
+    public InstrumentedUserService(final UserService userService, final MetricsRegistry metrics) {
+        this.userService = userService;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public User createUser(final String name, final String email, final int age) throws UserServiceException {
+        return this.metrics.time("service.createUser", () -> this.userService.createUser(name, email, age));
+    }
+
+    @Override
+    public int importUsers(final Collection<User> users, final boolean useCopy) throws UserServiceException {
+        return this.metrics.time("service.importUsers", () -> this.userService.importUsers(users, useCopy));
+    }
+
+    @Override
+    public List<User> findAll() throws UserServiceException {
+        return this.metrics.time("service.findAll", this.userService::findAll);
+    }
+
+    @Override
+    public List<User> findPage(final long afterId, final int pageSize) throws UserServiceException {
+        return this.metrics.time("service.findPage", () -> this.userService.findPage(afterId, pageSize));
+    }
+
+    @Override
+    public Stream<User> streamAll(final int fetchSize) throws UserServiceException {
+        return this.metrics.time("service.streamAll", () -> this.userService.streamAll(fetchSize));
+    }
+
+    @Override
+    public User findById(final long id) throws UserServiceException {
+        return this.metrics.time("service.findById", () -> this.userService.findById(id));
+    }
+
+    @Override
+    public UserLookupResult findByIds(final Collection<Long> ids) throws UserServiceException {
+        return this.metrics.time("service.findByIds", () -> this.userService.findByIds(ids));
+    }
+
+    @Override
+    public User findByEmail(final String email) throws UserServiceException {
+        return this.metrics.time("service.findByEmail", () -> this.userService.findByEmail(email));
+    }
+
+    @Override
+    public List<UserView> find(final UserQuery query) throws UserServiceException {
+        return this.metrics.time("service.find", () -> this.userService.find(query));
+    }
+
+    @Override
+    public boolean updateUser(final long id, final String name, final String email, final int age) throws UserServiceException {
+        return this.metrics.time("service.updateUser", () -> this.userService.updateUser(id, name, email, age));
+    }
+
+    @Override
+    public boolean updateUser(final long id, final String name, final String email, final int age, final long expectedVersion) throws UserServiceException {
+        return this.metrics.time("service.updateUser", () -> this.userService.updateUser(id, name, email, age, expectedVersion));
+    }
+
+    @Override
+    public User updateUser(final long id, final UnaryOperator<User> change) throws UserServiceException {
+        return this.metrics.time("service.modifyUser", () -> this.userService.updateUser(id, change));
+    }
+
+    @Override
+    public boolean patchUser(final long id, final String name, final String email, final Integer age) throws UserServiceException {
+        return this.metrics.time("service.patchUser", () -> this.userService.patchUser(id, name, email, age));
+    }
+
+    @Override
+    public boolean deleteById(final long id) throws UserServiceException {
+        return this.metrics.time("service.deleteById", () -> this.userService.deleteById(id));
+    }
+
+    @Override
+    public int[] applyWrites(final List<UserWrite> writes) throws UserServiceException {
+        return this.metrics.time("service.applyWrites", () -> this.userService.applyWrites(writes));
+    }
+}
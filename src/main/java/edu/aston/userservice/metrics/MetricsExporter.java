@@ -0,0 +1,133 @@
+package edu.aston.userservice.metrics;
+
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class MetricsExporter implements MetricsMXBean, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsExporter.class);
+
+    private static final String OBJECT_NAME = "edu.aston.userservice:type=Metrics";
+
+    private final MetricsRegistry metrics;
+    private final SessionFactory sessionFactory;
+    private final Path file;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "metrics-exporter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private MetricsExporter(final MetricsRegistry metrics, final SessionFactory sessionFactory, final Path file) {
+        this.metrics = metrics;
+        this.sessionFactory = sessionFactory;
+        this.file = file;
+    }
+
+    public static MetricsExporter start(final MetricsRegistry metrics, final SessionFactory sessionFactory, final Path file,
+                                        final long intervalSeconds) {
+        final MetricsExporter exporter = new MetricsExporter(metrics, sessionFactory, file);
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(exporter, new ObjectName(OBJECT_NAME));
+        }
+        catch(JMException exception) {
+            logger.warn("Could not register the metrics MBean: {}.", exception.getMessage());
+        }
+
+        if(intervalSeconds > 0) {
+            exporter.scheduler.scheduleAtFixedRate(exporter::export, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+
+            logger.info("Exporting metrics to {} every {} s.", file, intervalSeconds);
+        }
+
+        return exporter;
+    }
+
+    private void export() {
+        try {
+            if(this.file.getParent() != null) {
+                Files.createDirectories(this.file.getParent());
+            }
+
+            Files.writeString(this.file, MetricsReport.json(this.metrics, this.sessionFactory) + System.lineSeparator(), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        catch(IOException | RuntimeException exception) {
+            logger.warn("Could not export metrics to {}: {}.", this.file, exception.getMessage());
+        }
+    }
+
+    @Override
+    public String getReport() {
+        return MetricsReport.text(this.metrics, this.sessionFactory);
+    }
+
+    @Override
+    public Map<String, Long> getCounts() {
+        final Map<String, Long> map = new TreeMap<>();
+
+        this.metrics.snapshot().forEach(snapshot -> map.put(snapshot.name(), snapshot.count()));
+
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        final Map<String, Long> map = new TreeMap<>();
+
+        this.metrics.snapshot().forEach(snapshot -> map.put(snapshot.name(), snapshot.errors()));
+
+        return map;
+    }
+
+    @Override
+    public Map<String, Double> getP99Micros() {
+        final Map<String, Double> map = new TreeMap<>();
+
+        this.metrics.snapshot().forEach(snapshot -> map.put(snapshot.name(), snapshot.p99Micros()));
+
+        return map;
+    }
+
+    @Override
+    public Map<String, Double> getGauges() {
+        return new TreeMap<>(this.metrics.gauges());
+    }
+
+    @Override
+    public void close() {
+        this.scheduler.shutdown();
+
+        export();
+
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(OBJECT_NAME);
+
+            if(server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        }
+        catch(JMException exception) {
+            logger.warn("Could not unregister the metrics MBean: {}.", exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package edu.aston.userservice.metrics;
+
+import java.util.Map;
+
+public interface MetricsMXBean {
+    String getReport();
+    Map<String, Long> getCounts();
+    Map<String, Long> getErrors();
+    Map<String, Double> getP99Micros();
+    Map<String, Double> getGauges();
+}
@@ -0,0 +1,68 @@
+package edu.aston.userservice.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+public class MetricsRegistry {
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    public interface TimedCall<T, E extends Exception> { T call() throws E; }
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private final Map<String, DoubleSupplier> gauges = new ConcurrentHashMap<>();
+
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public OperationMetrics operation(final String name) {
+        return this.operations.computeIfAbsent(name, OperationMetrics::new);
+    }
+
+    public <T, E extends Exception> T time(final String name, final TimedCall<T, E> call) throws E {
+        final OperationMetrics metrics = operation(name);
+
+        final long start = System.nanoTime();
+
+        boolean failed = true;
+
+        try {
+            final T result = call.call();
+
+            failed = false;
+
+            return result;
+        }
+        finally {
+            metrics.record(System.nanoTime() - start, failed);
+        }
+    }
+
+    // Gauges are read when a report is built, so components can publish counters they already keep.
+    public void gauge(final String name, final DoubleSupplier value) {
+        this.gauges.put(name, value);
+    }
+
+    public Map<String, Double> gauges() {
+        final Map<String, Double> values = new ConcurrentSkipListMap<>();
+
+        this.gauges.forEach((name, value) -> values.put(name, value.getAsDouble()));
+
+        return values;
+    }
+
+    public List<OperationMetrics.Snapshot> snapshot() {
+        final List<OperationMetrics.Snapshot> list = new ArrayList<>();
+
+        for(final OperationMetrics metrics : new ConcurrentSkipListMap<>(this.operations).values()) {
+            list.add(metrics.snapshot());
+        }
+
+        return list;
+    }
+}
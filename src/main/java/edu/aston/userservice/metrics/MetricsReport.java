@@ -0,0 +1,125 @@
+package edu.aston.userservice.metrics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class MetricsReport {
+    private MetricsReport() {}
+
+    public static String text(final MetricsRegistry metrics, final SessionFactory sessionFactory) {
+        final StringBuilder builder = new StringBuilder("OPERATIONS");
+
+        for(final OperationMetrics.Snapshot snapshot : metrics.snapshot()) {
+            builder.append("\n").append(snapshot);
+        }
+
+        final Map<String, Double> gauges = metrics.gauges();
+
+        if(!gauges.isEmpty()) {
+            builder.append("\nGAUGES");
+
+            gauges.forEach((name, value) -> builder.append("\n").append(name).append('=').append(format(value)));
+        }
+
+        builder.append("\nHIBERNATE");
+
+        hibernateStatistics(sessionFactory).forEach((name, value) -> builder.append("\n").append(name).append('=').append(value));
+
+        return builder.toString();
+    }
+
+    public static String json(final MetricsRegistry metrics, final SessionFactory sessionFactory) {
+        final StringBuilder builder = new StringBuilder(512);
+
+        builder.append("{\"timestamp\":\"").append(Instant.now()).append("\",\"operations\":{");
+
+        final List<OperationMetrics.Snapshot> snapshots = metrics.snapshot();
+
+        for(int i = 0; i < snapshots.size(); i++) {
+            final OperationMetrics.Snapshot snapshot = snapshots.get(i);
+
+            if(i > 0) {
+                builder.append(',');
+            }
+
+            builder.append('"').append(snapshot.name()).append("\":{")
+                    .append("\"count\":").append(snapshot.count())
+                    .append(",\"errors\":").append(snapshot.errors())
+                    .append(",\"p50Micros\":").append(snapshot.p50Micros())
+                    .append(",\"p99Micros\":").append(snapshot.p99Micros())
+                    .append(",\"p999Micros\":").append(snapshot.p999Micros())
+                    .append(",\"maxMicros\":").append(snapshot.maxMicros())
+                    .append('}');
+        }
+
+        builder.append("},\"gauges\":{");
+
+        boolean first = true;
+
+        for(final Map.Entry<String, Double> entry : metrics.gauges().entrySet()) {
+            if(!first) {
+                builder.append(',');
+            }
+
+            builder.append('"').append(entry.getKey()).append("\":").append(format(entry.getValue()));
+            first = false;
+        }
+
+        builder.append("},\"hibernate\":{");
+
+        first = true;
+
+        for(final Map.Entry<String, Long> entry : hibernateStatistics(sessionFactory).entrySet()) {
+            if(!first) {
+                builder.append(',');
+            }
+
+            builder.append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+            first = false;
+        }
+
+        return builder.append("}}").toString();
+    }
+
+    private static String format(final double value) {
+        // Counters print as whole numbers; ratios keep three decimals. NaN is not valid JSON, so it prints as 0.
+        if(Double.isNaN(value)) {
+            return "0";
+        }
+
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    public static Map<String, Long> hibernateStatistics(final SessionFactory sessionFactory) {
+        final Map<String, Long> map = new LinkedHashMap<>();
+
+        // A report taken during shutdown must not rebuild the factory, so a closed one simply has no statistics.
+        if(!sessionFactory.isOpen() || !sessionFactory.getStatistics().isStatisticsEnabled()) {
+            return map;
+        }
+
+        final Statistics statistics = sessionFactory.getStatistics();
+
+        map.put("queries", statistics.getQueryExecutionCount());
+        map.put("queryMaxMillis", statistics.getQueryExecutionMaxTime());
+        map.put("statementsPrepared", statistics.getPrepareStatementCount());
+        map.put("entityLoads", statistics.getEntityLoadCount());
+        map.put("entityInserts", statistics.getEntityInsertCount());
+        map.put("flushes", statistics.getFlushCount());
+        map.put("transactions", statistics.getTransactionCount());
+        map.put("connectionsObtained", statistics.getConnectCount());
+        map.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        map.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        map.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+        map.put("naturalIdCacheHits", statistics.getNaturalIdCacheHitCount());
+        map.put("naturalIdCacheMisses", statistics.getNaturalIdCacheMissCount());
+
+        return map;
+    }
+}
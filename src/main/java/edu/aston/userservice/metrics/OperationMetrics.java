@@ -0,0 +1,61 @@
+package edu.aston.userservice.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class OperationMetrics {
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String name;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+
+    private final Histogram total = new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    private Histogram interval;
+
+    public OperationMetrics(final String name) {
+        this.name = name;
+    }
+
+    public void record(final long nanos, final boolean failed) {
+        this.count.increment();
+
+        if(failed) {
+            this.errors.increment();
+        }
+
+        this.recorder.recordValue(Math.min(Math.max(nanos, 0L), HIGHEST_TRACKABLE_NANOS));
+    }
+
+    public void recordError() {
+        this.count.increment();
+        this.errors.increment();
+    }
+
+    public synchronized Snapshot snapshot() {
+        // The recorder swaps its active histogram, so writers never contend with readers.
+        this.interval = this.recorder.getIntervalHistogram(this.interval);
+        this.total.add(this.interval);
+
+        return new Snapshot(this.name, this.count.sum(), this.errors.sum(),
+                this.total.getValueAtPercentile(50.0) / 1_000.0,
+                this.total.getValueAtPercentile(99.0) / 1_000.0,
+                this.total.getValueAtPercentile(99.9) / 1_000.0,
+                this.total.getMaxValue() / 1_000.0);
+    }
+
+    public record Snapshot(String name, long count, long errors, double p50Micros, double p99Micros, double p999Micros, double maxMicros) {
+        @Override
+        public String toString() {
+            return String.format("%-28s count=%d errors=%d p50=%.1fus p99=%.1fus p999=%.1fus max=%.1fus",
+                    this.name, this.count, this.errors, this.p50Micros, this.p99Micros, this.p999Micros, this.maxMicros);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package edu.aston.userservice.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+
+import java.util.concurrent.TimeUnit;
+
+public class PoolMetricsTracker implements IMetricsTracker {
+    private final OperationMetrics acquire;
+    private final OperationMetrics usage;
+
+    public PoolMetricsTracker(final MetricsRegistry metrics, final String poolName) {
+        this.acquire = metrics.operation("pool." + poolName + ".acquire");
+        this.usage = metrics.operation("pool." + poolName + ".usage");
+    }
+
+    @Override
+    public void recordConnectionAcquiredNanos(final long elapsedAcquiredNanos) {
+        this.acquire.record(elapsedAcquiredNanos, false);
+    }
+
+    @Override
+    public void recordConnectionUsageMillis(final long elapsedBorrowedMillis) {
+        this.usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis), false);
+    }
+
+    @Override
+    public void recordConnectionTimeout() {
+        this.acquire.recordError();
+    }
+}
@@ -0,0 +1,14 @@
+package edu.aston.userservice.metrics;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+// Named by class in hibernate.cfg.xml; HikariCP creates it through the no-argument constructor.
+// The primary and every replica get their own pool, so each one is timed under its own name.
+public class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+    @Override
+    public IMetricsTracker create(final String poolName, final PoolStats poolStats) {
+        return new PoolMetricsTracker(MetricsRegistry.getDefault(), poolName);
+    }
+}
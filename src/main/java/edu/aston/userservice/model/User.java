@@ -1,29 +1,54 @@
 package edu.aston.userservice.model;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "users_name_idx", columnList = "name"),
+        @Index(name = "users_age_idx", columnList = "age"),
+        @Index(name = "users_created_at_idx", columnList = "created_at")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.EMAIL_CACHE_REGION)
 public class User {
-    private static final int MAX_NAME_LENGTH = 25;
-    private static final int MAX_EMAIL_LENGTH = 50;
+    public static final int MAX_NAME_LENGTH = 25;
+    public static final int MAX_EMAIL_LENGTH = 50;
+
+    public static final String CACHE_REGION = "users";
+    public static final String EMAIL_CACHE_REGION = "users-email";
+
+    public static final String ID_SEQUENCE = "users_seq";
+    public static final int ID_ALLOCATION_SIZE = 50;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_generator")
+    @SequenceGenerator(name = "users_id_generator", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     @Column(name = "id", unique = true)
     private Long id;
 
     @Column(name = "name", nullable = false, length = MAX_NAME_LENGTH)
     private String name;
 
+    @NaturalId(mutable = true)
     @Column(name = "email", nullable = false, length = MAX_EMAIL_LENGTH, unique = true)
     private String email;
 
@@ -33,6 +58,12 @@ public class User {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    // Rows written by COPY or by an older schema start at version 0.
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public User() {}
 
     public User(final String name, final String email, final int age) {
@@ -47,7 +78,19 @@ public class User {
         this.name = name;
         this.email = email;
         this.age = age;
-        this.createdAt = LocalDateTime.now();
+    }
+
+    public User(final long id, final String name, final String email, final Integer age, final LocalDateTime createdAt) {
+        this.id = id;
+        this.name = name;
+        this.email = email;
+        this.age = age;
+        this.createdAt = createdAt;
+    }
+
+    public User(final long id, final String name, final String email, final Integer age, final LocalDateTime createdAt, final Long version) {
+        this(id, name, email, age, createdAt);
+        this.version = version;
     }
 
     public Long getId() {
@@ -70,6 +113,10 @@ public class User {
         return this.createdAt;
     }
 
+    public Long getVersion() {
+        return this.version;
+    }
+
     @Override
     public boolean equals(final Object object) {
         if(object == null || this.getClass() != object.getClass()) {
@@ -82,12 +129,13 @@ public class User {
                 Objects.equals(this.name, another.name) &&
                 Objects.equals(this.email, another.email) &&
                 Objects.equals(this.age, another.age) &&
-                Objects.equals(this.createdAt, another.createdAt);
+                Objects.equals(this.createdAt, another.createdAt) &&
+                Objects.equals(this.version, another.version);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.id, this.name, this.email, this.age, this.createdAt);
+        return Objects.hash(this.id, this.name, this.email, this.age, this.createdAt, this.version);
     }
 
     @Override
@@ -98,6 +146,7 @@ public class User {
                 ", email=" + this.email +
                 ", age=" + this.age +
                 ", createdAt=" + this.createdAt +
+                ", version=" + this.version +
                 "}";
     }
 }
@@ -0,0 +1,95 @@
+package edu.aston.userservice.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+// One row of the user_changes outbox. Rows are written in the same transaction as the change they describe
+// and are never updated; deletes only carry the user ID.
+@Entity
+@Immutable
+@Table(name = "user_changes")
+public class UserChange {
+    public enum Operation { INSERT, UPDATE, DELETE }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id")
+    private Long sequence;
+
+    @Column(name = "user_id", nullable = false)
+    private long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "operation", nullable = false, length = 6)
+    private Operation operation;
+
+    @Column(name = "name", length = User.MAX_NAME_LENGTH)
+    private String name;
+
+    @Column(name = "email", length = User.MAX_EMAIL_LENGTH)
+    private String email;
+
+    @Column(name = "age")
+    private Integer age;
+
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @Column(name = "changed_at", nullable = false, insertable = false, updatable = false)
+    private LocalDateTime changedAt;
+
+    // The writing transaction lets the feed hold back rows of transactions that may still commit below the newest sequence.
+    @Column(name = "transaction_id", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "xid8 DEFAULT pg_current_xact_id()")
+    private String transactionId;
+
+    protected UserChange() {}
+
+    public Long getSequence() {
+        return this.sequence;
+    }
+
+    public long getUserId() {
+        return this.userId;
+    }
+
+    public Operation getOperation() {
+        return this.operation;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public String getEmail() {
+        return this.email;
+    }
+
+    public Integer getAge() {
+        return this.age;
+    }
+
+    public LocalDateTime getChangedAt() {
+        return this.changedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "UserChange{" +
+                "sequence=" + this.sequence +
+                ", userId=" + this.userId +
+                ", operation=" + this.operation +
+                (this.operation == Operation.DELETE ? "" : ", name=" + this.name + ", email=" + this.email + ", age=" + this.age) +
+                ", changedAt=" + this.changedAt +
+                "}";
+    }
+}
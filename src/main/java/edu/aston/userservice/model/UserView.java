@@ -0,0 +1,31 @@
+package edu.aston.userservice.model;
+
+import java.time.LocalDateTime;
+
+// A detached row of selected user columns; columns left out of the projection are null.
+public record UserView(Long id, String name, String email, Integer age, LocalDateTime createdAt) {
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("UserView{");
+
+        append(builder, "id", this.id);
+        append(builder, "name", this.name);
+        append(builder, "email", this.email);
+        append(builder, "age", this.age);
+        append(builder, "createdAt", this.createdAt);
+
+        return builder.append('}').toString();
+    }
+
+    private static void append(final StringBuilder builder, final String name, final Object value) {
+        if(value == null) {
+            return;
+        }
+
+        if(builder.charAt(builder.length() - 1) != '{') {
+            builder.append(", ");
+        }
+
+        builder.append(name).append('=').append(value);
+    }
+}
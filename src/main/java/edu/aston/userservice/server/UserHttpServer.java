@@ -0,0 +1,320 @@
+package edu.aston.userservice.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import edu.aston.userservice.dao.CircuitOpenException;
+import edu.aston.userservice.dao.UserDAOException;
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.service.UserConflictException;
+import edu.aston.userservice.service.UserNotFoundException;
+import edu.aston.userservice.service.UserService;
+import edu.aston.userservice.service.UserServiceException;
+import edu.aston.userservice.service.UserStatsService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Stream;
+
+public class UserHttpServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(UserHttpServer.class);
+
+    private static final String CONTEXT = "/users";
+    private static final int STREAM_FETCH_SIZE = 1_000;
+    private static final int STOP_DELAY_SECONDS = 2;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final UserService userService;
+
+    private final UserStatsService userStatsService;
+
+    private final Semaphore inFlight;
+
+    public UserHttpServer(final UserService userService, final int port, final int maxInFlight) throws IOException {
+        this(userService, null, port, maxInFlight);
+    }
+
+    public UserHttpServer(final UserService userService, final UserStatsService userStatsService, final int port, final int maxInFlight) throws IOException {
+        this.userService = userService;
+        this.userStatsService = userStatsService;
+        this.inFlight = new Semaphore(maxInFlight);
+
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.setExecutor(this.executor);
+        this.server.createContext(CONTEXT, this::handle);
+    }
+
+    public void start() {
+        this.server.start();
+
+        logger.info("HTTP server is listening on port {}.", this.server.getAddress().getPort());
+    }
+
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        // Over the limit the request is refused straight away instead of queueing behind the connection pool.
+        if(!this.inFlight.tryAcquire()) {
+            drain(exchange);
+            send(exchange, 503, "{\"error\":\"Too many requests in flight\"}");
+            return;
+        }
+
+        // Not a try-with-resources: that would close the exchange before a catch block could write the error response.
+        try {
+            route(exchange);
+        }
+        catch(IllegalArgumentException exception) {
+            send(exchange, 400, error(exception.getMessage()));
+        }
+        catch(UserNotFoundException exception) {
+            send(exchange, 404, error(exception.getMessage()));
+        }
+        catch(UserConflictException exception) {
+            send(exchange, 409, error(exception.getMessage()));
+        }
+        catch(UserServiceException exception) {
+            // The breaker rejected the call without touching the database; the client may try again shortly.
+            if(exception.getCause() instanceof CircuitOpenException) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 503, error(exception.getCause().getMessage()));
+                return;
+            }
+
+            final boolean serverError = exception.getCause() instanceof UserDAOException;
+
+            send(exchange, serverError ? 500 : 400, error(describe(exception)));
+        }
+        catch(RuntimeException exception) {
+            logger.error("Failed to handle {} {}: {}.", exchange.getRequestMethod(), exchange.getRequestURI(), exception.getMessage());
+            send(exchange, 500, error("Internal server error"));
+        }
+        finally {
+            exchange.close();
+            this.inFlight.release();
+        }
+    }
+
+    private void route(final HttpExchange exchange) throws IOException, UserServiceException {
+        final String method = exchange.getRequestMethod();
+        final String path = exchange.getRequestURI().getPath();
+
+        final String tail = path.length() > CONTEXT.length() ? path.substring(CONTEXT.length() + 1) : "";
+
+        if(tail.isEmpty()) {
+            switch(method) {
+                case "GET" -> list(exchange);
+                case "POST" -> create(exchange);
+                default -> send(exchange, 405, error("Method not allowed"));
+            }
+
+            return;
+        }
+
+        if("stats".equals(tail) && "GET".equals(method) && this.userStatsService != null) {
+            send(exchange, 200, "{\"users\":" + this.userStatsService.countUsers() + "}");
+            return;
+        }
+
+        final long id = Long.parseLong(tail);
+
+        switch(method) {
+            case "GET" -> read(exchange, id);
+            case "PUT" -> update(exchange, id);
+            case "PATCH" -> patch(exchange, id);
+            case "DELETE" -> send(exchange, this.userService.deleteById(id) ? 204 : 404, null);
+            default -> send(exchange, 405, error("Method not allowed"));
+        }
+    }
+
+    private void read(final HttpExchange exchange, final long id) throws IOException, UserServiceException {
+        final User user = this.userService.findById(id);
+
+        if(user.getVersion() != null) {
+            exchange.getResponseHeaders().set("ETag", "\"" + user.getVersion() + "\"");
+        }
+
+        send(exchange, 200, UserJson.append(new StringBuilder(), user).toString());
+    }
+
+    private void create(final HttpExchange exchange) throws IOException, UserServiceException {
+        final Map<String, String> body = readBody(exchange);
+
+        final User user = this.userService.createUser(body.get("name"), body.get("email"), parseAge(body.get("age")));
+
+        send(exchange, 201, UserJson.append(new StringBuilder(), user).toString());
+    }
+
+    private void update(final HttpExchange exchange, final long id) throws IOException, UserServiceException {
+        final Map<String, String> body = readBody(exchange);
+
+        // With If-Match the update only applies to the version the client read; a newer row answers 409. Without it the
+        // update is unconditional and the last writer wins.
+        final String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+
+        final boolean updated = ifMatch == null
+                ? this.userService.updateUser(id, body.get("name"), body.get("email"), parseAge(body.get("age")))
+                : this.userService.updateUser(id, body.get("name"), body.get("email"), parseAge(body.get("age")), parseVersion(ifMatch));
+
+        send(exchange, updated ? 204 : 404, null);
+    }
+
+    private void patch(final HttpExchange exchange, final long id) throws IOException, UserServiceException {
+        final Map<String, String> body = readBody(exchange);
+
+        final String age = body.get("age");
+
+        final boolean patched = this.userService.patchUser(id, body.get("name"), body.get("email"), age == null ? null : Integer.parseInt(age));
+
+        send(exchange, patched ? 204 : 404, null);
+    }
+
+    private void list(final HttpExchange exchange) throws IOException, UserServiceException {
+        final Map<String, String> query = parseQuery(exchange.getRequestURI());
+
+        if(query.containsKey("email")) {
+            send(exchange, 200, UserJson.append(new StringBuilder(), this.userService.findByEmail(query.get("email"))).toString());
+            return;
+        }
+
+        if(query.containsKey("limit")) {
+            final List<User> page = this.userService.findPage(Long.parseLong(query.getOrDefault("afterId", "0")),
+                    Integer.parseInt(query.get("limit")));
+
+            writeArray(exchange, page.iterator());
+            return;
+        }
+
+        try(Stream<User> users = this.userService.streamAll(STREAM_FETCH_SIZE)) {
+            writeArray(exchange, users.iterator());
+        }
+    }
+
+    private static void writeArray(final HttpExchange exchange, final Iterator<User> users) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+
+        // Length 0 selects chunked encoding, so rows go out as they are read and nothing is buffered whole.
+        exchange.sendResponseHeaders(200, 0);
+
+        try(Writer writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+            final StringBuilder builder = new StringBuilder(256);
+
+            writer.write('[');
+
+            boolean first = true;
+
+            while(users.hasNext()) {
+                builder.setLength(0);
+
+                if(!first) {
+                    builder.append(',');
+                }
+
+                UserJson.append(builder, users.next());
+                writer.append(builder);
+
+                first = false;
+            }
+
+            writer.write(']');
+        }
+    }
+
+    private static Map<String, String> readBody(final HttpExchange exchange) throws IOException {
+        try(InputStream body = exchange.getRequestBody()) {
+            return UserJson.parseObject(new String(body.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Map<String, String> parseQuery(final URI uri) {
+        final Map<String, String> query = new HashMap<>();
+
+        if(uri.getQuery() == null) {
+            return query;
+        }
+
+        for(final String pair : uri.getQuery().split("&")) {
+            final int separator = pair.indexOf('=');
+
+            if(separator > 0) {
+                query.put(pair.substring(0, separator), pair.substring(separator + 1));
+            }
+        }
+
+        return query;
+    }
+
+    private static int parseAge(final String age) {
+        if(age == null) {
+            throw new IllegalArgumentException("The user's age is missing");
+        }
+
+        return Integer.parseInt(age);
+    }
+
+    private static long parseVersion(final String ifMatch) {
+        final String tag = ifMatch.trim();
+
+        return Long.parseLong(tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"") ? tag.substring(1, tag.length() - 1) : tag);
+    }
+
+    private static void drain(final HttpExchange exchange) throws IOException {
+        // The body has to be consumed for the connection to stay usable for keep-alive.
+        try(InputStream body = exchange.getRequestBody()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static void send(final HttpExchange exchange, final int status, final String body) throws IOException {
+        if(body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+
+        final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        try(OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static String describe(final UserServiceException exception) {
+        return exception.getCause() instanceof UserServiceException cause ? cause.getMessage() : exception.getMessage();
+    }
+
+    private static String error(final String message) {
+        return UserJson.appendString(new StringBuilder("{\"error\":"), message).append('}').toString();
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(STOP_DELAY_SECONDS);
+        this.executor.close();
+
+        logger.info("HTTP server was stopped.");
+    }
+}
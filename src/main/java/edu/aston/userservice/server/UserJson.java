@@ -0,0 +1,182 @@
+package edu.aston.userservice.server;
+
+import edu.aston.userservice.model.User;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class UserJson {
+    private UserJson() {}
+
+    public static StringBuilder append(final StringBuilder builder, final User user) {
+        builder.append("{\"id\":").append(user.getId()).append(",\"name\":");
+        appendString(builder, user.getName()).append(",\"email\":");
+        appendString(builder, user.getEmail()).append(",\"age\":").append(user.getAge()).append(",\"createdAt\":");
+
+        if(user.getCreatedAt() == null) {
+            builder.append("null");
+        }
+        else {
+            builder.append('"').append(user.getCreatedAt()).append('"');
+        }
+
+        return builder.append(",\"version\":").append(user.getVersion()).append('}');
+    }
+
+    public static StringBuilder appendString(final StringBuilder builder, final String value) {
+        if(value == null) {
+            return builder.append("null");
+        }
+
+        builder.append('"');
+
+        for(int i = 0; i < value.length(); i++) {
+            final char symbol = value.charAt(i);
+
+            switch(symbol) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if(symbol < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) symbol));
+                    }
+                    else {
+                        builder.append(symbol);
+                    }
+                }
+            }
+        }
+
+        return builder.append('"');
+    }
+
+    // Reads one flat JSON object whose values are strings, numbers, booleans or null.
+    public static Map<String, String> parseObject(final String json) {
+        final Map<String, String> fields = new HashMap<>();
+
+        final Reader reader = new Reader(json);
+
+        reader.expect('{');
+
+        if(reader.peek() == '}') {
+            return fields;
+        }
+
+        do {
+            final String key = reader.string();
+
+            reader.expect(':');
+
+            fields.put(key, reader.peek() == '"' ? reader.string() : reader.literal());
+        } while(reader.next(',', '}') == ',');
+
+        return fields;
+    }
+
+    private static class Reader {
+        private final String json;
+
+        private int position;
+
+        Reader(final String json) {
+            this.json = json;
+        }
+
+        char peek() {
+            skipWhitespace();
+
+            if(this.position >= this.json.length()) {
+                throw new IllegalArgumentException("Unexpected end of JSON");
+            }
+
+            return this.json.charAt(this.position);
+        }
+
+        void expect(final char expected) {
+            if(peek() != expected) {
+                throw new IllegalArgumentException("Expected '" + expected + "' at position " + this.position);
+            }
+
+            this.position++;
+        }
+
+        char next(final char first, final char second) {
+            final char symbol = peek();
+
+            if(symbol != first && symbol != second) {
+                throw new IllegalArgumentException("Expected '" + first + "' or '" + second + "' at position " + this.position);
+            }
+
+            this.position++;
+
+            return symbol;
+        }
+
+        String string() {
+            expect('"');
+
+            final StringBuilder builder = new StringBuilder();
+
+            while(this.position < this.json.length()) {
+                final char symbol = this.json.charAt(this.position++);
+
+                if(symbol == '"') {
+                    return builder.toString();
+                }
+
+                if(symbol != '\\') {
+                    builder.append(symbol);
+                    continue;
+                }
+
+                if(this.position >= this.json.length()) {
+                    break;
+                }
+
+                final char escaped = this.json.charAt(this.position++);
+
+                switch(escaped) {
+                    case 'n' -> builder.append('\n');
+                    case 'r' -> builder.append('\r');
+                    case 't' -> builder.append('\t');
+                    case 'b' -> builder.append('\b');
+                    case 'f' -> builder.append('\f');
+                    case 'u' -> {
+                        if(this.position + 4 > this.json.length()) {
+                            throw new IllegalArgumentException("Unterminated JSON string");
+                        }
+
+                        builder.append((char) Integer.parseInt(this.json.substring(this.position, this.position + 4), 16));
+                        this.position += 4;
+                    }
+                    default -> builder.append(escaped);
+                }
+            }
+
+            throw new IllegalArgumentException("Unterminated JSON string");
+        }
+
+        String literal() {
+            peek();
+
+            final int start = this.position;
+
+            while(this.position < this.json.length() && ",}] \t\r\n".indexOf(this.json.charAt(this.position)) < 0) {
+                this.position++;
+            }
+
+            final String literal = this.json.substring(start, this.position);
+
+            return "null".equals(literal) ? null : literal;
+        }
+
+        private void skipWhitespace() {
+            while(this.position < this.json.length() && Character.isWhitespace(this.json.charAt(this.position))) {
+                this.position++;
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package edu.aston.userservice.service;
+
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.util.HibernateUtil;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncUserService implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(AsyncUserService.class);
+
+    public static final long DEFAULT_ACQUIRE_TIMEOUT_MILLIS = 30_000L;
+
+    private interface Call<T> { T call() throws UserServiceException; }
+
+    private final UserService userService;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long acquireTimeoutMillis;
+
+    public AsyncUserService(final UserService userService, final int maxConcurrency, final long acquireTimeoutMillis) {
+        if(maxConcurrency < 1) {
+            throw new IllegalArgumentException("The concurrency limit must be greater than 0");
+        }
+
+        if(acquireTimeoutMillis < 0) {
+            throw new IllegalArgumentException("The acquire timeout must not be negative");
+        }
+
+        this.userService = userService;
+        this.maxConcurrency = maxConcurrency;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.permits = new Semaphore(maxConcurrency, true);
+    }
+
+    public static AsyncUserService forConnectionPool(final UserService userService) {
+        // More concurrent calls than pooled connections would only queue inside the pool.
+        return new AsyncUserService(userService, HibernateUtil.getPoolStats().maximumSize(), DEFAULT_ACQUIRE_TIMEOUT_MILLIS);
+    }
+
+    public CompletableFuture<User> createUser(final String name, final String email, final int age) {
+        return submit(() -> this.userService.createUser(name, email, age));
+    }
+
+    public CompletableFuture<List<User>> findPage(final long afterId, final int pageSize) {
+        return submit(() -> this.userService.findPage(afterId, pageSize));
+    }
+
+    public CompletableFuture<User> findById(final long id) {
+        return submit(() -> this.userService.findById(id));
+    }
+
+    public CompletableFuture<UserLookupResult> findByIds(final Collection<Long> ids) {
+        return submit(() -> this.userService.findByIds(ids));
+    }
+
+    public CompletableFuture<User> findByEmail(final String email) {
+        return submit(() -> this.userService.findByEmail(email));
+    }
+
+    public CompletableFuture<Boolean> updateUser(final long id, final String name, final String email, final int age) {
+        return submit(() -> this.userService.updateUser(id, name, email, age));
+    }
+
+    public CompletableFuture<Boolean> deleteById(final long id) {
+        return submit(() -> this.userService.deleteById(id));
+    }
+
+    public int getMaxConcurrency() {
+        return this.maxConcurrency;
+    }
+
+    public int getInFlight() {
+        return this.maxConcurrency - this.permits.availablePermits();
+    }
+
+    private <T> CompletableFuture<T> submit(final Call<T> call) {
+        try {
+            // Admission happens on the caller's thread, so a producer over the limit waits at most the acquire timeout
+            // (or fails at once when it is 0) instead of starting a virtual thread per request that parks for a permit.
+            if(!this.permits.tryAcquire(this.acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                logger.warn("Rejected a request: {} requests are already in flight.", this.maxConcurrency);
+                return CompletableFuture.failedFuture(new UserServiceException("Too many concurrent requests to the user service"));
+            }
+        }
+        catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(new UserServiceException("Interrupted while waiting for the user service", exception));
+        }
+
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        try {
+            this.executor.execute(() -> {
+                try {
+                    future.complete(call.call());
+                }
+                catch(Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                }
+                finally {
+                    this.permits.release();
+                }
+            });
+        }
+        catch(RejectedExecutionException exception) {
+            this.permits.release();
+            future.completeExceptionally(new UserServiceException("The user service is shut down", exception));
+        }
+
+        return future;
+    }
+
+    @Override
+    public void close() {
+        this.executor.close();
+    }
+}
@@ -0,0 +1,147 @@
+package edu.aston.userservice.service;
+
+import edu.aston.userservice.model.User;
+
+public class DefaultUserValidator implements UserValidator {
+    public static final int MIN_AGE = 18;
+    public static final int MAX_AGE = 99;
+
+    private static final boolean[] LOCAL_PART = new boolean[128];
+    private static final boolean[] DOMAIN_PART = new boolean[128];
+
+    static {
+        for(char symbol = 'a'; symbol <= 'z'; symbol++) {
+            LOCAL_PART[symbol] = DOMAIN_PART[symbol] = true;
+            LOCAL_PART[Character.toUpperCase(symbol)] = DOMAIN_PART[Character.toUpperCase(symbol)] = true;
+        }
+
+        for(char symbol = '0'; symbol <= '9'; symbol++) {
+            LOCAL_PART[symbol] = DOMAIN_PART[symbol] = true;
+        }
+
+        for(final char symbol : "!#$%&'*+/=?^_`{|}~-.".toCharArray()) {
+            LOCAL_PART[symbol] = true;
+        }
+
+        DOMAIN_PART['-'] = DOMAIN_PART['.'] = true;
+    }
+
+    @Override
+    public int validate(final String name, final String email, final int age) {
+        int errors = VALID;
+
+        if(name == null || name.isEmpty() || !isLetters(name)) {
+            errors |= ValidationError.INVALID_NAME.flag();
+        }
+        else if(name.length() > User.MAX_NAME_LENGTH) {
+            errors |= ValidationError.NAME_TOO_LONG.flag();
+        }
+
+        errors |= validateEmail(email);
+
+        if(age < MIN_AGE || age > MAX_AGE) {
+            errors |= ValidationError.AGE_OUT_OF_RANGE.flag();
+        }
+
+        return errors;
+    }
+
+    @Override
+    public int validateEmail(final String email) {
+        if(email == null || !isEmail(email)) {
+            return ValidationError.INVALID_EMAIL.flag();
+        }
+
+        return email.length() > User.MAX_EMAIL_LENGTH ? ValidationError.EMAIL_TOO_LONG.flag() : VALID;
+    }
+
+    private static boolean isLetters(final String value) {
+        for(int i = 0; i < value.length(); ) {
+            final char symbol = value.charAt(i);
+
+            if(symbol < 128) {
+                if((symbol | 0x20) < 'a' || (symbol | 0x20) > 'z') {
+                    return false;
+                }
+
+                i++;
+                continue;
+            }
+
+            final int codePoint = value.codePointAt(i);
+
+            if(!Character.isLetter(codePoint)) {
+                return false;
+            }
+
+            i += Character.charCount(codePoint);
+        }
+
+        return true;
+    }
+
+    // A table-driven subset of RFC 5322: dot-atom local part, '@', and a dotted hostname whose last label has 2+ letters.
+    private static boolean isEmail(final String email) {
+        final int at = email.indexOf('@');
+        final int length = email.length();
+
+        // A second '@' is rejected by the domain table below.
+        if(at < 1 || at == length - 1) {
+            return false;
+        }
+
+        char previous = '.';
+
+        for(int i = 0; i < at; i++) {
+            final char symbol = email.charAt(i);
+
+            if(symbol >= 128 || !LOCAL_PART[symbol] || (symbol == '.' && previous == '.')) {
+                return false;
+            }
+
+            previous = symbol;
+        }
+
+        if(previous == '.') {
+            return false;
+        }
+
+        int labelStart = at + 1;
+        int dots = 0;
+
+        for(int i = at + 1; i <= length; i++) {
+            final char symbol = i == length ? '.' : email.charAt(i);
+
+            if(symbol >= 128 || !DOMAIN_PART[symbol]) {
+                return false;
+            }
+
+            if(symbol == '.') {
+                if(i == labelStart || email.charAt(labelStart) == '-' || email.charAt(i - 1) == '-') {
+                    return false;
+                }
+
+                if(i == length) {
+                    return dots > 0 && i - labelStart >= 2 && isAlphabetic(email, labelStart, i);
+                }
+
+                dots++;
+                labelStart = i + 1;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isAlphabetic(final String value, final int from, final int to) {
+        for(int i = from; i < to; i++) {
+            final char symbol = value.charAt(i);
+
+            if((symbol < 'a' || symbol > 'z') && (symbol < 'A' || symbol > 'Z')) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,9 @@
+package edu.aston.userservice.service;
+
+import edu.aston.userservice.model.UserChange;
+
+import java.util.List;
+
+public interface UserChangeFeed {
+    List<UserChange> poll(final long afterSequence, final int limit) throws UserServiceException;
+}
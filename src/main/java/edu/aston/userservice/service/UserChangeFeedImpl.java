@@ -0,0 +1,42 @@
+package edu.aston.userservice.service;
+
+import edu.aston.userservice.dao.UserChangeDAO;
+import edu.aston.userservice.dao.UserDAOException;
+import edu.aston.userservice.model.UserChange;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+// Consumers keep the sequence of the last change they processed and pass it back on the next poll;
+// an empty batch means they are up to date.
+public class UserChangeFeedImpl implements UserChangeFeed {
+    private static final Logger logger = LoggerFactory.getLogger(UserChangeFeedImpl.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int MAX_BATCH_SIZE = 10_000;
+
+    private final UserChangeDAO userChangeDAO;
+
+    public UserChangeFeedImpl(final UserChangeDAO userChangeDAO) {
+        this.userChangeDAO = userChangeDAO;
+    }
+
+    @Override
+    public List<UserChange> poll(final long afterSequence, final int limit) throws UserServiceException {
+        logger.info("Start reading user changes: [afterSequence={}, limit={}].", afterSequence, limit);
+
+        if(afterSequence < 0 || limit < 1 || limit > MAX_BATCH_SIZE) {
+            throw new UserServiceException("The sequence must not be negative and the batch size must be between 1 and " + MAX_BATCH_SIZE);
+        }
+
+        try {
+            return this.userChangeDAO.readAfter(afterSequence, limit);
+        }
+        catch(UserDAOException exception) {
+            logger.error("Failed to read user changes from the database.");
+            throw new UserServiceException("Failed to read user changes from the database", exception);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package edu.aston.userservice.service;
+
+public class UserConflictException extends UserServiceException {
+    public UserConflictException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package edu.aston.userservice.service;
+
+import edu.aston.userservice.model.User;
+
+import java.util.List;
+
+public record UserLookupResult(List<User> users, List<Long> missingIds) {
+}
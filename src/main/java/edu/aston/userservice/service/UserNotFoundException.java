@@ -0,0 +1,7 @@
+package edu.aston.userservice.service;
+
+public class UserNotFoundException extends UserServiceException {
+    public UserNotFoundException(final String message) {
+        super(message);
+    }
+}
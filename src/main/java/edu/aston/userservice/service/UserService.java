@@ -1,13 +1,30 @@
 package edu.aston.userservice.service;
 
+import edu.aston.userservice.dao.UserQuery;
+import edu.aston.userservice.dao.UserWrite;
 import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserView;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public interface UserService {
     User createUser(final String name, final String email, final int age) throws UserServiceException;
+    int importUsers(final Collection<User> users, final boolean useCopy) throws UserServiceException;
     List<User> findAll() throws UserServiceException;
+    List<User> findPage(final long afterId, final int pageSize) throws UserServiceException;
+    Stream<User> streamAll(final int fetchSize) throws UserServiceException;
     User findById(final long id) throws UserServiceException;
-    void updateUser(final long id, final String name, final String email, final int age) throws UserServiceException;
+    UserLookupResult findByIds(final Collection<Long> ids) throws UserServiceException;
+    User findByEmail(final String email) throws UserServiceException;
+    List<UserView> find(final UserQuery query) throws UserServiceException;
+    // Unconditional: overwrites whatever the row holds, so the last writer wins. The two overloads below check the version.
+    boolean updateUser(final long id, final String name, final String email, final int age) throws UserServiceException;
+    boolean updateUser(final long id, final String name, final String email, final int age, final long expectedVersion) throws UserServiceException;
+    User updateUser(final long id, final UnaryOperator<User> change) throws UserServiceException;
+    boolean patchUser(final long id, final String name, final String email, final Integer age) throws UserServiceException;
     boolean deleteById(final long id) throws UserServiceException;
+    int[] applyWrites(final List<UserWrite> writes) throws UserServiceException;
 }
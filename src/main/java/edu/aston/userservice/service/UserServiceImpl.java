@@ -1,76 +1,164 @@
 package edu.aston.userservice.service;
 
 import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserView;
 import edu.aston.userservice.dao.UserDAO;
 import edu.aston.userservice.dao.UserDAOException;
+import edu.aston.userservice.dao.UserPatch;
+import edu.aston.userservice.dao.UserQuery;
+import edu.aston.userservice.dao.UserVersionConflictException;
+import edu.aston.userservice.dao.UserWrite;
+import edu.aston.userservice.util.OperationLog;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.slf4j.event.Level;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public class UserServiceImpl implements UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
 
+    public static final int MAX_QUERY_LIMIT = 10_000;
+
+    public static final int DEFAULT_UPDATE_ATTEMPTS = 10;
+    public static final long DEFAULT_BACKOFF_MICROS = 1_000L;
+
+    private static final long MAX_BACKOFF_MICROS = 100_000L;
+
+    private static final int NAME_ERRORS = ValidationError.INVALID_NAME.flag() | ValidationError.NAME_TOO_LONG.flag();
+    private static final int EMAIL_ERRORS = ValidationError.INVALID_EMAIL.flag() | ValidationError.EMAIL_TOO_LONG.flag();
+    private static final int AGE_ERRORS = ValidationError.AGE_OUT_OF_RANGE.flag();
+
     private final UserDAO userDAO;
 
-    private static class UserValidator {
-        static final int MIN_AGE = 18;
-        static final int MAX_AGE = 99;
+    private final UserValidator userValidator;
 
-        public static void validateData(final String name, final String email, final int age) throws UserServiceException {
-            if(isInvalidUserName(name)) {
-                throw new UserServiceException("The user's name is invalid");
-            }
+    private final int updateAttempts;
 
-            if(isInvalidUserEmail(email)) {
-                throw new UserServiceException("The user's email is invalid");
-            }
+    private final long backoffMicros;
 
-            if(age < MIN_AGE || age > MAX_AGE) {
-                throw new UserServiceException("The user's age is out of range");
-            }
+    private final LongAdder updateConflicts = new LongAdder();
+
+    public UserServiceImpl(final UserDAO userDAO) {
+        this(userDAO, new DefaultUserValidator());
+    }
+
+    public UserServiceImpl(final UserDAO userDAO, final UserValidator userValidator) {
+        this(userDAO, userValidator, DEFAULT_UPDATE_ATTEMPTS, DEFAULT_BACKOFF_MICROS);
+    }
+
+    public UserServiceImpl(final UserDAO userDAO, final UserValidator userValidator, final int updateAttempts, final long backoffMicros) {
+        if(updateAttempts < 1 || backoffMicros < 0L) {
+            throw new IllegalArgumentException("The update attempts must be positive and the backoff must not be negative");
         }
 
-        public static void validateId(final long id) throws UserServiceException {
-            if(id < 0L) {
-                throw new UserServiceException("The user's ID must be greater than 0L");
-            }
+        this.userDAO = userDAO;
+        this.userValidator = userValidator;
+        this.updateAttempts = updateAttempts;
+        this.backoffMicros = backoffMicros;
+    }
+
+    public long getUpdateConflicts() {
+        return this.updateConflicts.sum();
+    }
+
+    private void validateData(final String name, final String email, final int age) throws UserServiceException {
+        final int errors = this.userValidator.validate(name, email, age);
+
+        if(errors != UserValidator.VALID) {
+            throw new UserServiceException(ValidationError.describe(errors));
+        }
+    }
+
+    private void validatePatch(final String name, final String email, final Integer age) throws UserServiceException {
+        if(name == null && email == null && age == null) {
+            throw new UserServiceException("The patch does not change any field");
         }
 
-        private static boolean isInvalidUserName(final String name) {
-            if(name == null || name.isBlank()) {
-                return true;
-            }
+        // Fields left out of the patch are not checked; their placeholder errors are masked away.
+        int errors = this.userValidator.validate(name, email, age == null ? 0 : age);
 
-            return !name.chars().allMatch(Character::isLetter);
+        if(name == null) {
+            errors &= ~NAME_ERRORS;
         }
 
-        private static boolean isInvalidUserEmail(final String email) {
-            if(email == null || email.isBlank()) {
-                return true;
-            }
+        if(email == null) {
+            errors &= ~EMAIL_ERRORS;
+        }
 
-            return !email.contains("@");
+        if(age == null) {
+            errors &= ~AGE_ERRORS;
+        }
+
+        if(errors != UserValidator.VALID) {
+            throw new UserServiceException(ValidationError.describe(errors));
         }
     }
 
-    public UserServiceImpl(final UserDAO userDAO) {
-        this.userDAO = userDAO;
+    private void validateEmail(final String email) throws UserServiceException {
+        final int errors = this.userValidator.validateEmail(email);
+
+        if(errors != UserValidator.VALID) {
+            throw new UserServiceException(ValidationError.describe(errors));
+        }
+    }
+
+    private static void validatePageSize(final int pageSize) throws UserServiceException {
+        if(pageSize < 1) {
+            throw new UserServiceException("The page size must be greater than 0");
+        }
+    }
+
+    private static void validateQuery(final UserQuery query) throws UserServiceException {
+        validatePageSize(query.getLimit());
+
+        if(query.getLimit() > MAX_QUERY_LIMIT) {
+            throw new UserServiceException("The query limit must not exceed " + MAX_QUERY_LIMIT);
+        }
+
+        if(query.getOffset() < 0) {
+            throw new UserServiceException("The query offset must not be negative");
+        }
+
+        if(query.getMinAge() != null && query.getMaxAge() != null && query.getMinAge() > query.getMaxAge()) {
+            throw new UserServiceException("The minimum age must not exceed the maximum age");
+        }
+
+        if(query.getCreatedFrom() != null && query.getCreatedTo() != null && !query.getCreatedFrom().isBefore(query.getCreatedTo())) {
+            throw new UserServiceException("The creation date range is empty");
+        }
+    }
+
+    private static void validateId(final long id) throws UserServiceException {
+        if(id < 0L) {
+            throw new UserServiceException("The user's ID must be greater than 0L");
+        }
     }
 
     @Override
     public User createUser(final String name, final String email, final int age) throws UserServiceException {
-        logger.info("Start creating a new user: [name={}, email={}, age={}].", name, email, age);
+        final Logger log = OperationLog.CREATE.sample(logger, Level.INFO);
 
-        try {
-            UserValidator.validateData(name, email, age);
+        if(log.isInfoEnabled()) {
+            log.info("Start creating a new user: [name={}, email={}, age={}].", name, email, age);
+        }
 
-            final User user = new User(name, email, age);
+        try {
+            validateData(name, email, age);
 
-            userDAO.create(user);
+            final User user = userDAO.create(new User(name, email, age));
 
-            logger.info("The user has been created: {}", user.toString());
+            log.info("The user has been created: {}", user);
 
             return user;
         }
@@ -80,6 +168,36 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    @Override
+    public int importUsers(final Collection<User> users, final boolean useCopy) throws UserServiceException {
+        logger.info("Start importing {} users: [useCopy={}].", users.size(), useCopy);
+
+        final List<User> valid = new ArrayList<>(users.size());
+
+        for(final User user : users) {
+            try {
+                validateData(user.getName(), user.getEmail(), user.getAge() == null ? 0 : user.getAge());
+
+                valid.add(user);
+            }
+            catch(UserServiceException exception) {
+                logger.warn("Skipping an invalid user during import: {}.", exception.getMessage());
+            }
+        }
+
+        try {
+            final int count = useCopy ? userDAO.copyAll(valid) : userDAO.createAll(valid);
+
+            logger.info("Imported {} of {} users into the database.", count, users.size());
+
+            return count;
+        }
+        catch (UserDAOException exception) {
+            logger.error("Failed to import users into the database.");
+            throw new UserServiceException("Failed to import users into the database", exception);
+        }
+    }
+
     @Override
     public List<User> findAll() throws UserServiceException {
         logger.info("Start searching for all users in the database.");
@@ -97,14 +215,52 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    @Override
+    public List<User> findPage(final long afterId, final int pageSize) throws UserServiceException {
+        final Logger log = OperationLog.READ.sample(logger, Level.INFO);
+
+        if(log.isInfoEnabled()) {
+            log.info("Start searching for a page of users: [afterId={}, pageSize={}].", afterId, pageSize);
+        }
+
+        try {
+            validatePageSize(pageSize);
+
+            return userDAO.read(afterId, pageSize);
+        }
+        catch (UserDAOException exception) {
+            logger.error("Failed to find a page of users in the database.");
+            throw new UserServiceException("Failed to find a page of users in the database", exception);
+        }
+    }
+
+    @Override
+    public Stream<User> streamAll(final int fetchSize) throws UserServiceException {
+        logger.info("Start streaming all users in the database: [fetchSize={}].", fetchSize);
+
+        try {
+            validatePageSize(fetchSize);
+
+            return userDAO.stream(fetchSize);
+        }
+        catch (UserDAOException exception) {
+            logger.error("Failed to stream all users in the database.");
+            throw new UserServiceException("Failed to stream all users in the database", exception);
+        }
+    }
+
     @Override
     public User findById(final long id) throws UserServiceException {
-        logger.info("Start searching a user by ID: [id={}].", id);
+        final Logger log = OperationLog.READ.sample(logger, Level.INFO);
+
+        if(log.isInfoEnabled()) {
+            log.info("Start searching a user by ID: [id={}].", id);
+        }
 
         try {
-            UserValidator.validateId(id);
+            validateId(id);
 
-            return userDAO.read(id).orElseThrow(() -> new UserServiceException("The user could not be found"));
+            return userDAO.read(id).orElseThrow(() -> new UserNotFoundException("The user could not be found"));
         }
         catch (UserDAOException exception) {
             logger.error("Failed to find the user by ID in the database.");
@@ -113,16 +269,108 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    public void updateUser(final long id, final String name, final String email, final int age) throws UserServiceException {
-        logger.info("Start updating user information: [id={}, name={}, email={}, age={}].", id, name, email, age);
+    public UserLookupResult findByIds(final Collection<Long> ids) throws UserServiceException {
+        final Logger log = OperationLog.READ.sample(logger, Level.INFO);
+
+        if(log.isInfoEnabled()) {
+            log.info("Start searching {} users by ID.", ids.size());
+        }
+
+        try {
+            final LinkedHashSet<Long> uniqueIds = new LinkedHashSet<>(ids);
+
+            for(final Long id : uniqueIds) {
+                validateId(id);
+            }
+
+            final Map<Long, User> found = userDAO.read(uniqueIds);
+
+            final List<User> users = new ArrayList<>(found.size());
+            final List<Long> missingIds = new ArrayList<>();
+
+            for(final Long id : uniqueIds) {
+                final User user = found.get(id);
+
+                if(user != null) {
+                    users.add(user);
+                }
+                else {
+                    missingIds.add(id);
+                }
+            }
+
+            if(!missingIds.isEmpty()) {
+                logger.warn("Could not find {} of {} users by ID.", missingIds.size(), uniqueIds.size());
+            }
+
+            return new UserLookupResult(users, missingIds);
+        }
+        catch (UserDAOException exception) {
+            logger.error("Failed to find users by ID in the database.");
+            throw new UserServiceException("Failed to find users by ID in the database", exception);
+        }
+    }
+
+    @Override
+    public User findByEmail(final String email) throws UserServiceException {
+        OperationLog.READ.sample(logger, Level.INFO).info("Start searching a user by email: [email={}].", email);
+
+        try {
+            validateEmail(email);
+
+            return userDAO.readByEmail(email).orElseThrow(() -> new UserNotFoundException("The user could not be found"));
+        }
+        catch (UserDAOException exception) {
+            logger.error("Failed to find the user by email in the database.");
+            throw new UserServiceException("Failed to find the user by email in the database", exception);
+        }
+    }
+
+    @Override
+    public List<UserView> find(final UserQuery query) throws UserServiceException {
+        final Logger log = OperationLog.READ.sample(logger, Level.INFO);
+
+        log.info("Start searching users: {}.", query);
+
+        try {
+            validateQuery(query);
+
+            final List<UserView> views = userDAO.find(query);
+
+            if(log.isInfoEnabled()) {
+                log.info("Found {} users matching the query.", views.size());
+            }
+
+            return views;
+        }
+        catch (UserDAOException exception) {
+            logger.error("Failed to query users in the database.");
+            throw new UserServiceException("Failed to query users in the database", exception);
+        }
+    }
+
+    @Override
+    public boolean updateUser(final long id, final String name, final String email, final int age) throws UserServiceException {
+        final Logger log = OperationLog.UPDATE.sample(logger, Level.INFO);
+
+        if(log.isInfoEnabled()) {
+            log.info("Start updating user information: [id={}, name={}, email={}, age={}].", id, name, email, age);
+        }
 
         try {
-            UserValidator.validateId(id);
-            UserValidator.validateData(name, email, age);
+            validateId(id);
+            validateData(name, email, age);
 
             final User user = new User(id, name, email, age);
 
-            this.userDAO.update(user);
+            if(this.userDAO.update(user) > 0) {
+                return true;
+            }
+            else {
+                logger.warn("The user with ID {} does not exist in the database.", id);
+
+                return false;
+            }
         }
         catch(Exception exception) {
             logger.error("Failed to update user information in the database.");
@@ -130,15 +378,138 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    @Override
+    public boolean updateUser(final long id, final String name, final String email, final int age, final long expectedVersion) throws UserServiceException {
+        final Logger log = OperationLog.UPDATE.sample(logger, Level.INFO);
+
+        if(log.isInfoEnabled()) {
+            log.info("Start updating user information: [id={}, name={}, email={}, age={}, version={}].", id, name, email, age, expectedVersion);
+        }
+
+        try {
+            validateId(id);
+            validateData(name, email, age);
+
+            if(this.userDAO.update(new User(id, name, email, age, null, expectedVersion)) > 0) {
+                return true;
+            }
+            else {
+                logger.warn("The user with ID {} does not exist in the database.", id);
+
+                return false;
+            }
+        }
+        catch(UserVersionConflictException exception) {
+            this.updateConflicts.increment();
+
+            logger.warn("The user with ID {} was not updated: {}.", id, exception.getMessage());
+            throw new UserConflictException(exception.getMessage());
+        }
+        catch(Exception exception) {
+            logger.error("Failed to update user information in the database.");
+            throw new UserServiceException("Failed to update user information in the database", exception);
+        }
+    }
+
+    @Override
+    public User updateUser(final long id, final UnaryOperator<User> change) throws UserServiceException {
+        final Logger log = OperationLog.UPDATE.sample(logger, Level.INFO);
+
+        if(log.isInfoEnabled()) {
+            log.info("Start a read-modify-write update of the user: [id={}].", id);
+        }
+
+        validateId(id);
+
+        for(int attempt = 1; ; attempt++) {
+            try {
+                // Straight from the primary: a cached or shared read could hand back the version that just conflicted.
+                final User current = this.userDAO.readLatest(id).orElseThrow(() -> new UserNotFoundException("The user could not be found"));
+                final User changed = change.apply(current);
+
+                validateData(changed.getName(), changed.getEmail(), changed.getAge() == null ? 0 : changed.getAge());
+
+                // The write only lands while the row still has the version that was read.
+                final User next = new User(id, changed.getName(), changed.getEmail(), changed.getAge(), current.getCreatedAt(), current.getVersion());
+
+                if(this.userDAO.update(next) == 0) {
+                    throw new UserNotFoundException("The user could not be found");
+                }
+
+                return new User(id, next.getName(), next.getEmail(), next.getAge(), next.getCreatedAt(), next.getVersion() + 1);
+            }
+            catch(UserVersionConflictException exception) {
+                this.updateConflicts.increment();
+
+                if(attempt >= this.updateAttempts) {
+                    logger.warn("The user with ID {} kept changing; giving up after {} attempts.", id, attempt);
+                    throw new UserConflictException("The user with ID " + id + " kept changing; gave up after " + attempt + " attempts");
+                }
+
+                backoff(attempt);
+            }
+            catch(UserDAOException exception) {
+                logger.error("Failed to update user information in the database.");
+                throw new UserServiceException("Failed to update user information in the database", exception);
+            }
+        }
+    }
+
+    private void backoff(final int attempt) throws UserServiceException {
+        // Exponential with full jitter, so writers that collided once do not collide again in lockstep.
+        final long ceiling = Math.min(MAX_BACKOFF_MICROS, this.backoffMicros << Math.min(attempt - 1, 20));
+
+        try {
+            TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        }
+        catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new UserServiceException("Interrupted while retrying an update", exception);
+        }
+    }
+
+    @Override
+    public boolean patchUser(final long id, final String name, final String email, final Integer age) throws UserServiceException {
+        final Logger log = OperationLog.UPDATE.sample(logger, Level.INFO);
+
+        if(log.isInfoEnabled()) {
+            log.info("Start patching user information: [id={}, name={}, email={}, age={}].", id, name, email, age);
+        }
+
+        validateId(id);
+        validatePatch(name, email, age);
+
+        try {
+            if(this.userDAO.patch(new UserPatch(id, name, email, age)) > 0) {
+                return true;
+            }
+            else {
+                logger.warn("The user with ID {} does not exist in the database.", id);
+
+                return false;
+            }
+        }
+        catch(UserDAOException exception) {
+            logger.error("Failed to patch user information in the database.");
+            throw new UserServiceException("Failed to patch user information in the database", exception);
+        }
+    }
+
     @Override
     public boolean deleteById(final long id) throws UserServiceException {
-        logger.info("Deleting a user from the database: [id={}].", id);
+        final Logger log = OperationLog.DELETE.sample(logger, Level.INFO);
+
+        if(log.isInfoEnabled()) {
+            log.info("Deleting a user from the database: [id={}].", id);
+        }
 
         try {
-            UserValidator.validateId(id);
+            validateId(id);
 
-            if(this.userDAO.delete(id)) {
-                logger.info("The user with ID {} was deleted from the database.", id);
+            if(this.userDAO.delete(id) > 0) {
+                if(log.isInfoEnabled()) {
+                    log.info("The user with ID {} was deleted from the database.", id);
+                }
 
                 return true;
             }
@@ -153,4 +524,31 @@ public class UserServiceImpl implements UserService {
             throw new UserServiceException("Failed to delete a user information from the database", exception);
         }
     }
+
+    @Override
+    public int[] applyWrites(final List<UserWrite> writes) throws UserServiceException {
+        logger.info("Start applying a group of {} writes.", writes.size());
+
+        for(final UserWrite write : writes) {
+            if(write.kind() != UserWrite.Kind.CREATE) {
+                validateId(write.id());
+            }
+
+            if(write.kind() != UserWrite.Kind.DELETE) {
+                validateData(write.user().getName(), write.user().getEmail(), write.user().getAge() == null ? 0 : write.user().getAge());
+            }
+        }
+
+        try {
+            final int[] rows = this.userDAO.applyAll(writes);
+
+            logger.info("The group of {} writes has been applied.", writes.size());
+
+            return rows;
+        }
+        catch(UserDAOException exception) {
+            logger.error("Failed to apply a group of writes to the database.");
+            throw new UserServiceException("Failed to apply a group of writes to the database", exception);
+        }
+    }
 }
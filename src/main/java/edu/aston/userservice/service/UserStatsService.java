@@ -0,0 +1,14 @@
+package edu.aston.userservice.service;
+
+import edu.aston.userservice.dao.AgeBucket;
+import edu.aston.userservice.dao.SignupCount;
+import edu.aston.userservice.dao.UserStatsDAO;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface UserStatsService {
+    long countUsers() throws UserServiceException;
+    List<AgeBucket> ageDistribution(final int minAge, final int maxAge, final int buckets) throws UserServiceException;
+    List<SignupCount> signups(final UserStatsDAO.Period period, final LocalDateTime from, final LocalDateTime to) throws UserServiceException;
+}
@@ -0,0 +1,109 @@
+package edu.aston.userservice.service;
+
+import edu.aston.userservice.dao.AgeBucket;
+import edu.aston.userservice.dao.CountingUserDAO;
+import edu.aston.userservice.dao.SignupCount;
+import edu.aston.userservice.dao.UserDAOException;
+import edu.aston.userservice.dao.UserStatsDAO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class UserStatsServiceImpl implements UserStatsService {
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsServiceImpl.class);
+
+    public static final int MAX_BUCKETS = 100;
+    public static final long DEFAULT_COUNT_REFRESH_SECONDS = 60L;
+
+    private record Baseline(long count, long takenAtNanos) { }
+
+    private final UserStatsDAO userStatsDAO;
+
+    private final CountingUserDAO counter;
+
+    private final long refreshNanos;
+
+    private volatile Baseline baseline;
+
+    public UserStatsServiceImpl(final UserStatsDAO userStatsDAO) {
+        this(userStatsDAO, null, DEFAULT_COUNT_REFRESH_SECONDS);
+    }
+
+    public UserStatsServiceImpl(final UserStatsDAO userStatsDAO, final CountingUserDAO counter, final long refreshSeconds) {
+        this.userStatsDAO = userStatsDAO;
+        this.counter = counter;
+        this.refreshNanos = TimeUnit.SECONDS.toNanos(refreshSeconds);
+    }
+
+    @Override
+    public long countUsers() throws UserServiceException {
+        try {
+            if(this.counter == null) {
+                return this.userStatsDAO.countUsers();
+            }
+
+            Baseline current = this.baseline;
+
+            // The count is the baseline plus what this process wrote since. The table is counted again once the
+            // baseline is older than the refresh interval, which is how writes from other processes show up.
+            if(isStale(current)) {
+                synchronized(this) {
+                    current = this.baseline;
+
+                    if(isStale(current)) {
+                        current = new Baseline(this.counter.baseline(this.userStatsDAO), System.nanoTime());
+                        this.baseline = current;
+                    }
+                }
+            }
+
+            return current.count() + this.counter.getChange();
+        }
+        catch(UserDAOException exception) {
+            logger.error("Failed to count users in the database.");
+            throw new UserServiceException("Failed to count users in the database", exception);
+        }
+    }
+
+    @Override
+    public List<AgeBucket> ageDistribution(final int minAge, final int maxAge, final int buckets) throws UserServiceException {
+        logger.info("Start computing the age distribution: [minAge={}, maxAge={}, buckets={}].", minAge, maxAge, buckets);
+
+        if(minAge > maxAge || buckets < 1 || buckets > MAX_BUCKETS) {
+            throw new UserServiceException("The age range must not be empty and the bucket count must be between 1 and " + MAX_BUCKETS);
+        }
+
+        try {
+            return this.userStatsDAO.ageDistribution(minAge, maxAge, buckets);
+        }
+        catch(UserDAOException exception) {
+            logger.error("Failed to compute the age distribution.");
+            throw new UserServiceException("Failed to compute the age distribution", exception);
+        }
+    }
+
+    @Override
+    public List<SignupCount> signups(final UserStatsDAO.Period period, final LocalDateTime from, final LocalDateTime to) throws UserServiceException {
+        logger.info("Start counting sign-ups: [period={}, from={}, to={}].", period, from, to);
+
+        if(!from.isBefore(to)) {
+            throw new UserServiceException("The sign-up date range is empty");
+        }
+
+        try {
+            return this.userStatsDAO.signups(period, from, to);
+        }
+        catch(UserDAOException exception) {
+            logger.error("Failed to count sign-ups in the database.");
+            throw new UserServiceException("Failed to count sign-ups in the database", exception);
+        }
+    }
+
+    private boolean isStale(final Baseline baseline) {
+        return baseline == null || System.nanoTime() - baseline.takenAtNanos() >= this.refreshNanos;
+    }
+}
@@ -0,0 +1,8 @@
+package edu.aston.userservice.service;
+
+public interface UserValidator {
+    int VALID = 0;
+
+    int validate(final String name, final String email, final int age);
+    int validateEmail(final String email);
+}
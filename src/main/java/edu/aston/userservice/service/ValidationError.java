@@ -0,0 +1,39 @@
+package edu.aston.userservice.service;
+
+public enum ValidationError {
+    INVALID_NAME("The user's name is invalid"),
+    NAME_TOO_LONG("The user's name is too long"),
+    INVALID_EMAIL("The user's email is invalid"),
+    EMAIL_TOO_LONG("The user's email is too long"),
+    AGE_OUT_OF_RANGE("The user's age is out of range");
+
+    private final String message;
+
+    ValidationError(final String message) {
+        this.message = message;
+    }
+
+    public int flag() {
+        return 1 << ordinal();
+    }
+
+    public String getMessage() {
+        return this.message;
+    }
+
+    public static String describe(final int errors) {
+        final StringBuilder builder = new StringBuilder();
+
+        for(final ValidationError error : values()) {
+            if((errors & error.flag()) != 0) {
+                if(!builder.isEmpty()) {
+                    builder.append("; ");
+                }
+
+                builder.append(error.message);
+            }
+        }
+
+        return builder.toString();
+    }
+}
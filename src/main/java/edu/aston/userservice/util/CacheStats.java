@@ -0,0 +1,15 @@
+package edu.aston.userservice.util;
+
+public record CacheStats(String region, long hits, long misses, long puts, long evictions, long size) {
+    public double hitRatio() {
+        final long requests = this.hits + this.misses;
+
+        return requests == 0 ? 0.0 : (double) this.hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats{region=%s, hits=%d, misses=%d, puts=%d, evictions=%d, size=%d, hitRatio=%.1f%%}",
+                this.region, this.hits, this.misses, this.puts, this.evictions, this.size, hitRatio() * 100);
+    }
+}
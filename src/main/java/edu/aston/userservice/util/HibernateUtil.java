@@ -1,28 +1,196 @@
 package edu.aston.userservice.util;
 
+import edu.aston.userservice.model.User;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
 import org.hibernate.HibernateException;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 public class HibernateUtil {
-    private static SessionFactory sessionFactory;
+    private static volatile SessionFactory sessionFactory;
+
+    private static volatile List<SessionFactory> replicaSessionFactories;
+
+    private static volatile long bootstrapMillis;
+
+    private static final List<AutoCloseable> beforeShutdown = new CopyOnWriteArrayList<>();
 
     private static final Logger logger = LoggerFactory.getLogger(HibernateUtil.class);
 
     public static SessionFactory getSessionFactory() {
-        if(sessionFactory == null || sessionFactory.isClosed()) {
-            buildSessionFactory();
+        SessionFactory factory = sessionFactory;
+
+        if(factory == null || factory.isClosed()) {
+            synchronized(HibernateUtil.class) {
+                factory = sessionFactory;
+
+                if(factory == null || factory.isClosed()) {
+                    final long start = System.nanoTime();
+
+                    factory = buildSessionFactory(Map.of());
+                    sessionFactory = factory;
+
+                    bootstrapMillis = (System.nanoTime() - start) / 1_000_000L;
+
+                    logger.info("Connection to the database was completed successfully in {} ms.", bootstrapMillis);
+                }
+            }
+        }
+
+        return factory;
+    }
+
+    public static List<SessionFactory> getReplicaSessionFactories() {
+        List<SessionFactory> factories = replicaSessionFactories;
+
+        if(factories == null) {
+            synchronized(HibernateUtil.class) {
+                factories = replicaSessionFactories;
+
+                if(factories == null) {
+                    factories = buildReplicaSessionFactories();
+                    replicaSessionFactories = factories;
+                }
+            }
+        }
+
+        return factories;
+    }
+
+    private static List<SessionFactory> buildReplicaSessionFactories() {
+        final List<SessionFactory> factories = new ArrayList<>();
+
+        final String[] urls = Setting.DB_REPLICA_URLS.value().map(value -> value.split(",")).orElse(new String[0]);
+
+        for(int i = 0; i < urls.length; i++) {
+            if(urls[i].isBlank()) {
+                continue;
+            }
+
+            // Replicas never touch the schema and run without the second-level cache: a second cache manager
+            // over the same regions would never see the primary's evictions.
+            final Map<String, Object> settings = new HashMap<>();
+
+            settings.put("hibernate.connection.url", urls[i].trim());
+            settings.put("hibernate.hbm2ddl.auto", "none");
+            settings.put("hibernate.boot.allow_jdbc_metadata_access", "false");
+            settings.put("hibernate.cache.use_second_level_cache", "false");
+            settings.put("hibernate.hikari.poolName", "userservice-replica-" + i);
+
+            try {
+                factories.add(buildSessionFactory(settings));
+
+                logger.info("Connected to read replica {}.", i);
+            }
+            catch(HibernateException exception) {
+                logger.warn("Read replica {} is skipped: {}.", i, exception.getMessage());
+            }
+        }
+
+        return List.copyOf(factories);
+    }
+
+    public static long getBootstrapMillis() {
+        return bootstrapMillis;
+    }
+
+    public static PoolStats getPoolStats() {
+        final ConnectionProvider provider = getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .requireService(ConnectionProvider.class);
+
+        if(!provider.isUnwrappableAs(HikariDataSource.class)) {
+            throw new HibernateException("The connection provider does not expose pool statistics");
+        }
+
+        final HikariDataSource dataSource = provider.unwrap(HikariDataSource.class);
+        final HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+
+        return new PoolStats(pool.getActiveConnections(), pool.getIdleConnections(), pool.getTotalConnections(),
+                pool.getThreadsAwaitingConnection(), dataSource.getMaximumPoolSize());
+    }
+
+    public static List<CacheStats> getCacheStats() {
+        final Statistics statistics = getSessionFactory().getStatistics();
+
+        final List<CacheStats> list = new ArrayList<>();
+
+        for(final String region : List.of(User.CACHE_REGION, User.EMAIL_CACHE_REGION)) {
+            final CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+
+            if(stats != null) {
+                list.add(new CacheStats(region, stats.getHitCount(), stats.getMissCount(), stats.getPutCount(),
+                        getCacheEvictions(region), stats.getElementCountInMemory()));
+            }
         }
 
-        return sessionFactory;
+        return list;
     }
 
-    public static void shutdown() {
+    private static long getCacheEvictions(final String region) {
+        // Hibernate does not count evictions, so they are read from the JCache statistics MBean.
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+            for(final ObjectName name : server.queryNames(new ObjectName("javax.cache:type=CacheStatistics,Cache=" + region + ",*"), null)) {
+                return ((Number) server.getAttribute(name, "CacheEvictions")).longValue();
+            }
+        }
+        catch(JMException exception) {
+            logger.warn("Could not read cache evictions for the region {}: {}.", region, exception.getMessage());
+        }
+
+        return 0L;
+    }
+
+    public static void closeBeforeShutdown(final AutoCloseable resource) {
+        beforeShutdown.add(resource);
+    }
+
+    public static synchronized void shutdown() {
+        // Buffered writers registered here still need the connection pool to flush.
+        for(int i = beforeShutdown.size() - 1; i >= 0; i--) {
+            try {
+                beforeShutdown.remove(i).close();
+            }
+            catch(Exception exception) {
+                logger.error("Failed to close a resource before shutdown: {}.", exception.getMessage());
+            }
+        }
+
+        if(replicaSessionFactories != null) {
+            for(final SessionFactory replica : replicaSessionFactories) {
+                if(replica.isOpen()) {
+                    replica.close();
+                }
+            }
+
+            replicaSessionFactories = null;
+        }
+
         if(sessionFactory != null && sessionFactory.isOpen()) {
             sessionFactory.close();
 
@@ -30,18 +198,30 @@ public class HibernateUtil {
         }
     }
 
-    private static void buildSessionFactory() {
+    private static SessionFactory buildSessionFactory(final Map<String, Object> settings) {
+        StandardServiceRegistry registry = null;
+
         try {
-            StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+            final Map<String, Object> overrides = Setting.hibernateOverrides();
+
+            overrides.putAll(settings);
+
+            // Without schema management there is nothing to inspect, so skip the JDBC metadata round-trips on boot.
+            if("none".equals(overrides.get("hibernate.hbm2ddl.auto"))) {
+                overrides.putIfAbsent("hibernate.boot.allow_jdbc_metadata_access", "false");
+            }
+
+            registry = new StandardServiceRegistryBuilder()
                     .configure("hibernate.cfg.xml")
+                    .applySettings(overrides)
                     .build();
 
-            sessionFactory = new MetadataSources(registry).buildMetadata().buildSessionFactory();
-
-            logger.info("Connection to the database was completed successfully.");
+            return new MetadataSources(registry).buildMetadata().buildSessionFactory();
         }
         catch(Exception exception) {
-            shutdown();
+            if(registry != null) {
+                StandardServiceRegistryBuilder.destroy(registry);
+            }
 
             logger.error("Failed to connect to the database: {}.", exception.getMessage());
             throw new HibernateException("Failed to connect to the database");
@@ -0,0 +1,55 @@
+package edu.aston.userservice.util;
+
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+import org.slf4j.event.Level;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+public enum OperationLog {
+    CREATE, READ, UPDATE, DELETE;
+
+    private volatile Level level = Level.INFO;
+    private volatile int sampleRate = 1;
+
+    // Taken once at the start of an operation: every line of that operation goes to the returned logger, so a
+    // sampled-out operation drops its start and end lines together instead of leaving half a pair.
+    public Logger sample(final Logger logger, final Level level) {
+        return isEnabled(logger, level) ? logger : NOPLogger.NOP_LOGGER;
+    }
+
+    private boolean isEnabled(final Logger logger, final Level level) {
+        if(level.toInt() < this.level.toInt() || !logger.isEnabledForLevel(level)) {
+            return false;
+        }
+
+        final int rate = this.sampleRate;
+
+        return rate == 1 || ThreadLocalRandom.current().nextInt(rate) == 0;
+    }
+
+    public Level getLevel() {
+        return this.level;
+    }
+
+    public void setLevel(final Level level) {
+        this.level = level;
+    }
+
+    public int getSampleRate() {
+        return this.sampleRate;
+    }
+
+    public void setSampleRate(final int sampleRate) {
+        if(sampleRate < 1) {
+            throw new IllegalArgumentException("The sample rate must be greater than 0");
+        }
+
+        this.sampleRate = sampleRate;
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase() + "{level=" + this.level + ", sampleRate=1/" + this.sampleRate + "}";
+    }
+}
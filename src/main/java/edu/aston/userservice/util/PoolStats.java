@@ -0,0 +1,13 @@
+package edu.aston.userservice.util;
+
+public record PoolStats(int active, int idle, int total, int awaiting, int maximumSize) {
+    public double saturation() {
+        return this.maximumSize == 0 ? 0.0 : (double) this.active / this.maximumSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PoolStats{active=%d, idle=%d, total=%d, awaiting=%d, maximumSize=%d, saturation=%.0f%%}",
+                this.active, this.idle, this.total, this.awaiting, this.maximumSize, saturation() * 100);
+    }
+}
@@ -0,0 +1,96 @@
+package edu.aston.userservice.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+public enum Setting {
+    DB_URL("userservice.db.url", "hibernate.connection.url"),
+    DB_USERNAME("userservice.db.username", "hibernate.connection.username"),
+    DB_PASSWORD("userservice.db.password", "hibernate.connection.password"),
+    DB_REPLICA_URLS("userservice.db.replica-urls", null),
+    REPLICA_STRATEGY("userservice.replica.strategy", null),
+    REPLICA_STICKINESS("userservice.replica.stickiness", null),
+    REPLICA_STICKY_MILLIS("userservice.replica.sticky-millis", null),
+    POOL_MIN_IDLE("userservice.pool.min-idle", "hibernate.hikari.minimumIdle"),
+    POOL_MAX_SIZE("userservice.pool.max-size", "hibernate.hikari.maximumPoolSize"),
+    POOL_CONNECTION_TIMEOUT("userservice.pool.connection-timeout", "hibernate.hikari.connectionTimeout"),
+    POOL_LEAK_DETECTION_THRESHOLD("userservice.pool.leak-detection-threshold", "hibernate.hikari.leakDetectionThreshold"),
+    PREPARE_THRESHOLD("userservice.db.prepare-threshold", "hibernate.hikari.dataSource.prepareThreshold"),
+    STATEMENT_CACHE_QUERIES("userservice.db.statement-cache-queries", "hibernate.hikari.dataSource.preparedStatementCacheQueries"),
+    DB_SOCKET_TIMEOUT("userservice.db.socket-timeout-seconds", "hibernate.hikari.dataSource.socketTimeout"),
+    DB_CONNECT_TIMEOUT("userservice.db.connect-timeout-seconds", "hibernate.hikari.dataSource.connectTimeout"),
+    DB_READ_TIMEOUT("userservice.db.read-timeout-seconds", null),
+    DB_WRITE_TIMEOUT("userservice.db.write-timeout-seconds", null),
+    SCHEMA_MODE("userservice.schema.mode", "hibernate.hbm2ddl.auto"),
+    METRICS_FILE("userservice.metrics.file", null),
+    METRICS_INTERVAL("userservice.metrics.interval-seconds", null),
+    SERVER_PORT("userservice.server.port", null),
+    SERVER_MAX_IN_FLIGHT("userservice.server.max-in-flight", null),
+    BATCH_GROUP_SIZE("userservice.batch.group-size", null),
+    BATCH_READ_WINDOW("userservice.batch.read-window", null),
+    WRITE_BEHIND_ENABLED("userservice.write-behind.enabled", null),
+    WRITE_BEHIND_CAPACITY("userservice.write-behind.capacity", null),
+    WRITE_BEHIND_BATCH_SIZE("userservice.write-behind.batch-size", null),
+    WRITE_BEHIND_FLUSH_MILLIS("userservice.write-behind.flush-millis", null),
+    READ_COALESCING_ENABLED("userservice.read-coalescing.enabled", null),
+    READ_COALESCING_WINDOW_MICROS("userservice.read-coalescing.window-micros", null),
+    READ_COALESCING_MAX_BATCH("userservice.read-coalescing.max-batch", null),
+    PARTITION_HASH_COUNT("userservice.partition.hash-count", null),
+    PARTITION_RANGE("userservice.partition.range", null),
+    PARTITION_BATCH_SIZE("userservice.partition.batch-size", null),
+    PARTITION_PAUSE_MILLIS("userservice.partition.pause-millis", null),
+    EXPORT_PARALLELISM("userservice.export.parallelism", null),
+    EXPORT_FETCH_SIZE("userservice.export.fetch-size", null),
+    STATS_COUNT_REFRESH_SECONDS("userservice.stats.count-refresh-seconds", null),
+    UPDATE_RETRY_ATTEMPTS("userservice.update.retry-attempts", null),
+    UPDATE_RETRY_BACKOFF_MICROS("userservice.update.retry-backoff-micros", null),
+    BREAKER_FAILURE_THRESHOLD("userservice.breaker.failure-threshold", null),
+    BREAKER_OPEN_MILLIS("userservice.breaker.open-millis", null),
+    READ_RETRY_ATTEMPTS("userservice.read-retry.attempts", null),
+    READ_RETRY_BACKOFF_MILLIS("userservice.read-retry.backoff-millis", null);
+
+    private final String property;
+    private final String hibernateKey;
+
+    Setting(final String property, final String hibernateKey) {
+        this.property = property;
+        this.hibernateKey = hibernateKey;
+    }
+
+    public String property() {
+        return this.property;
+    }
+
+    public String environmentVariable() {
+        return this.property.toUpperCase().replace('.', '_').replace('-', '_');
+    }
+
+    public Optional<String> value() {
+        final String value = System.getProperty(this.property);
+
+        if(value != null && !value.isBlank()) {
+            return Optional.of(value);
+        }
+
+        return Optional.ofNullable(System.getenv(environmentVariable())).filter(variable -> !variable.isBlank());
+    }
+
+    public static Map<String, Object> hibernateOverrides() {
+        final Map<String, Object> overrides = new HashMap<>();
+
+        for(final String name : System.getProperties().stringPropertyNames()) {
+            if(name.startsWith("hibernate.")) {
+                overrides.put(name, System.getProperty(name));
+            }
+        }
+
+        for(final Setting setting : values()) {
+            if(setting.hibernateKey != null) {
+                setting.value().ifPresent(value -> overrides.put(setting.hibernateKey, value));
+            }
+        }
+
+        return overrides;
+    }
+}
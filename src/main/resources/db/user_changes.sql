@@ -0,0 +1,12 @@
+-- Outbox behind the user change feed. Hibernate creates it from the UserChange mapping;
+-- run this once on databases managed with hbm2ddl "none" or "validate" (PostgreSQL 13 or later for xid8).
+CREATE TABLE IF NOT EXISTS user_changes (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id bigint NOT NULL,
+    operation varchar(6) NOT NULL CHECK (operation IN ('INSERT', 'UPDATE', 'DELETE')),
+    name varchar(25),
+    email varchar(50),
+    age integer,
+    changed_at timestamp(6) NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    transaction_id xid8 NOT NULL DEFAULT pg_current_xact_id()
+);
@@ -0,0 +1,11 @@
+-- Indexes behind the filtered user queries. Hibernate creates the plain ones from the entity mapping;
+-- run this once on databases managed with hbm2ddl "none" or "validate".
+CREATE INDEX IF NOT EXISTS users_name_idx ON users (name);
+CREATE INDEX IF NOT EXISTS users_age_idx ON users (age);
+CREATE INDEX IF NOT EXISTS users_created_at_idx ON users (created_at);
+
+-- Name prefix searches (LIKE 'abc%') can only use a B-tree index under the C collation, or with the pattern operator class.
+CREATE INDEX IF NOT EXISTS users_name_pattern_idx ON users (name text_pattern_ops);
+
+-- Email domain filters compare the lower-cased part after the '@'; a suffix LIKE could not use any B-tree index.
+CREATE INDEX IF NOT EXISTS users_email_domain_idx ON users (lower(split_part(email, '@', 2)));
@@ -0,0 +1,7 @@
+-- Moves an existing users table from IDENTITY ids to the pooled users_seq generator.
+-- Run once before starting the application against a database created by an older version.
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+
+SELECT setval('users_seq', (SELECT COALESCE(MAX(id), 0) + 50 FROM users));
+
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
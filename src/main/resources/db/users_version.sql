@@ -0,0 +1,3 @@
+-- Adds the optimistic locking column to a users table created before it existed.
+-- Run once on databases managed with hbm2ddl "none" or "validate"; existing rows start at version 0.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version bigint DEFAULT 0 NOT NULL;
@@ -0,0 +1,67 @@
+package edu.aston.userservice;
+
+import edu.aston.userservice.util.HibernateUtil;
+import edu.aston.userservice.util.Setting;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Base of the tests that need PostgreSQL. They run against a container shared by the whole test run, or against an
+// existing database given with -Duserservice.test.db.url (plus .username and .password). Without either they are skipped.
+// Every test class starts from a freshly created schema and a new SessionFactory built from the current settings.
+public abstract class DatabaseTest {
+    private static final String URL_PROPERTY = "userservice.test.db.url";
+    private static final String USERNAME_PROPERTY = "userservice.test.db.username";
+    private static final String PASSWORD_PROPERTY = "userservice.test.db.password";
+
+    private static PostgreSQLContainer<?> container;
+
+    @BeforeAll
+    static void connect() {
+        final String url = System.getProperty(URL_PROPERTY);
+
+        if(url != null) {
+            System.setProperty(Setting.DB_URL.property(), url);
+            System.setProperty(Setting.DB_USERNAME.property(), System.getProperty(USERNAME_PROPERTY, "postgres"));
+            System.setProperty(Setting.DB_PASSWORD.property(), System.getProperty(PASSWORD_PROPERTY, "postgres"));
+        }
+        else {
+            assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Neither Docker nor " + URL_PROPERTY + " is available");
+
+            final PostgreSQLContainer<?> postgres = container();
+
+            System.setProperty(Setting.DB_URL.property(), postgres.getJdbcUrl());
+            System.setProperty(Setting.DB_USERNAME.property(), postgres.getUsername());
+            System.setProperty(Setting.DB_PASSWORD.property(), postgres.getPassword());
+        }
+
+        System.setProperty(Setting.SCHEMA_MODE.property(), "create");
+
+        HibernateUtil.shutdown();
+    }
+
+    @AfterAll
+    static void disconnect() {
+        HibernateUtil.shutdown();
+    }
+
+    // Null when the tests run against an existing database.
+    protected static PostgreSQLContainer<?> runningContainer() {
+        return System.getProperty(URL_PROPERTY) == null ? container : null;
+    }
+
+    private static synchronized PostgreSQLContainer<?> container() {
+        // Started once and left to Testcontainers to remove when the JVM exits.
+        if(container == null) {
+            container = new PostgreSQLContainer<>("postgres:17-alpine");
+            container.start();
+        }
+
+        return container;
+    }
+}
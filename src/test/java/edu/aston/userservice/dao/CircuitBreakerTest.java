@@ -0,0 +1,100 @@
+package edu.aston.userservice.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CircuitBreakerTest {
+    private static final long OPEN_MILLIS = 50L;
+
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 3, OPEN_MILLIS);
+
+    @Test
+    void opensAfterTheThresholdOfConsecutiveFailures() {
+        fail(2);
+        this.breaker.onSuccess(this.breaker.tryAcquire());
+        fail(2);
+
+        // The success in between reset the run, so four failures in all are not yet three in a row.
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+
+        fail(1);
+
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+        assertEquals(CircuitBreaker.Permit.REJECTED, this.breaker.tryAcquire());
+        assertEquals(1L, this.breaker.getOpened());
+        assertEquals(1L, this.breaker.getRejected());
+    }
+
+    @Test
+    void letsOneProbeThroughAfterTheOpenPeriodAndClosesOnItsSuccess() throws Exception {
+        open();
+
+        final CircuitBreaker.Permit probe = this.breaker.tryAcquire();
+
+        assertEquals(CircuitBreaker.Permit.PROBE, probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, this.breaker.getState());
+        assertEquals(CircuitBreaker.Permit.REJECTED, this.breaker.tryAcquire());
+
+        this.breaker.onSuccess(probe);
+
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+        assertEquals(CircuitBreaker.Permit.CALL, this.breaker.tryAcquire());
+    }
+
+    @Test
+    void opensAgainWhenTheProbeFails() throws Exception {
+        open();
+
+        this.breaker.onFailure(this.breaker.tryAcquire());
+
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+        assertEquals(2L, this.breaker.getOpened());
+        assertEquals(CircuitBreaker.Permit.REJECTED, this.breaker.tryAcquire());
+    }
+
+    @Test
+    void doesNotLetALateAnswerCloseOrReopenTheBreaker() throws Exception {
+        final CircuitBreaker.Permit late = this.breaker.tryAcquire();
+
+        fail(3);
+
+        // Answers to calls admitted before the breaker opened arrive while it is open and then while it probes.
+        this.breaker.onSuccess(late);
+
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+
+        TimeUnit.MILLISECONDS.sleep(OPEN_MILLIS + 10L);
+
+        final CircuitBreaker.Permit probe = this.breaker.tryAcquire();
+
+        this.breaker.onSuccess(late);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, this.breaker.getState());
+
+        this.breaker.onFailure(late);
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, this.breaker.getState());
+
+        this.breaker.onSuccess(probe);
+
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+        assertEquals(1L, this.breaker.getOpened());
+    }
+
+    private void fail(final int times) {
+        for(int i = 0; i < times; i++) {
+            this.breaker.onFailure(this.breaker.tryAcquire());
+        }
+    }
+
+    private void open() throws InterruptedException {
+        fail(3);
+
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+
+        TimeUnit.MILLISECONDS.sleep(OPEN_MILLIS + 10L);
+    }
+}
@@ -0,0 +1,217 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.model.User;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CoalescingUserDAOTest {
+    private static final int READERS = 16;
+
+    private final UserDAO userDAO = mock(UserDAO.class);
+
+    @Test
+    void sharesOneQueryAmongConcurrentReadersOfOneId() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        when(this.userDAO.read(1L)).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            return Optional.of(user(1L, "Ann"));
+        });
+
+        final CoalescingUserDAO coalescing = new CoalescingUserDAO(this.userDAO);
+
+        try(ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final List<Future<Optional<User>>> reads = new ArrayList<>();
+
+            reads.add(executor.submit(() -> coalescing.read(1L)));
+            assertTrue(entered.await(5L, TimeUnit.SECONDS));
+
+            for(int i = 1; i < READERS; i++) {
+                reads.add(executor.submit(() -> coalescing.read(1L)));
+            }
+
+            // Every later reader has found the flight of the first one before the query is allowed to finish.
+            waitFor(() -> coalescing.getShared() == READERS - 1);
+            release.countDown();
+
+            for(final Future<Optional<User>> read : reads) {
+                assertEquals("Ann", read.get(5L, TimeUnit.SECONDS).orElseThrow().getName());
+            }
+        }
+
+        verify(this.userDAO, times(1)).read(1L);
+        assertEquals(READERS, coalescing.getRequests());
+        assertEquals(1L, coalescing.getQueries());
+    }
+
+    @Test
+    void sendsDistinctIdsReadWithinTheWindowAsOneInQuery() throws Exception {
+        answerBatches();
+
+        // A window long enough that every reader joins it, and a batch limit none of them reaches.
+        final CoalescingUserDAO coalescing = new CoalescingUserDAO(this.userDAO, 500_000L, 100);
+
+        final Map<Long, Optional<User>> results = readConcurrently(coalescing, 8);
+
+        for(long id = 1L; id <= 8L; id++) {
+            assertEquals("User " + id, results.get(id).orElseThrow().getName());
+        }
+
+        assertEquals(Set.copyOf(results.keySet()), Set.copyOf(capturedBatch()));
+        verify(this.userDAO, never()).read(anyLong());
+        assertEquals(1L, coalescing.getQueries());
+        assertEquals(8.0, coalescing.getAverageBatchSize());
+    }
+
+    @Test
+    void wakesTheLeaderEarlyWhenTheBatchIsFull() throws Exception {
+        answerBatches();
+
+        // The window alone would hold the leader for a minute; the third ID fills the batch and releases it.
+        final CoalescingUserDAO coalescing = new CoalescingUserDAO(this.userDAO, 60_000_000L, 3);
+
+        final long start = System.nanoTime();
+        final Map<Long, Optional<User>> results = readConcurrently(coalescing, 3);
+        final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(elapsedMillis < 5_000L, "the leader waited " + elapsedMillis + " ms");
+        assertEquals(3, results.size());
+        assertEquals(3, capturedBatch().size());
+        assertEquals(1L, coalescing.getQueries());
+    }
+
+    @Test
+    void doesNotJoinAReadThatStartedBeforeAWriteReturned() throws Exception {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+
+        when(this.userDAO.read(1L)).thenAnswer(invocation -> {
+            if(calls.incrementAndGet() > 1) {
+                return Optional.of(user(1L, "Anna"));
+            }
+
+            entered.countDown();
+            release.await();
+            return Optional.of(user(1L, "Ann"));
+        });
+        when(this.userDAO.update(any(User.class))).thenReturn(1);
+
+        final CoalescingUserDAO coalescing = new CoalescingUserDAO(this.userDAO);
+
+        try(ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final Future<Optional<User>> before = executor.submit(() -> coalescing.read(1L));
+
+            assertTrue(entered.await(5L, TimeUnit.SECONDS));
+
+            try {
+                coalescing.update(user(1L, "Anna"));
+
+                // The flight that began before the update still holds the old row, so this read must query on its own;
+                // had it joined that flight it would wait on the held query and time out here.
+                final Future<Optional<User>> after = executor.submit(() -> coalescing.read(1L));
+
+                assertEquals("Anna", after.get(5L, TimeUnit.SECONDS).orElseThrow().getName());
+                assertFalse(before.isDone());
+            }
+            finally {
+                release.countDown();
+            }
+
+            assertEquals("Ann", before.get(5L, TimeUnit.SECONDS).orElseThrow().getName());
+        }
+
+        verify(this.userDAO, times(2)).read(1L);
+        assertEquals(0L, coalescing.getShared());
+    }
+
+    private void answerBatches() throws UserDAOException {
+        when(this.userDAO.read(anyCollection())).thenAnswer(invocation -> {
+            final Map<Long, User> found = new HashMap<>();
+
+            for(final Long id : invocation.<Collection<Long>>getArgument(0)) {
+                found.put(id, user(id, "User " + id));
+            }
+
+            return found;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private Collection<Long> capturedBatch() throws UserDAOException {
+        final ArgumentCaptor<Collection<Long>> ids = ArgumentCaptor.forClass(Collection.class);
+
+        verify(this.userDAO, times(1)).read(ids.capture());
+
+        return ids.getValue();
+    }
+
+    private static Map<Long, Optional<User>> readConcurrently(final CoalescingUserDAO coalescing, final int count) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final Map<Long, Future<Optional<User>>> reads = new HashMap<>();
+
+        try(ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for(long id = 1L; id <= count; id++) {
+                final long userId = id;
+
+                reads.put(userId, executor.submit(() -> {
+                    start.await();
+                    return coalescing.read(userId);
+                }));
+            }
+
+            start.countDown();
+
+            final Map<Long, Optional<User>> results = new HashMap<>();
+
+            for(final Map.Entry<Long, Future<Optional<User>>> read : reads.entrySet()) {
+                results.put(read.getKey(), read.getValue().get(30L, TimeUnit.SECONDS));
+            }
+
+            return results;
+        }
+    }
+
+    private static void waitFor(final BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+
+        while(!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting for the readers");
+            Thread.sleep(1L);
+        }
+    }
+
+    private static User user(final long id, final String name) {
+        return new User(id, name, "user" + id + "@example.com", 30);
+    }
+}
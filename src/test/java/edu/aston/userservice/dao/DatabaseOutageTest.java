@@ -0,0 +1,142 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.DatabaseTest;
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.util.HibernateUtil;
+import edu.aston.userservice.util.Setting;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Freezes PostgreSQL in the middle of a read load and checks that callers fail fast instead of piling up. Readers
+// loop over uncached lookups by ID through the resilient DAO while the container is paused for a while and then resumed.
+// Once the breaker opens, calls must be rejected without waiting on the database, and after the container resumes
+// the breaker must close again and reads must succeed. Needs the container, since an existing database cannot be paused.
+class DatabaseOutageTest extends DatabaseTest {
+    private static final int THREADS = 16;
+    private static final int USERS = 1_000;
+    private static final long OPEN_MILLIS = 2_000L;
+
+    private static final List<Setting> SETTINGS = List.of(Setting.DB_SOCKET_TIMEOUT, Setting.DB_CONNECT_TIMEOUT,
+            Setting.POOL_CONNECTION_TIMEOUT, Setting.POOL_MAX_SIZE);
+
+    @BeforeAll
+    static void shortenTimeouts() {
+        // Short enough that a frozen database shows up within a couple of seconds.
+        System.setProperty(Setting.DB_SOCKET_TIMEOUT.property(), "2");
+        System.setProperty(Setting.DB_CONNECT_TIMEOUT.property(), "2");
+        System.setProperty(Setting.POOL_CONNECTION_TIMEOUT.property(), "2000");
+        System.setProperty(Setting.POOL_MAX_SIZE.property(), String.valueOf(THREADS));
+    }
+
+    @AfterAll
+    static void restoreSettings() {
+        for(final Setting setting : SETTINGS) {
+            System.clearProperty(setting.property());
+        }
+    }
+
+    @Test
+    void failsFastWhileTheDatabaseIsFrozenAndRecoversAfterwards() throws Exception {
+        final PostgreSQLContainer<?> container = runningContainer();
+
+        assumeTrue(container != null, "The outage needs a container to pause");
+
+        final CircuitBreaker breaker = new CircuitBreaker("outage", CircuitBreaker.DEFAULT_FAILURE_THRESHOLD, OPEN_MILLIS);
+        // A single attempt, so a rejection never follows a call that first waited on the frozen database.
+        final ResilientUserDAO userDAO = new ResilientUserDAO(new UserDAOImpl(ReplicaRouter.primaryOnly(HibernateUtil.getSessionFactory()),
+                UserDAOImpl.DEFAULT_MULTI_LOAD_BATCH_SIZE, 1, 2), breaker, 1, 0L);
+
+        final List<User> seed = new ArrayList<>(USERS);
+
+        for(int i = 0; i < USERS; i++) {
+            seed.add(new User("Outage", "outage" + i + "@stress.local", 30));
+        }
+
+        userDAO.createAll(seed);
+
+        final long[] ids = userDAO.read().stream().mapToLong(User::getId).toArray();
+
+        final LongAdder ok = new LongAdder();
+        final AtomicLong rejectedMaxNanos = new AtomicLong();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            for(int thread = 0; thread < THREADS; thread++) {
+                executor.submit(() -> {
+                    while(!Thread.currentThread().isInterrupted()) {
+                        final long start = System.nanoTime();
+
+                        try {
+                            // Past the second-level cache, which would otherwise answer for the frozen database.
+                            userDAO.readLatest(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+                            ok.increment();
+                        }
+                        catch(CircuitOpenException exception) {
+                            rejectedMaxNanos.accumulateAndGet(System.nanoTime() - start, Math::max);
+
+                            // A rejected caller would back off too; without this the readers only spin.
+                            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10L));
+                        }
+                        catch(Exception exception) {
+                            // Timeouts while the database is frozen; the breaker counts them.
+                        }
+                    }
+                });
+            }
+
+            TimeUnit.SECONDS.sleep(2L);
+
+            assertTrue(ok.sumThenReset() > 0L, "No read succeeded before the outage");
+
+            container.getDockerClient().pauseContainerCmd(container.getContainerId()).exec();
+
+            try {
+                TimeUnit.SECONDS.sleep(8L);
+
+                assertTrue(breaker.getOpened() > 0L, "The breaker never opened while the database was frozen");
+                assertTrue(breaker.getRejected() > 0L, "No call was rejected while the database was frozen");
+            }
+            finally {
+                container.getDockerClient().unpauseContainerCmd(container.getContainerId()).exec();
+            }
+
+            ok.reset();
+
+            // One open period for the next probe, plus the socket timeout of the calls still stuck on the frozen database.
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15L);
+
+            while((breaker.getState() != CircuitBreaker.State.CLOSED || ok.sum() == 0L) && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(100L);
+            }
+
+            assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+            assertTrue(ok.sum() > 0L, "No read succeeded after the database resumed");
+            // A rejection answers without touching the database, so it stays far below the socket timeout.
+            assertTrue(rejectedMaxNanos.get() < TimeUnit.MILLISECONDS.toNanos(500L),
+                    "The slowest rejection took " + rejectedMaxNanos.get() / 1_000_000L + " ms");
+        }
+        finally {
+            executor.shutdownNow();
+            executor.awaitTermination(30L, TimeUnit.SECONDS);
+        }
+    }
+}
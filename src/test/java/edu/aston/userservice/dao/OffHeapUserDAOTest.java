@@ -0,0 +1,201 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.model.UserView;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapUserDAOTest {
+    private final OffHeapUserDAO userDAO = new OffHeapUserDAO();
+
+    @Test
+    void rejectsADuplicateEmailOnCreateUpdateAndPatch() throws Exception {
+        final User ann = this.userDAO.create(new User("Ann", "ann@example.com", 30));
+        final User bob = this.userDAO.create(new User("Bob", "bob@example.com", 40));
+
+        assertThrows(UserDAOException.class, () -> this.userDAO.create(new User("Other", "ann@example.com", 20)));
+        assertThrows(UserDAOException.class, () -> this.userDAO.update(new User(bob.getId(), "Bob", "ann@example.com", 41)));
+        assertThrows(UserDAOException.class, () -> this.userDAO.patch(new UserPatch(bob.getId(), null, "ann@example.com", null)));
+
+        // Every rejected write left both rows and the email index as they were.
+        assertEquals(2, this.userDAO.size());
+        assertEquals(ann.getId(), this.userDAO.readByEmail("ann@example.com").orElseThrow().getId());
+        assertEquals(bob.getId(), this.userDAO.readByEmail("bob@example.com").orElseThrow().getId());
+        assertEquals(40, this.userDAO.read(bob.getId()).orElseThrow().getAge());
+        assertEquals(0L, this.userDAO.read(bob.getId()).orElseThrow().getVersion());
+
+        // A row keeps its own email when it is rewritten.
+        assertEquals(1, this.userDAO.update(new User(ann.getId(), "Anna", "ann@example.com", 31)));
+        assertEquals(1, this.userDAO.patch(new UserPatch(ann.getId(), null, "ann@example.com", 32)));
+        assertEquals(32, this.userDAO.readByEmail("ann@example.com").orElseThrow().getAge());
+    }
+
+    @Test
+    void keepsTheCommittedChunksOfAFailedCreateAll() throws Exception {
+        final List<User> users = new ArrayList<>();
+
+        for(int i = 0; i < 5_002; i++) {
+            users.add(new User("User", "user" + i + "@example.com", 30));
+        }
+
+        // The duplicate falls into the second chunk of 5000, so only that chunk is rolled back.
+        users.add(new User("Copy", "user5000@example.com", 30));
+
+        final UserDAOException exception = assertThrows(UserDAOException.class, () -> this.userDAO.createAll(users));
+
+        assertTrue(exception.getMessage().contains("after 5000 committed rows"), exception.getMessage());
+        assertEquals(5_000, this.userDAO.size());
+        assertTrue(this.userDAO.readByEmail("user4999@example.com").isPresent());
+        assertTrue(this.userDAO.readByEmail("user5000@example.com").isEmpty());
+        assertTrue(this.userDAO.readByEmail("user5001@example.com").isEmpty());
+
+        // The emails of the rolled-back rows are free again.
+        assertEquals(2, this.userDAO.createAll(List.of(new User("User", "user5000@example.com", 30), new User("User", "user5001@example.com", 30))));
+    }
+
+    @Test
+    void rollsBackTheWholeGroupOnAVersionConflictMidGroup() throws Exception {
+        final User ann = this.userDAO.create(new User("Ann", "ann@example.com", 30));
+        final User bob = this.userDAO.create(new User("Bob", "bob@example.com", 40));
+
+        // The unversioned update moves Ann to version 1, so the versioned one after it is stale.
+        final List<UserWrite> group = List.of(
+                UserWrite.create(new User("Carol", "carol@example.com", 50)),
+                UserWrite.delete(bob.getId()),
+                UserWrite.update(new User(ann.getId(), "Anna", "anna@example.com", 31)),
+                UserWrite.update(new User(ann.getId(), "Annie", "annie@example.com", 32, null, 0L)));
+
+        assertThrows(UserVersionConflictException.class, () -> this.userDAO.applyAll(group));
+
+        assertEquals(2, this.userDAO.size());
+        assertTrue(this.userDAO.readByEmail("carol@example.com").isEmpty());
+        assertTrue(this.userDAO.readByEmail("anna@example.com").isEmpty());
+
+        final User restored = this.userDAO.read(ann.getId()).orElseThrow();
+
+        assertEquals("Ann", restored.getName());
+        assertEquals("ann@example.com", restored.getEmail());
+        assertEquals(0L, restored.getVersion());
+        assertEquals(bob.getId(), this.userDAO.readByEmail("bob@example.com").orElseThrow().getId());
+
+        // Without the stale write the same group goes through as a whole.
+        assertArrayEquals(new int[] {1, 1, 1}, this.userDAO.applyAll(group.subList(0, 3)));
+        assertEquals(2, this.userDAO.size());
+        assertEquals("Anna", this.userDAO.read(ann.getId()).orElseThrow().getName());
+        assertTrue(this.userDAO.read(bob.getId()).isEmpty());
+    }
+
+    @Test
+    void revivesADeletedRowWhenItsGroupIsRolledBack() throws Exception {
+        final User ann = this.userDAO.create(new User("Ann", "ann@example.com", 30));
+        final User bob = this.userDAO.create(new User("Bob", "bob@example.com", 40));
+
+        // The delete frees Ann's email, but the duplicate of Bob's fails the group and brings Ann back.
+        assertThrows(UserDAOException.class, () -> this.userDAO.applyAll(List.of(
+                UserWrite.delete(ann.getId()),
+                UserWrite.create(new User("Ann again", "ann@example.com", 20)),
+                UserWrite.create(new User("Copy", "bob@example.com", 20)))));
+
+        assertEquals(2, this.userDAO.size());
+        assertEquals("Ann", this.userDAO.read(ann.getId()).orElseThrow().getName());
+        assertEquals(ann.getId(), this.userDAO.readByEmail("ann@example.com").orElseThrow().getId());
+        assertEquals(List.of(ann.getId(), bob.getId()), this.userDAO.read(0L, 10).stream().map(User::getId).toList());
+
+        // The revived row is a normal row again: its email is taken, and it can be deleted for real.
+        assertThrows(UserDAOException.class, () -> this.userDAO.create(new User("Other", "ann@example.com", 20)));
+        assertEquals(1, this.userDAO.delete(ann.getId()));
+        assertEquals(0, this.userDAO.delete(ann.getId()));
+        assertTrue(this.userDAO.readByEmail("ann@example.com").isEmpty());
+        assertEquals(1, this.userDAO.size());
+    }
+
+    @Test
+    void findsSurvivorsByIdAndEmailAfterCompaction() throws Exception {
+        final List<User> users = new ArrayList<>();
+
+        for(int i = 0; i < 3_000; i++) {
+            users.add(new User("User " + i, "user" + i + "@example.com", 20 + i % 50));
+        }
+
+        this.userDAO.createAll(users);
+
+        final long bytesBefore = this.userDAO.getOffHeapBytes();
+
+        // Deleting two rows in three leaves most slots and arena bytes dead, which compacts both.
+        for(long id = 1L; id <= 3_000L; id++) {
+            if(id % 3 != 0) {
+                assertEquals(1, this.userDAO.delete(id));
+            }
+        }
+
+        assertEquals(1_000, this.userDAO.size());
+        assertTrue(this.userDAO.getOffHeapBytes() < bytesBefore, "off-heap bytes did not shrink");
+
+        for(long id = 1L; id <= 3_000L; id++) {
+            final String email = "user" + (id - 1) + "@example.com";
+
+            if(id % 3 == 0) {
+                assertEquals(email, this.userDAO.read(id).orElseThrow().getEmail());
+                assertEquals(id, this.userDAO.readByEmail(email).orElseThrow().getId());
+            }
+            else {
+                assertTrue(this.userDAO.read(id).isEmpty());
+                assertTrue(this.userDAO.readByEmail(email).isEmpty());
+            }
+        }
+
+        // IDs are never reused, and the emails of deleted rows are free.
+        final User created = this.userDAO.create(new User("New", "user0@example.com", 30));
+
+        assertEquals(3_001L, created.getId());
+        assertEquals(created.getId(), this.userDAO.readByEmail("user0@example.com").orElseThrow().getId());
+        assertEquals(List.of(2_997L, 3_000L, 3_001L), this.userDAO.read(2_995L, 10).stream().map(User::getId).toList());
+    }
+
+    @Test
+    void pagesInIdOrderAndBreaksSortTiesById() throws Exception {
+        for(int i = 0; i < 10; i++) {
+            this.userDAO.create(new User("User " + i, "user" + i + "@example.com", i % 2 == 0 ? 30 : 40));
+        }
+
+        this.userDAO.delete(4L);
+
+        assertEquals(List.of(1L, 2L, 3L), this.userDAO.read(0L, 3).stream().map(User::getId).toList());
+        assertEquals(List.of(5L, 6L, 7L), this.userDAO.read(3L, 3).stream().map(User::getId).toList());
+        assertEquals(List.of(10L), this.userDAO.read(9L, 3).stream().map(User::getId).toList());
+        assertTrue(this.userDAO.read(10L, 3).isEmpty());
+
+        // Ages 30 and 40 repeat, so rows with the same age are ordered by ID in the direction of the sort.
+        assertEquals(List.of(1L, 3L, 5L, 7L, 9L, 2L, 6L, 8L, 10L), ids(UserQuery.builder().sortBy(UserQuery.Field.AGE, false).build()));
+        assertEquals(List.of(10L, 8L, 6L, 2L, 9L, 7L, 5L, 3L, 1L), ids(UserQuery.builder().sortBy(UserQuery.Field.AGE, true).build()));
+
+        // Offset pages over the tied rows neither repeat nor skip one.
+        final List<Long> paged = new ArrayList<>();
+
+        for(int offset = 0; offset < 9; offset += 2) {
+            paged.addAll(ids(UserQuery.builder().sortBy(UserQuery.Field.AGE, false).offset(offset).limit(2).build()));
+        }
+
+        assertEquals(List.of(1L, 3L, 5L, 7L, 9L, 2L, 6L, 8L, 10L), paged);
+
+        final List<UserView> projected = this.userDAO.find(UserQuery.builder().age(40, null).fields(Set.of(UserQuery.Field.EMAIL)).limit(1).build());
+
+        assertEquals(1, projected.size());
+        assertEquals("user1@example.com", projected.get(0).email());
+        assertNull(projected.get(0).id());
+    }
+
+    private List<Long> ids(final UserQuery query) {
+        return this.userDAO.find(query).stream().map(UserView::id).toList();
+    }
+}
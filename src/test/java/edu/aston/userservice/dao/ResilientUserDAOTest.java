@@ -0,0 +1,111 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.model.User;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ResilientUserDAOTest {
+    private final UserDAO userDAO = mock(UserDAO.class);
+
+    // One unhealthy failure is enough to open it, so every test sees at once whether a failure counted.
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 1, 60_000L);
+
+    private final ResilientUserDAO resilientUserDAO = new ResilientUserDAO(this.userDAO, this.breaker, 3, 0L);
+
+    @Test
+    void retriesSerializationFailuresWithoutCountingThem() throws Exception {
+        final User user = new User(1L, "Ann", "ann@example.com", 30);
+
+        when(this.userDAO.read(1L)).thenThrow(failure("40001")).thenThrow(failure("40P01")).thenReturn(Optional.of(user));
+
+        assertEquals(Optional.of(user), this.resilientUserDAO.read(1L));
+        assertEquals(2L, this.resilientUserDAO.getRetries());
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+    }
+
+    @Test
+    void retriesLostConnectionsAndCountsThem() throws Exception {
+        when(this.userDAO.read(1L)).thenThrow(failure("08006"));
+
+        assertThrows(UserDAOException.class, () -> this.resilientUserDAO.read(1L));
+
+        // The first failure opened the breaker, so the retry was rejected before it reached the database.
+        verify(this.userDAO, times(1)).read(1L);
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+        assertEquals(1L, this.breaker.getRejected());
+    }
+
+    @Test
+    void countsTransientDriverExceptionsWhateverTheirState() throws Exception {
+        when(this.userDAO.read(1L)).thenThrow(new UserDAOException("Pool exhausted", new SQLTransientConnectionException("timeout")));
+
+        assertThrows(UserDAOException.class, () -> this.resilientUserDAO.read(1L));
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+    }
+
+    @Test
+    void countsCancelledStatementsWithoutRetryingThem() throws Exception {
+        when(this.userDAO.read(1L)).thenThrow(failure("57014"));
+
+        assertThrows(UserDAOException.class, () -> this.resilientUserDAO.read(1L));
+
+        assertEquals(0L, this.resilientUserDAO.getRetries());
+        assertEquals(CircuitBreaker.State.OPEN, this.breaker.getState());
+        assertEquals(0L, this.breaker.getRejected());
+    }
+
+    @Test
+    void treatsConstraintViolationsAsAnswers() throws Exception {
+        when(this.userDAO.create(any())).thenThrow(failure("23505"));
+
+        assertThrows(UserDAOException.class, () -> this.resilientUserDAO.create(new User("Ann", "ann@example.com", 30)));
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+    }
+
+    @Test
+    void treatsFailuresWithoutASqlCauseAsAnswers() throws Exception {
+        when(this.userDAO.read(1L)).thenThrow(new UserDAOException("Session could not read a user by ID in the database"));
+
+        assertThrows(UserDAOException.class, () -> this.resilientUserDAO.read(1L));
+
+        verify(this.userDAO, times(1)).read(1L);
+        assertEquals(CircuitBreaker.State.CLOSED, this.breaker.getState());
+    }
+
+    @Test
+    void neverRetriesWrites() throws Exception {
+        when(this.userDAO.delete(1L)).thenThrow(failure("40001"));
+
+        assertThrows(UserDAOException.class, () -> this.resilientUserDAO.delete(1L));
+
+        verify(this.userDAO, times(1)).delete(1L);
+        assertEquals(0L, this.resilientUserDAO.getRetries());
+    }
+
+    @Test
+    void rejectsCallsWhileOpenWithoutReachingTheDatabase() throws Exception {
+        when(this.userDAO.read(1L)).thenThrow(failure("57P01"));
+
+        assertThrows(UserDAOException.class, () -> this.resilientUserDAO.read(1L));
+        assertThrows(CircuitOpenException.class, () -> this.resilientUserDAO.read(2L));
+
+        verify(this.userDAO, never()).read(2L);
+    }
+
+    private static UserDAOException failure(final String sqlState) {
+        return new UserDAOException("Session could not run", new SQLException("Failed with " + sqlState, sqlState));
+    }
+}
@@ -0,0 +1,79 @@
+package edu.aston.userservice.dao;
+
+import edu.aston.userservice.DatabaseTest;
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.util.HibernateUtil;
+
+import org.hibernate.stat.CacheRegionStatistics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserDAOImplTest extends DatabaseTest {
+    private UserDAOImpl userDAO;
+
+    @BeforeEach
+    void createDAO() {
+        this.userDAO = new UserDAOImpl(HibernateUtil.getSessionFactory());
+    }
+
+    @Test
+    void evictsOnlyTheOldEmailOfAChangedUser() throws Exception {
+        final User changed = this.userDAO.create(new User("Ann", "ann@evict.test", 30));
+        final User patched = this.userDAO.create(new User("Bob", "bob@evict.test", 31));
+        final User deleted = this.userDAO.create(new User("Cid", "cid@evict.test", 32));
+        final User untouched = this.userDAO.create(new User("Dan", "dan@evict.test", 33));
+
+        for(final String email : List.of("ann@evict.test", "bob@evict.test", "cid@evict.test", "dan@evict.test")) {
+            this.userDAO.readByEmail(email);
+        }
+
+        final User current = this.userDAO.read(changed.getId()).orElseThrow();
+
+        assertEquals(1, this.userDAO.update(new User(current.getId(), "Ann", "anna@evict.test", 30, current.getCreatedAt(), current.getVersion())));
+        assertEquals(1, this.userDAO.patch(new UserPatch(patched.getId(), null, "bobby@evict.test", null)));
+        assertEquals(1, this.userDAO.delete(deleted.getId()));
+
+        assertTrue(this.userDAO.readByEmail("ann@evict.test").isEmpty());
+        assertTrue(this.userDAO.readByEmail("bob@evict.test").isEmpty());
+        assertTrue(this.userDAO.readByEmail("cid@evict.test").isEmpty());
+        assertEquals(changed.getId(), this.userDAO.readByEmail("anna@evict.test").orElseThrow().getId());
+        assertEquals(patched.getId(), this.userDAO.readByEmail("bobby@evict.test").orElseThrow().getId());
+
+        // The other users' entries survive the writes.
+        final long hits = emailCache().getHitCount();
+
+        assertEquals(untouched.getId(), this.userDAO.readByEmail("dan@evict.test").orElseThrow().getId());
+        assertEquals(hits + 1, emailCache().getHitCount());
+    }
+
+    @Test
+    void evictsTheOldEmailsOfAGroupOfWrites() throws Exception {
+        final User updated = this.userDAO.create(new User("Eve", "eve@group.test", 30));
+        final User deleted = this.userDAO.create(new User("Fay", "fay@group.test", 31));
+
+        this.userDAO.readByEmail("eve@group.test");
+        this.userDAO.readByEmail("fay@group.test");
+
+        final int[] rows = this.userDAO.applyAll(List.of(
+                UserWrite.create(new User("Gus", "gus@group.test", 32)),
+                UserWrite.update(new User(updated.getId(), "Eve", "eva@group.test", 30)),
+                UserWrite.delete(deleted.getId()),
+                UserWrite.delete(deleted.getId())));
+
+        assertArrayEquals(new int[] {1, 1, 1, 0}, rows);
+        assertTrue(this.userDAO.readByEmail("eve@group.test").isEmpty());
+        assertTrue(this.userDAO.readByEmail("fay@group.test").isEmpty());
+        assertEquals(updated.getId(), this.userDAO.readByEmail("eva@group.test").orElseThrow().getId());
+    }
+
+    private static CacheRegionStatistics emailCache() {
+        return HibernateUtil.getSessionFactory().getStatistics().getCacheRegionStatistics(User.EMAIL_CACHE_REGION);
+    }
+}
@@ -0,0 +1,86 @@
+package edu.aston.userservice.server;
+
+import edu.aston.userservice.dao.OffHeapUserDAO;
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.service.UserServiceImpl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserHttpServerTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    private UserServiceImpl userService;
+
+    private UserHttpServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        this.userService = new UserServiceImpl(new OffHeapUserDAO());
+        this.server = new UserHttpServer(this.userService, 0, 16);
+        this.server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        this.server.close();
+        this.client.close();
+    }
+
+    @Test
+    void answersErrorsWithABody() throws Exception {
+        final HttpResponse<String> missing = send(HttpRequest.newBuilder(uri("/users/42")).GET());
+
+        assertEquals(404, missing.statusCode());
+        assertTrue(missing.body().contains("\"error\""));
+
+        final HttpResponse<String> invalid = send(HttpRequest.newBuilder(uri("/users/abc")).GET());
+
+        assertEquals(400, invalid.statusCode());
+        assertTrue(invalid.body().contains("\"error\""));
+    }
+
+    @Test
+    void answersAStaleIfMatchWithConflict() throws Exception {
+        final User user = this.userService.createUser("Ann", "ann@example.com", 30);
+
+        this.userService.updateUser(user.getId(), "Anna", "ann@example.com", 31);
+
+        final HttpResponse<String> stale = send(HttpRequest.newBuilder(uri("/users/" + user.getId()))
+                .header("If-Match", "\"" + user.getVersion() + "\"")
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"name\":\"Annie\",\"email\":\"ann@example.com\",\"age\":\"32\"}")));
+
+        assertEquals(409, stale.statusCode());
+        assertTrue(stale.body().contains("\"error\""));
+        assertEquals("Anna", this.userService.findById(user.getId()).getName());
+    }
+
+    @Test
+    void answersATruncatedEscapeWithBadRequest() throws Exception {
+        // A lone trailing backslash and a unicode escape cut short both end the body inside a string.
+        for(final String body : new String[] {"{\"name\":\"Ann\\", "{\"name\":\"Ann\\u00"}) {
+            final HttpResponse<String> truncated = send(HttpRequest.newBuilder(uri("/users"))
+                    .POST(HttpRequest.BodyPublishers.ofString(body)));
+
+            assertEquals(400, truncated.statusCode(), body);
+            assertTrue(truncated.body().contains("Unterminated JSON string"), truncated.body());
+        }
+    }
+
+    private URI uri(final String path) {
+        return URI.create("http://localhost:" + this.server.getPort() + path);
+    }
+
+    private HttpResponse<String> send(final HttpRequest.Builder request) throws Exception {
+        return this.client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
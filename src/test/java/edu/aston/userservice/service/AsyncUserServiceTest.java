@@ -0,0 +1,90 @@
+package edu.aston.userservice.service;
+
+import edu.aston.userservice.model.User;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AsyncUserServiceTest {
+    @Test
+    void waitsAtMostTheAcquireTimeoutWhenAllPermitsAreTaken() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final UserService userService = mock(UserService.class);
+
+        when(userService.findById(1L)).thenAnswer(invocation -> {
+            release.await();
+            return new User(1L, "Ann", "ann@example.com", 30);
+        });
+
+        try(AsyncUserService asyncUserService = new AsyncUserService(userService, 1, 200L)) {
+            final CompletableFuture<User> first = asyncUserService.findById(1L);
+
+            // The caller waits for admission itself, and the call it could not place never reaches the service.
+            final long start = System.nanoTime();
+            final CompletableFuture<User> second = asyncUserService.findById(2L);
+            final long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertTrue(waitedMillis >= 150L, "waited " + waitedMillis + " ms");
+            assertTrue(second.isCompletedExceptionally());
+
+            final ExecutionException rejected = assertThrows(ExecutionException.class, second::get);
+
+            assertInstanceOf(UserServiceException.class, rejected.getCause());
+            verify(userService, never()).findById(2L);
+
+            release.countDown();
+
+            assertEquals("Ann", first.get(5L, TimeUnit.SECONDS).getName());
+
+            // The permit is released after the future completes, so the freed slot is checked through a new call.
+            assertEquals("Ann", asyncUserService.findById(1L).get(5L, TimeUnit.SECONDS).getName());
+        }
+    }
+
+    @Test
+    void failsFastWithoutAnAcquireTimeout() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final UserService userService = mock(UserService.class);
+
+        when(userService.findById(1L)).thenAnswer(invocation -> {
+            release.await();
+            return new User(1L, "Ann", "ann@example.com", 30);
+        });
+
+        try(AsyncUserService asyncUserService = new AsyncUserService(userService, 2, 0L)) {
+            final CompletableFuture<User> first = asyncUserService.findById(1L);
+            final CompletableFuture<User> second = asyncUserService.findById(1L);
+
+            for(int i = 0; i < 100; i++) {
+                assertTrue(asyncUserService.findById(1L).isCompletedExceptionally());
+            }
+
+            assertEquals(2, asyncUserService.getInFlight());
+
+            release.countDown();
+
+            assertEquals("Ann", first.get(5L, TimeUnit.SECONDS).getName());
+            assertEquals("Ann", second.get(5L, TimeUnit.SECONDS).getName());
+            verify(userService, times(2)).findById(1L);
+        }
+    }
+
+    @Test
+    void rejectsANegativeAcquireTimeout() {
+        assertThrows(IllegalArgumentException.class, () -> new AsyncUserService(mock(UserService.class), 1, -1L));
+    }
+}
@@ -0,0 +1,158 @@
+package edu.aston.userservice.service;
+
+import edu.aston.userservice.Application;
+import edu.aston.userservice.DatabaseTest;
+import edu.aston.userservice.dao.UserDAOImpl;
+import edu.aston.userservice.metrics.MetricsRegistry;
+import edu.aston.userservice.model.User;
+import edu.aston.userservice.util.HibernateUtil;
+import edu.aston.userservice.util.Setting;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Hammers a few rows from many threads through the DAO chain main runs on, with read coalescing and write-behind
+// switched on, so the read of every read-modify-write has to get past both to see the row it is about to overwrite.
+class ConcurrentUpdateTest extends DatabaseTest {
+    private static final int THREADS = 8;
+    private static final int USERS = 4;
+    private static final int ROUNDS = Math.min(10, (DefaultUserValidator.MAX_AGE - DefaultUserValidator.MIN_AGE) / THREADS);
+
+    private static final List<Setting> SETTINGS = List.of(Setting.READ_COALESCING_ENABLED, Setting.WRITE_BEHIND_ENABLED, Setting.UPDATE_RETRY_ATTEMPTS);
+
+    private UserDAOImpl userDAO;
+
+    private UserServiceImpl userService;
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    @BeforeAll
+    static void enableProductionLayers() {
+        System.setProperty(Setting.READ_COALESCING_ENABLED.property(), "true");
+        System.setProperty(Setting.WRITE_BEHIND_ENABLED.property(), "true");
+        // Enough attempts that every writer gets through even when all of them start on the same row.
+        System.setProperty(Setting.UPDATE_RETRY_ATTEMPTS.property(), String.valueOf(THREADS * 4));
+    }
+
+    @AfterAll
+    static void restoreSettings() {
+        for(final Setting setting : SETTINGS) {
+            System.clearProperty(setting.property());
+        }
+    }
+
+    @BeforeEach
+    void createService() {
+        this.userDAO = new UserDAOImpl(HibernateUtil.getSessionFactory());
+        this.userService = Application.createUserService(
+                Application.createUserDAOStack(Application.createReplicaRouter(), new MetricsRegistry()).userDAO());
+    }
+
+    @Test
+    void versionedUpdatesFromManyThreadsAreNotLost() throws Exception {
+        final long[] ids = createUsers("versioned");
+
+        run(THREADS, thread -> {
+            for(int round = 0; round < ROUNDS; round++) {
+                for(final long id : ids) {
+                    this.userService.updateUser(id, user -> new User(id, user.getName(), user.getEmail(), user.getAge() + 1, null));
+                }
+            }
+        });
+
+        for(final long id : ids) {
+            assertEquals(DefaultUserValidator.MIN_AGE + THREADS * ROUNDS, this.userDAO.readLatest(id).orElseThrow().getAge());
+        }
+    }
+
+    @Test
+    void fieldPatchesFromSeparateThreadsAllSurvive() throws Exception {
+        final long[] ids = createUsers("patched");
+
+        // Even threads own the names and odd threads the emails, so every field has exactly one writer.
+        final String[][] lastNames = new String[THREADS][USERS];
+        final String[][] lastEmails = new String[THREADS][USERS];
+
+        final long conflicts = this.userService.getUpdateConflicts();
+
+        run(THREADS, thread -> {
+            for(int round = 0; round < ROUNDS; round++) {
+                for(int i = thread / 2; i < USERS; i += THREADS / 2) {
+                    if(thread % 2 == 0) {
+                        lastNames[thread][i] = "Patched" + (char) ('a' + round % 26);
+                        this.userService.patchUser(ids[i], lastNames[thread][i], null, null);
+                    }
+                    else {
+                        lastEmails[thread][i] = "patched" + round + "x" + i + "@stress.local";
+                        this.userService.patchUser(ids[i], null, lastEmails[thread][i], null);
+                    }
+                }
+            }
+        });
+
+        for(int thread = 0; thread < THREADS; thread++) {
+            for(int i = 0; i < USERS; i++) {
+                final User user = this.userDAO.readLatest(ids[i]).orElseThrow();
+
+                if(lastNames[thread][i] != null) {
+                    assertEquals(lastNames[thread][i], user.getName());
+                }
+
+                if(lastEmails[thread][i] != null) {
+                    assertEquals(lastEmails[thread][i], user.getEmail());
+                }
+            }
+        }
+
+        assertEquals(conflicts, this.userService.getUpdateConflicts());
+    }
+
+    private long[] createUsers(final String prefix) throws Exception {
+        // Created below the write-behind buffer, which would hand the users back before they have an ID.
+        final long[] ids = new long[USERS];
+
+        for(int i = 0; i < USERS; i++) {
+            ids[i] = this.userDAO.create(new User("Check", prefix + i + "@stress.local", DefaultUserValidator.MIN_AGE)).getId();
+        }
+
+        return ids;
+    }
+
+    private static void run(final int threads, final Worker worker) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+
+        try(ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            final List<Future<?>> results = new ArrayList<>(threads);
+
+            for(int thread = 0; thread < threads; thread++) {
+                final int index = thread;
+
+                results.add(executor.submit(() -> {
+                    start.await();
+                    worker.run(index);
+
+                    return null;
+                }));
+            }
+
+            start.countDown();
+
+            for(final Future<?> result : results) {
+                result.get();
+            }
+        }
+    }
+}
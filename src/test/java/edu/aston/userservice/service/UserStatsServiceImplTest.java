@@ -0,0 +1,86 @@
+package edu.aston.userservice.service;
+
+import edu.aston.userservice.dao.CountingUserDAO;
+import edu.aston.userservice.dao.UserDAO;
+import edu.aston.userservice.dao.UserStatsDAO;
+import edu.aston.userservice.model.User;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserStatsServiceImplTest {
+    @Test
+    void doesNotCountAWriteInFlightTwice() throws Exception {
+        final CountDownLatch written = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final UserDAO userDAO = mock(UserDAO.class);
+        final UserStatsDAO userStatsDAO = mock(UserStatsDAO.class);
+
+        // The row is already in the table while the counter has not seen the write return yet.
+        when(userDAO.create(any())).thenAnswer(invocation -> {
+            written.countDown();
+            release.await();
+            return invocation.getArgument(0);
+        });
+        when(userStatsDAO.countUsers()).thenReturn(11L);
+
+        final CountingUserDAO counter = new CountingUserDAO(userDAO);
+        final UserStatsServiceImpl userStatsService = new UserStatsServiceImpl(userStatsDAO, counter, 60L);
+
+        final CompletableFuture<User> write = CompletableFuture.supplyAsync(() -> {
+            try {
+                return counter.create(new User("Ann", "ann@example.com", 30));
+            }
+            catch(Exception exception) {
+                throw new IllegalStateException(exception);
+            }
+        });
+
+        assertTrue(written.await(5L, TimeUnit.SECONDS));
+
+        final CompletableFuture<Long> count = CompletableFuture.supplyAsync(() -> {
+            try {
+                return userStatsService.countUsers();
+            }
+            catch(UserServiceException exception) {
+                throw new IllegalStateException(exception);
+            }
+        });
+
+        release.countDown();
+        write.get(5L, TimeUnit.SECONDS);
+
+        assertEquals(11L, count.get(5L, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void countsTheTableAgainOnceTheBaselineIsStale() throws Exception {
+        final UserDAO userDAO = mock(UserDAO.class);
+        final UserStatsDAO userStatsDAO = mock(UserStatsDAO.class);
+
+        when(userDAO.delete(1L)).thenReturn(1);
+        when(userStatsDAO.countUsers()).thenReturn(5L, 7L);
+
+        // A refresh interval of zero counts on every call, so the second count sees the writes of other processes.
+        final CountingUserDAO counter = new CountingUserDAO(userDAO);
+        final UserStatsServiceImpl userStatsService = new UserStatsServiceImpl(userStatsDAO, counter, 0L);
+
+        assertEquals(5L, userStatsService.countUsers());
+
+        counter.delete(1L);
+
+        assertEquals(7L, userStatsService.countUsers());
+        verify(userStatsDAO, times(2)).countUsers();
+    }
+}